@@ -0,0 +1,606 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.apt;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic.Kind;
+
+import org.wicketstuff.rest.annotations.AuthorizeInvocation;
+import org.wicketstuff.rest.annotations.MethodMapping;
+import org.wicketstuff.rest.annotations.parameters.AnnotatedParam;
+import org.wicketstuff.rest.annotations.parameters.CookieParam;
+import org.wicketstuff.rest.annotations.parameters.HeaderParam;
+import org.wicketstuff.rest.annotations.parameters.MatrixParam;
+import org.wicketstuff.rest.annotations.parameters.PathParam;
+import org.wicketstuff.rest.annotations.parameters.RequestBody;
+import org.wicketstuff.rest.annotations.parameters.RequestParam;
+import org.wicketstuff.rest.resource.IRestMappings;
+import org.wicketstuff.rest.resource.routing.RouteOverlapAnalyzer;
+import org.wicketstuff.rest.resource.routing.RouteOverlapAnalyzer.Ambiguity;
+import org.wicketstuff.rest.resource.urlsegments.AbstractURLSegment;
+import org.wicketstuff.rest.resource.urlsegments.FixedURLSegment;
+import org.wicketstuff.rest.resource.urlsegments.ParamSegment;
+import org.wicketstuff.rest.utils.reflection.ParameterDeclaration;
+import org.wicketstuff.rest.utils.reflection.ParameterSource;
+import org.wicketstuff.rest.utils.reflection.ReflectionUtils;
+
+/**
+ * Annotation processor for the classes with methods annotated with
+ * {@link MethodMapping}. For every class it generates the table of its mapped
+ * methods (see {@link IRestMappings}), which is picked up at runtime in place
+ * of reflection. The table contains the URL segments of the mapped methods,
+ * already classified, and the declarations of their parameters, read from
+ * the source code. It calls directly the public methods of public classes
+ * and wraps what they throw in an
+ * {@link java.lang.reflect.InvocationTargetException}, as
+ * {@link java.lang.reflect.Method#invoke} does. The other mapped methods are
+ * still called with reflection, so that they fail with the same error as
+ * before.<br/>
+ * <br/>
+ * The processor also fails the build if two mapped methods of the same class
+ * are ambiguous (see {@link RouteOverlapAnalyzer}) or if a mapped URL is not
+ * valid.<br/>
+ * <br/>
+ * The processor runs automatically when this module is in the compile
+ * classpath. Tables are not generated for private, local and anonymous
+ * classes, or when a mapped method uses a type that the table can't access.
+ * 
+ * @author andrea del bene
+ * 
+ */
+@SupportedAnnotationTypes("org.wicketstuff.rest.annotations.MethodMapping")
+public class RestMappingsProcessor extends AbstractProcessor {
+	/** Sources of the parameters, by name of their annotation. */
+	private static final Map<String, ParameterSource> PARAMETER_SOURCES = new HashMap<String, ParameterSource>();
+
+	static {
+		PARAMETER_SOURCES.put(RequestBody.class.getName(), ParameterSource.REQUEST_BODY);
+		PARAMETER_SOURCES.put(PathParam.class.getName(), ParameterSource.PATH);
+		PARAMETER_SOURCES.put(RequestParam.class.getName(), ParameterSource.REQUEST_PARAM);
+		PARAMETER_SOURCES.put(HeaderParam.class.getName(), ParameterSource.HEADER);
+		PARAMETER_SOURCES.put(CookieParam.class.getName(), ParameterSource.COOKIE);
+		PARAMETER_SOURCES.put(MatrixParam.class.getName(), ParameterSource.MATRIX);
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		Map<TypeElement, List<ExecutableElement>> resources = new LinkedHashMap<TypeElement, List<ExecutableElement>>();
+
+		for (Element element : roundEnv.getElementsAnnotatedWith(MethodMapping.class)) {
+			if (element.getKind() != ElementKind.METHOD)
+				continue;
+
+			TypeElement resourceType = (TypeElement) element.getEnclosingElement();
+			List<ExecutableElement> mappedMethods = resources.get(resourceType);
+
+			if (mappedMethods == null) {
+				mappedMethods = new ArrayList<ExecutableElement>();
+				resources.put(resourceType, mappedMethods);
+			}
+
+			mappedMethods.add((ExecutableElement) element);
+		}
+
+		for (Map.Entry<TypeElement, List<ExecutableElement>> entry : resources.entrySet()) {
+			TypeElement resourceType = entry.getKey();
+			List<ExecutableElement> mappedMethods = entry.getValue();
+
+			if (checkMappings(mappedMethods) && canGenerateMappings(resourceType, mappedMethods))
+				generateMappings(resourceType, mappedMethods);
+		}
+
+		// other processors can still process the annotation
+		return false;
+	}
+
+	/**
+	 * Checks the mapped URLs of a class, reporting an error for every invalid
+	 * URL and every pair of ambiguous methods.
+	 * 
+	 * @return true if no error has been reported
+	 */
+	private boolean checkMappings(List<ExecutableElement> mappedMethods) {
+		RouteOverlapAnalyzer<ExecutableElement> analyzer = new RouteOverlapAnalyzer<ExecutableElement>();
+		boolean valid = true;
+
+		for (ExecutableElement method : mappedMethods) {
+			MethodMapping mapping = method.getAnnotation(MethodMapping.class);
+
+			try {
+				analyzer.addRoute(mapping.httpMethod(), mapping.value(), method);
+			} catch (RuntimeException e) {
+				printError("Invalid mapped URL '" + mapping.value() + "': " + e.getMessage(),
+						method);
+				valid = false;
+			}
+		}
+
+		if (!valid)
+			return false;
+
+		List<Ambiguity<ExecutableElement>> ambiguities;
+
+		try {
+			ambiguities = analyzer.findAmbiguities();
+		} catch (RuntimeException e) {
+			// invalid regular expressions are compiled when URLs are compared
+			printError("Invalid mapped URL: " + e.getMessage(), mappedMethods.get(0));
+			return false;
+		}
+
+		for (Ambiguity<ExecutableElement> ambiguity : ambiguities) {
+			ExecutableElement first = ambiguity.getFirst();
+			ExecutableElement second = ambiguity.getSecond();
+
+			printError("Mapped methods '" + first.getSimpleName() + "' and '"
+					+ second.getSimpleName() + "' are ambiguous: both match requests like '"
+					+ ambiguity.getExample() + "' with the same score.", second);
+		}
+
+		return ambiguities.isEmpty();
+	}
+
+	/**
+	 * Checks if the table generated for a class can access the class and the
+	 * types used by its mapped methods.
+	 */
+	private boolean canGenerateMappings(TypeElement resourceType,
+			List<ExecutableElement> mappedMethods) {
+		if (!isAccessible(resourceType))
+			return false;
+
+		for (ExecutableElement method : mappedMethods) {
+			for (VariableElement parameter : method.getParameters()) {
+				if (!isAccessible(erasure(parameter.asType())))
+					return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Checks if a type can be used by a class in the same package.
+	 */
+	private boolean isAccessible(TypeMirror type) {
+		if (type.getKind() == TypeKind.ARRAY)
+			return isAccessible(((ArrayType) type).getComponentType());
+
+		if (type.getKind() != TypeKind.DECLARED)
+			return type.getKind().isPrimitive();
+
+		return isAccessible((TypeElement) ((DeclaredType) type).asElement());
+	}
+
+	/**
+	 * Checks if a class can be used by a class in the same package.
+	 */
+	private boolean isAccessible(TypeElement type) {
+		if (type.getNestingKind() == NestingKind.LOCAL
+				|| type.getNestingKind() == NestingKind.ANONYMOUS)
+			return false;
+
+		for (Element element = type; element instanceof TypeElement; element = element
+				.getEnclosingElement()) {
+			if (element.getModifiers().contains(Modifier.PRIVATE))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Writes the source of the table of a class.
+	 */
+	private void generateMappings(TypeElement resourceType, List<ExecutableElement> mappedMethods) {
+		PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(
+				resourceType);
+		String packageName = packageElement.getQualifiedName().toString();
+		String binaryName = processingEnv.getElementUtils().getBinaryName(resourceType)
+				.toString();
+		String simpleName = (packageName.isEmpty() ? binaryName : binaryName
+				.substring(packageName.length() + 1)) + IRestMappings.CLASS_SUFFIX;
+		String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "."
+				+ simpleName;
+		String resourceName = erasure(resourceType.asType()).toString();
+
+		try {
+			Writer writer = processingEnv.getFiler()
+					.createSourceFile(qualifiedName, resourceType).openWriter();
+
+			try {
+				writeMappings(writer, packageName, simpleName, resourceName, resourceType,
+						mappedMethods);
+			} finally {
+				writer.close();
+			}
+		} catch (IOException e) {
+			printError("Error generating " + qualifiedName + ": " + e.getMessage(),
+					resourceType);
+		}
+	}
+
+	private void writeMappings(Writer writer, String packageName, String simpleName,
+			String resourceName, TypeElement resourceType, List<ExecutableElement> mappedMethods)
+			throws IOException {
+		if (!packageName.isEmpty())
+			writer.write("package " + packageName + ";\n\n");
+
+		writer.write("/**\n * Mapped methods of {@link " + resourceName
+				+ "}, generated by " + getClass().getName() + ".\n */\n");
+		writer.write("@SuppressWarnings(\"all\")\n");
+		writer.write("public final class " + simpleName
+				+ " implements org.wicketstuff.rest.resource.IRestMappings {\n");
+
+		// the table
+		writer.write("\tpublic java.util.List<org.wicketstuff.rest.resource.MethodMappingInfo> loadMappedMethods() {\n");
+		writer.write("\t\tjava.util.List<org.wicketstuff.rest.resource.MethodMappingInfo> mappedMethods = "
+				+ "new java.util.ArrayList<org.wicketstuff.rest.resource.MethodMappingInfo>("
+				+ mappedMethods.size() + ");\n\n");
+
+		for (int i = 0; i < mappedMethods.size(); i++) {
+			ExecutableElement method = mappedMethods.get(i);
+			MethodMapping mapping = method.getAnnotation(MethodMapping.class);
+			boolean direct = isDirectlyInvoked(method, resourceType);
+
+			writer.write("\t\tmappedMethods.add(new org.wicketstuff.rest.resource.MethodMappingInfo(\n");
+			writer.write("\t\t\t\torg.wicketstuff.rest.utils.http.HttpMethod."
+					+ mapping.httpMethod().name() + ",\n");
+			writer.write("\t\t\t\t" + segmentsLiteral(mapping.value()) + ",\n");
+			writer.write("\t\t\t\t" + literal(mapping.consumes()) + ", "
+					+ arrayLiteral(mapping.produces()) + ", " + rolesLiteral(method) + ",\n");
+			writer.write("\t\t\t\tmethod(" + literal(method.getSimpleName().toString()));
+
+			for (VariableElement parameter : method.getParameters()) {
+				writer.write(", " + erasure(parameter.asType()) + ".class");
+			}
+
+			writer.write("), " + (direct ? "new Invoker(" + i + ")" : "null") + ",\n");
+			writer.write("\t\t\t\t" + parametersLiteral(method) + "));\n");
+		}
+
+		writer.write("\n\t\treturn mappedMethods;\n\t}\n\n");
+
+		writer.write("\tpublic boolean isUsingAuthorizeInvocation() {\n");
+		writer.write("\t\treturn " + isUsingAuthorizeInvocation(resourceType) + ";\n\t}\n\n");
+
+		writer.write("\tprivate static java.lang.reflect.Method method(String name, Class<?>... parameterTypes) {\n");
+		writer.write("\t\ttry {\n");
+		writer.write("\t\t\treturn " + resourceName
+				+ ".class.getDeclaredMethod(name, parameterTypes);\n");
+		writer.write("\t\t} catch (NoSuchMethodException e) {\n");
+		writer.write("\t\t\tthrow new IllegalStateException(\"Mapped method '\" + name\n");
+		writer.write("\t\t\t\t\t+ \"' not found, " + simpleName + " must be generated again.\", e);\n");
+		writer.write("\t\t}\n\t}\n\n");
+
+		// the dispatcher
+		writer.write("\tprivate static final class Invoker implements org.wicketstuff.rest.utils.reflection.IMethodInvoker {\n");
+		writer.write("\t\tprivate final int index;\n\n");
+		writer.write("\t\tInvoker(int index) {\n\t\t\tthis.index = index;\n\t\t}\n\n");
+		writer.write("\t\tpublic Object invoke(Object target, Object[] arguments) throws Exception {\n");
+		writer.write("\t\t\ttry {\n");
+		writer.write("\t\t\t\tswitch (index) {\n");
+
+		for (int i = 0; i < mappedMethods.size(); i++) {
+			ExecutableElement method = mappedMethods.get(i);
+
+			if (!isDirectlyInvoked(method, resourceType))
+				continue;
+
+			writer.write("\t\t\t\tcase " + i + ":\n\t\t\t\t\t");
+
+			boolean isVoid = method.getReturnType().getKind() == TypeKind.VOID;
+			String invocation = invocation(method, resourceName);
+
+			if (isVoid) {
+				writer.write(invocation + ";\n\t\t\t\t\treturn null;\n");
+			} else {
+				writer.write("return " + invocation + ";\n");
+			}
+		}
+
+		// what the method throws is wrapped as Method#invoke does, so that
+		// the caller handles it in the same way for both the invokers
+		writer.write("\t\t\t\t}\n");
+		writer.write("\t\t\t} catch (Throwable t) {\n");
+		writer.write("\t\t\t\tthrow new java.lang.reflect.InvocationTargetException(t);\n");
+		writer.write("\t\t\t}\n\n");
+		writer.write("\t\t\tthrow new IllegalStateException(\"No mapped method with index \" + index);\n");
+		writer.write("\t\t}\n\t}\n}\n");
+	}
+
+	/**
+	 * Builds the segments of a mapped URL, classifying them at build time so
+	 * that the table doesn't need to parse them again.
+	 */
+	private String segmentsLiteral(String urlPath) {
+		StringBuilder builder = new StringBuilder(
+				"new org.wicketstuff.rest.resource.urlsegments.AbstractURLSegment[] {");
+		String factory = "org.wicketstuff.rest.resource.urlsegments.AbstractURLSegment.";
+		boolean first = true;
+
+		for (String segment : urlPath.split("/")) {
+			if (segment.isEmpty())
+				continue;
+
+			AbstractURLSegment urlSegment = AbstractURLSegment.newSegment(segment);
+
+			builder.append(first ? " " : ", ").append(factory);
+			first = false;
+
+			if (urlSegment instanceof FixedURLSegment) {
+				builder.append("newFixedSegment(").append(literal(segment)).append(')');
+			} else if (urlSegment instanceof ParamSegment) {
+				ParamSegment paramSegment = (ParamSegment) urlSegment;
+				String regExp = paramSegment.getRegExp();
+
+				builder.append("newParamSegment(").append(literal(segment)).append(", ")
+						.append(literal(paramSegment.getParamName())).append(", ")
+						.append(regExp == null ? "null" : literal(regExp)).append(')');
+			} else {
+				builder.append("newSegment(").append(literal(segment)).append(')');
+			}
+		}
+
+		return builder.append(" }").toString();
+	}
+
+	/**
+	 * Builds the roles declared for a mapped method with
+	 * {@link AuthorizeInvocation}.
+	 */
+	private String rolesLiteral(ExecutableElement method) {
+		AuthorizeInvocation authorizeInvocation = method.getAnnotation(AuthorizeInvocation.class);
+
+		return arrayLiteral(authorizeInvocation != null ? authorizeInvocation.value()
+				: new String[0]);
+	}
+
+	/**
+	 * Builds the declarations of the parameters of a mapped method (see
+	 * {@link ParameterDeclaration}), reading the annotations marked with
+	 * {@link AnnotatedParam} like {@link ReflectionUtils#getAnnotationParam}
+	 * does at runtime. Parameters which are not annotated are declared as
+	 * null.
+	 */
+	private String parametersLiteral(ExecutableElement method) {
+		StringBuilder builder = new StringBuilder(
+				"new org.wicketstuff.rest.utils.reflection.ParameterDeclaration[] {");
+		List<? extends VariableElement> parameters = method.getParameters();
+
+		for (int i = 0; i < parameters.size(); i++) {
+			AnnotationMirror annotation = getAnnotationParam(parameters.get(i));
+
+			builder.append(i == 0 ? " " : ", ").append(
+					annotation == null ? "null" : declarationLiteral(annotation));
+		}
+
+		return builder.append(" }").toString();
+	}
+
+	/**
+	 * Returns the annotation of a parameter marked with {@link AnnotatedParam},
+	 * or null if there is no such an annotation.
+	 */
+	private AnnotationMirror getAnnotationParam(VariableElement parameter) {
+		for (AnnotationMirror annotation : parameter.getAnnotationMirrors()) {
+			if (annotation.getAnnotationType().asElement().getAnnotation(AnnotatedParam.class) != null)
+				return annotation;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Builds the declaration of a parameter from its annotation, with the same
+	 * values {@link ParameterDeclaration#forAnnotation} reads at runtime.
+	 */
+	private String declarationLiteral(AnnotationMirror annotation) {
+		Map<String, Object> values = new HashMap<String, Object>();
+
+		for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : processingEnv
+				.getElementUtils().getElementValuesWithDefaults(annotation).entrySet()) {
+			values.put(entry.getKey().getSimpleName().toString(), entry.getValue().getValue());
+		}
+
+		String annotationName = ((TypeElement) annotation.getAnnotationType().asElement())
+				.getQualifiedName().toString();
+		ParameterSource source = PARAMETER_SOURCES.get(annotationName);
+		String name = null;
+		int segmentIndex = -1;
+
+		if (source == null) {
+			source = ParameterSource.UNKNOWN;
+		} else if (source == ParameterSource.MATRIX) {
+			name = (String) values.get("parameterName");
+			segmentIndex = (Integer) values.get("segmentIndex");
+		} else if (source != ParameterSource.REQUEST_BODY) {
+			name = (String) values.get("value");
+		}
+
+		Object required = values.get("required");
+		Object defaultValue = values.get("defaultValue");
+		Object maxSize = values.get("maxSize");
+
+		return "new org.wicketstuff.rest.utils.reflection.ParameterDeclaration("
+				+ "org.wicketstuff.rest.utils.reflection.ParameterSource." + source.name() + ", "
+				+ (name == null ? "null" : literal(name)) + ", " + segmentIndex + ", "
+				+ (required instanceof Boolean ? required : true) + ", "
+				+ literal(defaultValue instanceof String ? (String) defaultValue : "") + ", "
+				+ (maxSize instanceof Long ? maxSize : -1L) + "L)";
+	}
+
+	/**
+	 * Checks if a mapped method is called directly by the generated table. Only
+	 * public methods of public classes are, because the resource can't invoke
+	 * the other methods with reflection either.
+	 */
+	private boolean isDirectlyInvoked(ExecutableElement method, TypeElement resourceType) {
+		return method.getModifiers().contains(Modifier.PUBLIC)
+				&& resourceType.getModifiers().contains(Modifier.PUBLIC);
+	}
+
+	/**
+	 * Builds the direct call of a mapped method, with the arguments cast to
+	 * the types of its parameters.
+	 */
+	private String invocation(ExecutableElement method, String resourceName) {
+		StringBuilder builder = new StringBuilder();
+
+		if (method.getModifiers().contains(Modifier.STATIC)) {
+			builder.append(resourceName);
+		} else {
+			builder.append("((").append(resourceName).append(") target)");
+		}
+
+		builder.append('.').append(method.getSimpleName()).append('(');
+
+		List<? extends VariableElement> parameters = method.getParameters();
+
+		for (int i = 0; i < parameters.size(); i++) {
+			TypeMirror type = erasure(parameters.get(i).asType());
+
+			if (i > 0)
+				builder.append(", ");
+
+			builder.append('(').append(boxedName(type)).append(") arguments[").append(i)
+					.append(']');
+		}
+
+		return builder.append(')').toString();
+	}
+
+	/**
+	 * Returns the name used to cast an argument to the given type: the
+	 * wrapper class for primitive types, the type itself otherwise.
+	 */
+	private String boxedName(TypeMirror type) {
+		if (type.getKind().isPrimitive())
+			return processingEnv.getTypeUtils()
+					.boxedClass(processingEnv.getTypeUtils().getPrimitiveType(type.getKind()))
+					.getQualifiedName().toString();
+
+		return type.toString();
+	}
+
+	/**
+	 * Checks if a method of the class is annotated with
+	 * {@link AuthorizeInvocation}.
+	 */
+	private boolean isUsingAuthorizeInvocation(TypeElement resourceType) {
+		for (Element element : resourceType.getEnclosedElements()) {
+			if (element.getKind() == ElementKind.METHOD
+					&& element.getAnnotation(AuthorizeInvocation.class) != null)
+				return true;
+		}
+
+		return false;
+	}
+
+	private TypeMirror erasure(TypeMirror type) {
+		return processingEnv.getTypeUtils().erasure(type);
+	}
+
+	private void printError(String message, Element element) {
+		processingEnv.getMessager().printMessage(Kind.ERROR, message, element);
+	}
+
+	/**
+	 * Returns the Java source of an array of strings.
+	 * 
+	 * @param values
+	 *            the strings.
+	 * @return the array creation expression
+	 */
+	static String arrayLiteral(String[] values) {
+		StringBuilder builder = new StringBuilder("new String[] {");
+
+		for (int i = 0; i < values.length; i++) {
+			builder.append(i == 0 ? " " : ", ").append(literal(values[i]));
+		}
+
+		return builder.append(" }").toString();
+	}
+
+	/**
+	 * Returns the Java literal of a string.
+	 */
+	static String literal(String value) {
+		StringBuilder builder = new StringBuilder("\"");
+
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+
+			switch (c) {
+			case '"':
+				builder.append("\\\"");
+				break;
+			case '\\':
+				builder.append("\\\\");
+				break;
+			case '\n':
+				builder.append("\\n");
+				break;
+			case '\r':
+				builder.append("\\r");
+				break;
+			case '\t':
+				builder.append("\\t");
+				break;
+			default:
+				if (c < 0x20 || c > 0x7e) {
+					builder.append(String.format("\\u%04x", (int) c));
+				} else {
+					builder.append(c);
+				}
+			}
+		}
+
+		return builder.append('"').toString();
+	}
+}
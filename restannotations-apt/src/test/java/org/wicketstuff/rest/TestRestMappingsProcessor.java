@@ -0,0 +1,368 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.wicket.authroles.authorization.strategies.role.Roles;
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.request.resource.IResource;
+import org.apache.wicket.request.resource.ResourceReference;
+import org.apache.wicket.util.string.StringValue;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.wicketstuff.rest.annotations.MethodMapping;
+import org.wicketstuff.rest.apt.RestMappingsProcessor;
+import org.wicketstuff.rest.resource.IRestMappings;
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.resource.MethodMappingTable;
+import org.wicketstuff.rest.resource.urlsegments.ParamSegment;
+import org.wicketstuff.rest.utils.reflection.IMethodInvoker;
+import org.wicketstuff.rest.utils.reflection.MethodParameter;
+import org.wicketstuff.rest.utils.reflection.ReflectiveMethodInvoker;
+
+public class TestRestMappingsProcessor extends Assert {
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<JavaFileObject>();
+
+	@Test
+	public void testGeneratedMappings() throws Exception {
+		boolean compiled = compile("sample/ItemsResource.java",
+				"package sample;",
+				"import org.wicketstuff.rest.annotations.MethodMapping;",
+				"import org.wicketstuff.rest.utils.http.HttpMethod;",
+				"public class ItemsResource {",
+				"  @MethodMapping(\"/items/{id}\")",
+				"  public String getItem(int id) { return \"item\" + id; }",
+				"  @MethodMapping(value = \"/items\", httpMethod = HttpMethod.POST)",
+				"  void addItems(String[] names) { }",
+				"  @MethodMapping(\"/codes/{code:\\\\d+}\")",
+				"  private String getCode(String code) { return code; }",
+				"}");
+
+		assertTrue(diagnostics.getDiagnostics().toString(), compiled);
+
+		ClassLoader classLoader = new URLClassLoader(new URL[] { folder.getRoot().toURI()
+				.toURL() }, getClass().getClassLoader());
+		Class<?> resourceClass = classLoader.loadClass("sample.ItemsResource");
+
+		assertTrue(IRestMappings.class.isAssignableFrom(classLoader
+				.loadClass("sample.ItemsResource" + IRestMappings.CLASS_SUFFIX)));
+
+		List<MethodMappingInfo> mappedMethods = MethodMappingTable.forClass(resourceClass)
+				.getMappedMethods();
+
+		assertEquals(3, mappedMethods.size());
+
+		MethodMappingInfo getItem = mappedMethods.get(0);
+
+		assertEquals("getItem", getItem.getMethod().getName());
+		assertEquals("/items/{id}", getItem.getUrlPath());
+		assertFalse(getItem.getInvoker() instanceof ReflectiveMethodInvoker);
+		assertEquals("item12",
+				getItem.getInvoker().invoke(resourceClass.newInstance(), new Object[] { 12 }));
+
+		// methods that are not public are called with reflection, which
+		// rejects them
+		for (MethodMappingInfo mappedMethod : mappedMethods.subList(1, 3)) {
+			assertTrue(mappedMethod.getInvoker() instanceof ReflectiveMethodInvoker);
+
+			try {
+				mappedMethod.getInvoker().invoke(resourceClass.newInstance(),
+						new Object[] { null });
+				fail("Method '" + mappedMethod.getMethod().getName() + "' must not be invoked");
+			} catch (IllegalAccessException e) {
+				// expected
+			}
+		}
+
+		assertEquals("/codes/{code:\\d+}", mappedMethods.get(2).getUrlPath());
+	}
+
+	@Test
+	public void testGeneratedInvokerErrors() throws Exception {
+		boolean compiled = compile("sample/FailingResource.java",
+				"package sample;",
+				"import org.wicketstuff.rest.annotations.MethodMapping;",
+				"import org.wicketstuff.rest.contenthandling.RestMimeTypes;",
+				"import org.wicketstuff.rest.contenthandling.serialdeserial.TextualObjectSerialDeserial;",
+				"import org.wicketstuff.rest.resource.AbstractRestResource;",
+				"public class FailingResource extends AbstractRestResource<TextualObjectSerialDeserial> {",
+				"  public FailingResource() {",
+				"    super(new TextualObjectSerialDeserial(\"UTF-8\", RestMimeTypes.TEXT_PLAIN) {",
+				"      public String objectToString(Object target, String mimeType) { return \"\" + target; }",
+				"      public <T> T stringToObject(String source, Class<T> type, String mimeType) { return null; }",
+				"    });",
+				"  }",
+				"  @MethodMapping(value = \"/fail\", consumes = RestMimeTypes.TEXT_PLAIN,"
+						+ " produces = RestMimeTypes.TEXT_PLAIN)",
+				"  public String fail() { throw new AssertionError(\"boom\"); }",
+				"}");
+
+		assertTrue(diagnostics.getDiagnostics().toString(), compiled);
+
+		ClassLoader classLoader = new URLClassLoader(new URL[] { folder.getRoot().toURI()
+				.toURL() }, getClass().getClassLoader());
+		final IResource resource = (IResource) classLoader.loadClass("sample.FailingResource")
+				.newInstance();
+		MethodMappingInfo fail = MethodMappingTable.forClass(resource.getClass())
+				.getMappedMethods().get(0);
+
+		assertFalse(fail.getInvoker() instanceof ReflectiveMethodInvoker);
+
+		// the generated invoker fails like the reflective one...
+		Throwable generated = invocationError(fail.getInvoker(), resource);
+		Throwable reflective = invocationError(new ReflectiveMethodInvoker(fail.getMethod()),
+				resource);
+
+		assertTrue(generated instanceof InvocationTargetException);
+		assertTrue(reflective instanceof InvocationTargetException);
+		assertEquals(reflective.getCause().getClass(), generated.getCause().getClass());
+		assertEquals(reflective.getCause().getMessage(), generated.getCause().getMessage());
+
+		// ...hence even an Error is answered with 500
+		WicketTester tester = new WicketTester(new MockApplication() {
+			@Override
+			protected void init() {
+				super.init();
+
+				mountResource("/api", new ResourceReference("failingResource") {
+					@Override
+					public IResource getResource() {
+						return resource;
+					}
+				});
+			}
+		});
+
+		try {
+			tester.getRequest().setMethod("GET");
+			tester.executeUrl("./api/fail");
+			fail("The request must fail");
+		} catch (RuntimeException e) {
+			// the invocation error is rethrown after the status has been set
+			assertSame(generated.getCause().getClass(), e.getCause().getCause().getClass());
+			assertEquals(500, tester.getResponse().getStatus());
+		} finally {
+			tester.destroy();
+		}
+	}
+
+	@Test
+	public void testGeneratedDeclarations() throws Exception {
+		boolean compiled = compile("sample/SearchResource.java",
+				"package sample;",
+				"import org.wicketstuff.rest.annotations.AuthorizeInvocation;",
+				"import org.wicketstuff.rest.annotations.MethodMapping;",
+				"import org.wicketstuff.rest.annotations.parameters.*;",
+				"import org.wicketstuff.rest.utils.http.HttpMethod;",
+				"public class SearchResource {",
+				"  @MethodMapping(\"/search/{kind:[a-z]+}/{from}-{to}\")",
+				"  @AuthorizeInvocation(\"ADMIN\")",
+				"  public String search(String kind, @RequestParam(value = \"q\", required = false,"
+						+ " defaultValue = \"all\") String query, @MatrixParam(segmentIndex = 1,"
+						+ " parameterName = \"page\") int page, @HeaderParam(\"X-Token\") String token,"
+						+ " int from) { return kind; }",
+				"  @MethodMapping(value = \"/search\", httpMethod = HttpMethod.POST)",
+				"  public void upload(@RequestBody(maxSize = 10) String body, @CookieParam(\"id\") String id,"
+						+ " @PathParam(\"x\") String x) { }",
+				"}");
+
+		assertTrue(diagnostics.getDiagnostics().toString(), compiled);
+
+		ClassLoader classLoader = new URLClassLoader(new URL[] { folder.getRoot().toURI()
+				.toURL() }, getClass().getClassLoader());
+		Class<?> resourceClass = classLoader.loadClass("sample.SearchResource");
+		List<MethodMappingInfo> mappedMethods = MethodMappingTable.forClass(resourceClass)
+				.getMappedMethods();
+
+		assertEquals(2, mappedMethods.size());
+
+		for (MethodMappingInfo generated : mappedMethods) {
+			Method method = generated.getMethod();
+			MethodMappingInfo reflective = new MethodMappingInfo(
+					method.getAnnotation(MethodMapping.class), method);
+
+			assertEquals(reflective.getUrlPath(), generated.getUrlPath());
+			assertEquals(reflective.getRoles(), generated.getRoles());
+			assertEquals(reflective.getPathParameterNames(), generated.getPathParameterNames());
+
+			for (int i = 0; i < reflective.getSegmentsCount(); i++) {
+				assertEquals(reflective.getSegments().get(i).getClass(), generated.getSegments()
+						.get(i).getClass());
+			}
+
+			for (int i = 0; i < method.getParameterTypes().length; i++) {
+				MethodParameter expected = reflective.getMethodParameters().get(i);
+				MethodParameter actual = generated.getMethodParameters().get(i);
+
+				assertEquals(expected.getSource(), actual.getSource());
+				assertEquals(expected.getName(), actual.getName());
+				assertEquals(expected.getSegmentIndex(), actual.getSegmentIndex());
+				assertEquals(expected.isRequired(), actual.isRequired());
+				assertEquals(expected.getDeaultValue(), actual.getDeaultValue());
+				assertEquals(expected.getMaxSize(), actual.getMaxSize());
+			}
+		}
+
+		ParamSegment kind = (ParamSegment) mappedMethods.get(0).getSegments().get(1);
+
+		assertEquals("kind", kind.getParamName());
+		assertEquals("[a-z]+", kind.getRegExp());
+		assertEquals("from", mappedMethods.get(0).getMethodParameters().get(4).getName());
+		assertEquals(10L, mappedMethods.get(1).getMethodParameters().get(0).getMaxSize());
+	}
+
+	@Test
+	public void testAmbiguousMappings() throws Exception {
+		boolean compiled = compile("sample/AmbiguousResource.java",
+				"package sample;",
+				"import org.wicketstuff.rest.annotations.MethodMapping;",
+				"public class AmbiguousResource {",
+				"  @MethodMapping(\"/items/{id}\")",
+				"  public void getItem(String id) { }",
+				"  @MethodMapping(\"/{kind}/detail\")",
+				"  public void getDetail(String kind) { }",
+				"}");
+
+		assertFalse(compiled);
+		assertTrue(diagnostics.getDiagnostics().get(0).getMessage(null)
+				.contains("'getItem' and 'getDetail' are ambiguous"));
+	}
+
+	@Test
+	public void testRenamedParametersAmbiguous() throws Exception {
+		boolean compiled = compile("sample/RenamedResource.java",
+				"package sample;",
+				"import org.wicketstuff.rest.annotations.MethodMapping;",
+				"public class RenamedResource {",
+				"  @MethodMapping(\"/items/{id:\\\\d+}\")",
+				"  public void getItem(int id) { }",
+				"  @MethodMapping(\"/items/{code:\\\\d+}\")",
+				"  public void getCode(int code) { }",
+				"}");
+
+		assertFalse(compiled);
+		assertTrue(diagnostics.getDiagnostics().get(0).getMessage(null)
+				.contains("'getItem' and 'getCode' are ambiguous"));
+	}
+
+	@Test
+	public void testShadowedOverlap() throws Exception {
+		// '/items/detail' wins over both methods on their only common URL
+		boolean compiled = compile("sample/ShadowedResource.java",
+				"package sample;",
+				"import org.wicketstuff.rest.annotations.MethodMapping;",
+				"public class ShadowedResource {",
+				"  @MethodMapping(\"/items/{id}\")",
+				"  public void getItem(String id) { }",
+				"  @MethodMapping(\"/{kind}/detail\")",
+				"  public void getDetail(String kind) { }",
+				"  @MethodMapping(\"/items/detail\")",
+				"  public void getItemsDetail() { }",
+				"}");
+
+		assertTrue(diagnostics.getDiagnostics().toString(), compiled);
+	}
+
+	private Throwable invocationError(IMethodInvoker invoker, Object target) {
+		try {
+			invoker.invoke(target, new Object[0]);
+		} catch (Throwable t) {
+			return t;
+		}
+
+		fail("Method must fail");
+		return null;
+	}
+
+	private boolean compile(String path, String... lines) throws IOException {
+		File source = new File(folder.getRoot(), path);
+		Writer writer;
+
+		source.getParentFile().mkdirs();
+		writer = new OutputStreamWriter(new FileOutputStream(source), "UTF-8");
+
+		try {
+			for (String line : lines) {
+				writer.write(line);
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
+		}
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null,
+				null);
+		List<String> options = Arrays.asList("-d", folder.getRoot().getPath(), "-classpath",
+				classPath(MethodMapping.class, StringValue.class, Roles.class,
+						PageParameters.class, IResource.class, HttpServletRequest.class));
+
+		try {
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager,
+					diagnostics, options, null, fileManager.getJavaFileObjects(source));
+
+			task.setProcessors(Arrays.asList(new RestMappingsProcessor()));
+			return task.call();
+		} finally {
+			fileManager.close();
+		}
+	}
+
+	private String classPath(Class<?>... classes) throws IOException {
+		StringBuilder builder = new StringBuilder();
+
+		for (Class<?> clazz : classes) {
+			if (builder.length() > 0)
+				builder.append(File.pathSeparatorChar);
+
+			try {
+				builder.append(new File(clazz.getProtectionDomain().getCodeSource()
+						.getLocation().toURI()).getPath());
+			} catch (Exception e) {
+				throw new IOException(e.toString());
+			}
+		}
+
+		return builder.toString();
+	}
+}
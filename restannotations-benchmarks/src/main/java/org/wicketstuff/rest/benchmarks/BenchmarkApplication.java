@@ -0,0 +1,69 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.benchmarks;
+
+import org.apache.wicket.Page;
+import org.apache.wicket.markup.html.WebPage;
+import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.request.resource.IResource;
+import org.apache.wicket.request.resource.ResourceReference;
+import org.wicketstuff.rest.resource.RestRequestMapper;
+
+/**
+ * Application mounting the {@link BenchmarkResource} at path '/bench' and, with
+ * a {@link RestRequestMapper}, a stateless instance at path '/rest'.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class BenchmarkApplication extends WebApplication {
+	private final RestRequestMapper restRequestMapper = new RestRequestMapper();
+
+	@Override
+	public Class<? extends Page> getHomePage() {
+		return WebPage.class;
+	}
+
+	@Override
+	public void init() {
+		super.init();
+
+		mountResource("/bench", new ResourceReference("benchmarkResource") {
+			BenchmarkResource resource = new BenchmarkResource();
+
+			@Override
+			public IResource getResource() {
+				return resource;
+			}
+		});
+
+		BenchmarkResource statelessResource = new BenchmarkResource();
+
+		statelessResource.setStateless(true);
+		restRequestMapper.mount("/rest", statelessResource);
+		mount(restRequestMapper);
+	}
+
+	/**
+	 * Gets the mapper of the stateless resource mounted at path '/rest'.
+	 * 
+	 * @return the REST request mapper
+	 */
+	public RestRequestMapper getRestRequestMapper() {
+		return restRequestMapper;
+	}
+}
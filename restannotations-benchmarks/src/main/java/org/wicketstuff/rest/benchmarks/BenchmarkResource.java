@@ -0,0 +1,66 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.benchmarks;
+
+import java.util.List;
+
+import org.wicketstuff.rest.annotations.MethodMapping;
+import org.wicketstuff.rest.annotations.parameters.HeaderParam;
+import org.wicketstuff.rest.annotations.parameters.RequestBody;
+import org.wicketstuff.rest.annotations.parameters.RequestParam;
+import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.resource.gson.GsonRestResource;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+
+/**
+ * Resource used to benchmark the whole request processing: routing,
+ * parameter binding, method invocation and serialization.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class BenchmarkResource extends GsonRestResource {
+	private final List<Item> items = Item.createItems(100);
+
+	@MethodMapping("/items/{id}")
+	public Item getItem(int id) {
+		return items.get(id % items.size());
+	}
+
+	@MethodMapping("/items")
+	public List<Item> listItems(
+			@RequestParam(value = "limit", required = false, defaultValue = "100") int limit) {
+		return items.subList(0, Math.min(limit, items.size()));
+	}
+
+	@MethodMapping(value = "/items", httpMethod = HttpMethod.POST)
+	public Item createItem(@RequestBody Item item) {
+		return item;
+	}
+
+	@MethodMapping(value = "/items/{id}/price", produces = RestMimeTypes.TEXT_PLAIN)
+	public double getPrice(int id, @RequestParam("quantity") int quantity,
+			@HeaderParam("X-Discount") double discount) {
+		return getItem(id).getPrice() * quantity * (1 - discount);
+	}
+
+	@MethodMapping(value = "/items/{id}/tags/{tag}", httpMethod = HttpMethod.PUT,
+			produces = RestMimeTypes.TEXT_PLAIN)
+	public boolean addTag(int id, String tag) {
+		return true;
+	}
+}
@@ -0,0 +1,90 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.benchmarks;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.util.tester.WicketTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wicketstuff.rest.resource.AbstractRestResource;
+import org.wicketstuff.rest.utils.convert.ITextConverter;
+import org.wicketstuff.rest.utils.convert.TextConverters;
+
+/**
+ * Benchmarks the conversion of string values to method parameters, comparing
+ * the converters of the application with the built-in ones.
+ * 
+ * @author andrea del bene
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+	private WicketTester tester;
+	private ITextConverter intConverter;
+	private ITextConverter doubleConverter;
+	private String intValue = "123456";
+	private String doubleValue = "1234.56";
+
+	@Setup
+	public void setUp() {
+		// the converters of the application need a running application
+		tester = new WicketTester(new BenchmarkApplication());
+		intConverter = TextConverters.forType(int.class);
+		doubleConverter = TextConverters.forType(double.class);
+	}
+
+	@TearDown
+	public void tearDown() {
+		tester.destroy();
+	}
+
+	@Benchmark
+	public Object applicationConverterInt() {
+		return AbstractRestResource.toObject(int.class, intValue, Locale.US);
+	}
+
+	@Benchmark
+	public Object applicationConverterDouble() {
+		return AbstractRestResource.toObject(double.class, doubleValue, Locale.US);
+	}
+
+	@Benchmark
+	public Object builtInConverterInt() {
+		return intConverter.convert(intValue, Locale.US);
+	}
+
+	@Benchmark
+	public Object builtInConverterDouble() {
+		return doubleConverter.convert(doubleValue, Locale.US);
+	}
+}
@@ -0,0 +1,199 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.benchmarks;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.apache.wicket.protocol.http.WicketFilter;
+import org.apache.wicket.protocol.http.mock.MockHttpServletRequest;
+import org.apache.wicket.protocol.http.mock.MockHttpServletResponse;
+import org.apache.wicket.protocol.http.mock.MockHttpSession;
+import org.apache.wicket.protocol.http.mock.MockServletContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wicketstuff.rest.resource.RestFilter;
+
+/**
+ * Compares the servlet filters serving the same requests: the WicketFilter
+ * with the resource mounted with mountResource (benchmarks 'wicketFilter*'),
+ * the WicketFilter with the resource mounted with a RestRequestMapper
+ * ('wicketFilterRestMapper*') and the {@link RestFilter}, which serves the
+ * resource of the RestRequestMapper without a request cycle ('restFilter*').
+ * Every operation creates a new mock request and response.
+ * 
+ * @author andrea del bene
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark {
+	private static final String FILTER_PATH = "servlet";
+
+	private BenchmarkApplication application;
+	private MockServletContext servletContext;
+	private MockHttpSession session;
+	private WicketFilter wicketFilter;
+	private RestFilter restFilter;
+	private final FilterChain failingChain = new FilterChain() {
+		@Override
+		public void doFilter(ServletRequest request, ServletResponse response)
+				throws IOException, ServletException {
+			throw new IllegalStateException("Request not served by the filter");
+		}
+	};
+
+	@Setup
+	public void setUp() throws Exception {
+		application = new BenchmarkApplication();
+		servletContext = new MockServletContext(application, null);
+		session = new MockHttpSession(servletContext);
+		wicketFilter = new WicketFilter(application);
+		wicketFilter.init(false, new BenchmarkFilterConfig());
+		restFilter = new RestFilter(application, application.getRestRequestMapper(),
+				FILTER_PATH);
+
+		// check every benchmark once before measuring
+		checkResponse(wicketFilterGetItem());
+		checkResponse(wicketFilterGetPrice());
+		checkResponse(wicketFilterRestMapperGetItem());
+		checkResponse(wicketFilterRestMapperGetPrice());
+		checkResponse(restFilterGetItem());
+		checkResponse(restFilterGetPrice());
+	}
+
+	@TearDown
+	public void tearDown() {
+		restFilter.destroy();
+		wicketFilter.destroy();
+	}
+
+	@Benchmark
+	public MockHttpServletResponse wicketFilterGetItem() throws Exception {
+		return execute(wicketFilter, newRequest("bench/items/42"));
+	}
+
+	@Benchmark
+	public MockHttpServletResponse wicketFilterGetPrice() throws Exception {
+		return execute(wicketFilter, newPriceRequest("bench"));
+	}
+
+	@Benchmark
+	public MockHttpServletResponse wicketFilterRestMapperGetItem() throws Exception {
+		return execute(wicketFilter, newRequest("rest/items/42"));
+	}
+
+	@Benchmark
+	public MockHttpServletResponse wicketFilterRestMapperGetPrice() throws Exception {
+		return execute(wicketFilter, newPriceRequest("rest"));
+	}
+
+	@Benchmark
+	public MockHttpServletResponse restFilterGetItem() throws Exception {
+		return execute(restFilter, newRequest("rest/items/42"));
+	}
+
+	@Benchmark
+	public MockHttpServletResponse restFilterGetPrice() throws Exception {
+		return execute(restFilter, newPriceRequest("rest"));
+	}
+
+	private MockHttpServletRequest newRequest(String url) {
+		MockHttpServletRequest request = new MockHttpServletRequest(application, session,
+				servletContext);
+
+		request.setMethod("GET");
+		request.setURL(url);
+
+		return request;
+	}
+
+	private MockHttpServletRequest newPriceRequest(String mountPath) {
+		MockHttpServletRequest request = newRequest(mountPath + "/items/7/price?quantity=3");
+
+		request.addHeader("X-Discount", "0.15");
+
+		return request;
+	}
+
+	private MockHttpServletResponse execute(Filter filter,
+			MockHttpServletRequest request) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse(request);
+
+		filter.doFilter(request, response, failingChain);
+
+		return response;
+	}
+
+	private void checkResponse(MockHttpServletResponse response) {
+		int status = response.getStatus();
+		String document = response.getDocument();
+
+		if (status != 200 || document.isEmpty())
+			throw new IllegalStateException("Unexpected response with status " + status + ": "
+					+ document);
+	}
+
+	private class BenchmarkFilterConfig implements FilterConfig {
+		@Override
+		public String getFilterName() {
+			return "benchmark";
+		}
+
+		@Override
+		public ServletContext getServletContext() {
+			return servletContext;
+		}
+
+		@Override
+		public String getInitParameter(String name) {
+			if (WicketFilter.FILTER_MAPPING_PARAM.equals(name))
+				return "/" + FILTER_PATH + "/*";
+
+			return null;
+		}
+
+		@Override
+		public Enumeration<String> getInitParameterNames() {
+			return Collections.enumeration(Collections
+					.singletonList(WicketFilter.FILTER_MAPPING_PARAM));
+		}
+	}
+}
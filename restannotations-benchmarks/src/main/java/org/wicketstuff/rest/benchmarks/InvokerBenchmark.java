@@ -0,0 +1,87 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.resource.MethodMappingTable;
+import org.wicketstuff.rest.utils.reflection.IMethodInvoker;
+import org.wicketstuff.rest.utils.reflection.ReflectiveMethodInvoker;
+
+/**
+ * Benchmarks the invocation of a mapped method through the direct-call
+ * invoker generated by the annotation processor (see module
+ * restannotations-apt) against the {@link ReflectiveMethodInvoker} used when
+ * no table is generated.
+ * 
+ * @author andrea del bene
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InvokerBenchmark {
+	private BenchmarkResource resource;
+	private IMethodInvoker reflectiveInvoker;
+	private IMethodInvoker generatedInvoker;
+	private Object[] arguments;
+
+	@Setup
+	public void setUp() throws Exception {
+		Method method = BenchmarkResource.class.getMethod("getPrice", int.class, int.class,
+				double.class);
+
+		resource = new BenchmarkResource();
+		reflectiveInvoker = new ReflectiveMethodInvoker(method);
+		arguments = new Object[] { 7, 3, 0.15 };
+
+		for (MethodMappingInfo mappedMethod : MethodMappingTable.forClass(BenchmarkResource.class)
+				.getMappedMethods()) {
+			if (mappedMethod.getMethod().equals(method))
+				generatedInvoker = mappedMethod.getInvoker();
+		}
+
+		if (generatedInvoker == null || generatedInvoker instanceof ReflectiveMethodInvoker)
+			throw new IllegalStateException(
+					"The table of BenchmarkResource has not been generated at build time.");
+	}
+
+	@Benchmark
+	public Object reflectiveInvoker() throws Exception {
+		return reflectiveInvoker.invoke(resource, arguments);
+	}
+
+	@Benchmark
+	public Object generatedInvoker() throws Exception {
+		return generatedInvoker.invoke(resource, arguments);
+	}
+}
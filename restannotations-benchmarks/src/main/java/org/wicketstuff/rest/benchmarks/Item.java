@@ -0,0 +1,94 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Simple bean used as payload by the benchmarks.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class Item {
+	private int id;
+	private String name;
+	private double price;
+	private List<String> tags;
+
+	public Item() {
+	}
+
+	public Item(int id, String name, double price) {
+		this.id = id;
+		this.name = name;
+		this.price = price;
+		this.tags = new ArrayList<String>();
+		this.tags.add("tag" + (id % 10));
+		this.tags.add("category" + (id % 3));
+	}
+
+	/**
+	 * Creates a list of items with predictable content.
+	 * 
+	 * @param size
+	 *            the number of items.
+	 * @return the list of items
+	 */
+	public static List<Item> createItems(int size) {
+		List<Item> items = new ArrayList<Item>(size);
+
+		for (int i = 0; i < size; i++) {
+			items.add(new Item(i, "item number " + i, i * 1.5));
+		}
+
+		return items;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public void setId(int id) {
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public double getPrice() {
+		return price;
+	}
+
+	public void setPrice(double price) {
+		this.price = price;
+	}
+
+	public List<String> getTags() {
+		return tags;
+	}
+
+	public void setTags(List<String> tags) {
+		this.tags = tags;
+	}
+}
@@ -0,0 +1,122 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.util.tester.WicketTester;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wicketstuff.rest.utils.test.BufferedMockRequest;
+
+import com.google.gson.Gson;
+
+/**
+ * Benchmarks the whole respond() path of a resource (routing, parameter
+ * binding, conversion, invocation and serialization) running requests through
+ * a mock request cycle. The numbers include the overhead of
+ * {@link WicketTester}, hence they are meant to be compared with each other
+ * rather than with a real servlet container.
+ * 
+ * @author andrea del bene
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RespondBenchmark {
+	private WicketTester tester;
+	private String itemJson;
+
+	@Setup
+	public void setUp() {
+		tester = new WicketTester(new BenchmarkApplication());
+		itemJson = new Gson().toJson(new Item(1, "posted item", 10.5));
+
+		// check the mapped methods once before measuring
+		checkResponse(getItem());
+		checkResponse(listItems());
+		checkResponse(getPrice());
+		checkResponse(postItem());
+		checkResponse(putTag());
+	}
+
+	@TearDown
+	public void tearDown() {
+		tester.destroy();
+	}
+
+	@Benchmark
+	public String getItem() {
+		return execute("GET", "./bench/items/42");
+	}
+
+	@Benchmark
+	public String listItems() {
+		return execute("GET", "./bench/items?limit=20");
+	}
+
+	@Benchmark
+	public String getPrice() {
+		tester.getRequest().addHeader("X-Discount", "0.15");
+		return execute("GET", "./bench/items/7/price?quantity=3");
+	}
+
+	@Benchmark
+	public String putTag() {
+		return execute("PUT", "./bench/items/7/tags/fresh");
+	}
+
+	@Benchmark
+	public String postItem() {
+		BufferedMockRequest request = new BufferedMockRequest(tester.getApplication(),
+				tester.getHttpSession(), tester.getServletContext(), "POST");
+
+		request.setTextAsRequestBody(itemJson);
+		tester.setRequest(request);
+		tester.executeUrl("./bench/items");
+
+		return tester.getLastResponseAsString();
+	}
+
+	private String execute(String httpMethod, String url) {
+		tester.getRequest().setMethod(httpMethod);
+		tester.executeUrl(url);
+
+		return tester.getLastResponseAsString();
+	}
+
+	private void checkResponse(String response) {
+		int status = tester.getLastResponse().getStatus();
+
+		if (status != 200 || response.isEmpty())
+			throw new IllegalStateException("Unexpected response with status " + status + ": "
+					+ response);
+	}
+}
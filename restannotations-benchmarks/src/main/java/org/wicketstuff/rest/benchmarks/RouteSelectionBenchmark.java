@@ -0,0 +1,167 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.benchmarks;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wicketstuff.rest.annotations.MethodMapping;
+import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.resource.routing.RouteCache;
+import org.wicketstuff.rest.resource.routing.RouteCache.ResolvedRoute;
+import org.wicketstuff.rest.resource.routing.RouteTrie;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+
+/**
+ * Benchmarks the selection of the mapped method for a request with 10, 100
+ * and 1000 mapped URLs. Mappings are generated with a mix of fixed, parameter
+ * and regular expression segments so that several of them compete for the
+ * same request. Selection through the trie is compared with a lookup in a
+ * {@link RouteCache}, which also returns the path parameters.
+ * 
+ * @author andrea del bene
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteSelectionBenchmark {
+	/** URL templates, '#' is replaced with the index of the mapping. */
+	private static final String[] TEMPLATES = { "/resource#/{id}", "/resource#/{id}/items",
+			"/resource#/items/{itemId:\\d+}", "/api/{version}/resource#",
+			"/resource#/{id}/items/{itemId}/detail" };
+
+	@Param({ "10", "100", "1000" })
+	private int mappings;
+
+	private RouteTrie routeTrie;
+	private RouteCache routeCache;
+	private String[][] requests;
+	private int next;
+
+	@Setup
+	public void setUp() throws Exception {
+		Method method = RouteSelectionBenchmark.class.getDeclaredMethod("mappedMethod");
+		List<MethodMappingInfo> mappedMethods = new ArrayList<MethodMappingInfo>();
+
+		for (int i = 0; i < mappings; i++) {
+			String template = TEMPLATES[i % TEMPLATES.length];
+			String url = template.replace("#", String.valueOf(i / TEMPLATES.length));
+
+			mappedMethods.add(new MethodMappingInfo(new Mapping(url), method));
+		}
+
+		routeTrie = new RouteTrie(mappedMethods);
+		routeCache = new RouteCache(64);
+
+		int resources = Math.max(mappings / TEMPLATES.length, 1);
+		int last = resources - 1;
+
+		requests = new String[][] { { "resource0", "123" },
+				{ "resource" + last, "abc", "items" },
+				{ "resource" + (last / 2), "items", "456" },
+				{ "api", "v2", "resource" + last },
+				{ "resource" + last, "abc", "items", "789", "detail" },
+				{ "unmapped", "abc" } };
+	}
+
+	@Benchmark
+	public MethodMappingInfo selectMappedMethod() {
+		String[] segments = requests[next++ % requests.length];
+
+		return routeTrie.selectMappedMethod(HttpMethod.GET, segments);
+	}
+
+	@Benchmark
+	public Object selectWithRouteCache() {
+		// every request has its own segments, like in a real application
+		String[] segments = requests[next++ % requests.length].clone();
+		ResolvedRoute route = routeCache.get(HttpMethod.GET, segments);
+
+		if (route != null)
+			return route;
+
+		MethodMappingInfo mappedMethod = routeTrie.selectMappedMethod(HttpMethod.GET, segments);
+
+		if (mappedMethod == null)
+			return null;
+
+		Map<String, String> pathParameters = mappedMethod.populatePathParameters(segments);
+
+		return routeCache.put(HttpMethod.GET, segments, mappedMethod, pathParameters);
+	}
+
+	/** Target of the generated mappings. */
+	void mappedMethod() {
+	}
+
+	/**
+	 * Implementation of {@link MethodMapping} used to generate mappings.
+	 */
+	@SuppressWarnings("all")
+	private static class Mapping implements MethodMapping {
+		private final String value;
+
+		Mapping(String value) {
+			this.value = value;
+		}
+
+		@Override
+		public Class<? extends Annotation> annotationType() {
+			return MethodMapping.class;
+		}
+
+		@Override
+		public String value() {
+			return value;
+		}
+
+		@Override
+		public HttpMethod httpMethod() {
+			return HttpMethod.GET;
+		}
+
+		@Override
+		public String consumes() {
+			return RestMimeTypes.APPLICATION_JSON;
+		}
+
+		@Override
+		public String[] produces() {
+			return new String[] { RestMimeTypes.APPLICATION_JSON };
+		}
+	}
+}
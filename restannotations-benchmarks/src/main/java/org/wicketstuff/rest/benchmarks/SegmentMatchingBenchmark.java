@@ -0,0 +1,118 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.util.parse.metapattern.MetaPattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wicketstuff.rest.resource.urlsegments.AbstractURLSegment;
+import org.wicketstuff.rest.resource.urlsegments.SegmentScanner;
+
+/**
+ * Benchmarks the matching of segments with path parameters, comparing the
+ * regular expressions of the segments with the scanners of
+ * {@link SegmentScanner}. Benchmark 'scoreAndPopulateRegExp' scores and
+ * extracts the variables of a segment that can't be compiled into a scanner,
+ * as it's done while serving a request.
+ * 
+ * @author andrea del bene
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SegmentMatchingBenchmark {
+	private AbstractURLSegment multiParamSegment;
+	private MetaPattern multiParamPattern;
+	private SegmentScanner multiParamScanner;
+	private String multiParamValue = "07-23-2007_success";
+
+	private MetaPattern uuidPattern;
+	private SegmentScanner uuidScanner;
+	private String uuidValue = "123e4567-e89b-12d3-a456-426614174000";
+
+	private AbstractURLSegment regExpSegment;
+	private String regExpValue = "xyx-123.zip";
+
+	@Setup
+	public void setUp() {
+		multiParamSegment = AbstractURLSegment
+				.newSegment("{day:\\d{2}}-{month:\\d{2}}-{year:\\d{4}}_{message}");
+		multiParamPattern = multiParamSegment.getMetaPattern();
+		multiParamScanner = SegmentScanner.compile(multiParamSegment);
+
+		AbstractURLSegment uuidSegment = AbstractURLSegment
+				.newSegment("{id:[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}}");
+
+		uuidPattern = uuidSegment.getMetaPattern();
+		uuidScanner = SegmentScanner.compile(uuidSegment);
+		regExpSegment = AbstractURLSegment.newSegment("{name:(x|y)+}-{id:\\d+}.{ext:(zip|tar)}");
+	}
+
+	@Benchmark
+	public boolean regExpMultiParam() {
+		return multiParamPattern.matcher(multiParamValue).matches();
+	}
+
+	@Benchmark
+	public boolean scannerMultiParam() {
+		return multiParamScanner.matches(multiParamValue);
+	}
+
+	@Benchmark
+	public boolean regExpUuid() {
+		return uuidPattern.matcher(uuidValue).matches();
+	}
+
+	@Benchmark
+	public boolean scannerUuid() {
+		return uuidScanner.matches(uuidValue);
+	}
+
+	@Benchmark
+	public Map<String, String> scannerPopulateMultiParam() {
+		Map<String, String> variables = new HashMap<String, String>();
+
+		multiParamScanner.populateVariables(variables, multiParamValue);
+		return variables;
+	}
+
+	@Benchmark
+	public Map<String, String> scoreAndPopulateRegExp() {
+		Map<String, String> variables = new HashMap<String, String>();
+
+		if (regExpSegment.calculateScore(regExpValue) > 0)
+			regExpSegment.populatePathVariables(variables, regExpValue);
+
+		return variables;
+	}
+}
@@ -0,0 +1,103 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.benchmarks;
+
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.resource.gson.GsonSerialDeserial;
+
+/**
+ * Benchmarks JSON serialization and deserialization with
+ * {@link GsonSerialDeserial}, both through strings and through the streaming
+ * methods.
+ * 
+ * @author andrea del bene
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+	@Param({ "1", "100", "10000" })
+	private int size;
+
+	private GsonSerialDeserial serialDeserial;
+	private List<Item> items;
+	private String itemJson;
+	private Writer writer;
+
+	@Setup
+	public void setUp(final Blackhole blackhole) {
+		serialDeserial = new GsonSerialDeserial();
+		items = Item.createItems(size);
+		itemJson = serialDeserial.objectToString(items.get(0), RestMimeTypes.APPLICATION_JSON);
+		writer = new Writer() {
+			@Override
+			public void write(char[] cbuf, int off, int len) {
+				blackhole.consume(cbuf);
+			}
+
+			@Override
+			public void flush() {
+			}
+
+			@Override
+			public void close() {
+			}
+		};
+	}
+
+	@Benchmark
+	public String objectToString() {
+		return serialDeserial.objectToString(items, RestMimeTypes.APPLICATION_JSON);
+	}
+
+	@Benchmark
+	public void objectToWriter() throws Exception {
+		serialDeserial.objectToWriter(items, writer, RestMimeTypes.APPLICATION_JSON);
+	}
+
+	@Benchmark
+	public Item stringToObject() {
+		return serialDeserial.stringToObject(itemJson, Item.class, RestMimeTypes.APPLICATION_JSON);
+	}
+
+	@Benchmark
+	public Item readerToObject() {
+		return serialDeserial.readerToObject(new StringReader(itemJson), itemJson.length(),
+				Item.class, RestMimeTypes.APPLICATION_JSON);
+	}
+}
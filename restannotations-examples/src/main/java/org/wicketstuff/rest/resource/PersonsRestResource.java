@@ -17,10 +17,12 @@
 package org.wicketstuff.rest.resource;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 import org.wicketstuff.rest.annotations.MethodMapping;
 import org.wicketstuff.rest.annotations.parameters.RequestBody;
+import org.wicketstuff.rest.contenthandling.RestMimeTypes;
 import org.wicketstuff.rest.domain.PersonPojo;
 import org.wicketstuff.rest.resource.gson.GsonRestResource;
 import org.wicketstuff.rest.utils.http.HttpMethod;
@@ -40,6 +42,11 @@ public class PersonsRestResource extends GsonRestResource {
 		return persons;
 	}
 	
+	@MethodMapping(value = "/persons/export", produces = RestMimeTypes.APPLICATION_NDJSON)
+	public Iterator<PersonPojo> exportPersons() {
+		return persons.iterator();
+	}
+	
 	@MethodMapping(value = "/persons/{personIndex}", httpMethod = HttpMethod.DELETE)
 	public void deletePerson(int personIndex) {
 		persons.remove(personIndex);
@@ -16,6 +16,9 @@
  */
 package org.wicketstuff.rest.resource.gson;
 
+import java.io.Reader;
+import java.io.Writer;
+
 import org.wicketstuff.rest.contenthandling.RestMimeTypes;
 import org.wicketstuff.rest.contenthandling.serialdeserial.TextualObjectSerialDeserial;
 
@@ -45,6 +48,20 @@ public class GsonSerialDeserial extends TextualObjectSerialDeserial {
 		return gson.toJson(targetObject);
 	}
 
+	@Override
+	public void objectToWriter(Object targetObject, Writer writer, String mimeType) {
+		// Gson writes the object through a JsonWriter bound to the response
+		gson.toJson(targetObject, writer);
+	}
+
+	@Override
+	public <T> T readerToObject(Reader reader, int contentLength, Class<T> targetClass,
+			String mimeType) {
+		// Gson parses the request body with a JsonReader, so it's never
+		// loaded entirely in memory
+		return gson.fromJson(reader, targetClass);
+	}
+
 	@Override
 	public <T> T stringToObject(String source, Class<T> targetClass, String mimeType) {
 		return gson.fromJson(source, targetClass);
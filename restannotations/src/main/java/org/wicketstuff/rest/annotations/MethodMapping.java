@@ -22,12 +22,17 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.utils.http.ContentNegotiator;
 import org.wicketstuff.rest.utils.http.HttpMethod;
 
 /**
  * Annotation used to map a resource method to a given URL.
  * The specified URL can contain parameter segment (for example '{id}') and we can
- * specify also the request method that must be used.
+ * specify also the request method that must be used.<br/>
+ * A method can produce more MIME types: the type of the response is then
+ * selected following the 'Accept' header of the request (see
+ * {@link ContentNegotiator}), and the first type is used if the header is
+ * missing. Methods producing a single type ignore the header.
  * 
  * @author andrea del bene
  * @see HttpMethod
@@ -38,5 +43,5 @@ public @interface MethodMapping {
 	String value();
 	HttpMethod httpMethod() default HttpMethod.GET;
 	String consumes() default RestMimeTypes.APPLICATION_JSON;
-	String produces() default RestMimeTypes.APPLICATION_JSON;
+	String[] produces() default RestMimeTypes.APPLICATION_JSON;
 }
@@ -24,6 +24,9 @@ import java.lang.annotation.Target;
 /***
  * Annotation used to indicate that a method parameter must be extracted from the request body.
  * This implies a deserialization from the request body (from example from JSON format) to the parameter type. 
+ * Parameters of type {@link java.io.InputStream} and {@link java.nio.channels.ReadableByteChannel} 
+ * read the raw body directly from the request, while parameters of type {@link java.io.File} 
+ * receive the body spooled to a temporary file, which is deleted once the request has been served.
  * 
  * @author andrea del bene
  *
@@ -32,5 +35,11 @@ import java.lang.annotation.Target;
 @Target(ElementType.PARAMETER)
 @AnnotatedParam
 public @interface RequestBody {
-
+	/**
+	 * Maximum size of the request body in bytes, or a negative value for no
+	 * limit. Requests declaring a bigger Content-Length are rejected with
+	 * status 413 before the method is invoked. Raw bodies (streams, channels
+	 * and files) are also checked while they are read.
+	 */
+	long maxSize() default -1;
 }
@@ -0,0 +1,41 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.contenthandling;
+
+/**
+ * Callback-style producer of the elements of a streamed response. A mapped
+ * method can return an instance of this interface to write its elements one
+ * at a time, for example while it scrolls the result of a query: every
+ * element passed to the sink is serialized to the response right away,
+ * without collecting the elements in memory.
+ * 
+ * @author andrea del bene
+ * 
+ * @param <T>
+ *            the type of the produced elements.
+ * @see org.wicketstuff.rest.contenthandling.serialdeserial.TextualObjectSerialDeserial
+ */
+public interface IElementProducer<T> {
+	/**
+	 * Produces the elements of the response passing them to the given sink.
+	 * 
+	 * @param sink
+	 *            the sink that writes the elements to the response.
+	 * @throws Exception
+	 */
+	public void produce(IElementSink<? super T> sink) throws Exception;
+}
@@ -0,0 +1,65 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.contenthandling;
+
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * Object serializer/deserializer that can write an object directly to a
+ * {@link Writer} bound to the response and read it directly from the
+ * {@link Reader} of the request, without building its whole textual
+ * representation in memory.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public interface IStreamingObjectSerialDeserial extends IObjectSerialDeserial {
+	/**
+	 * Write the object in input to the given writer converting it to a given
+	 * MIME type.
+	 * 
+	 * @param targetObject
+	 *            the object instance to serialize.
+	 * @param writer
+	 *            the writer bound to the response.
+	 * @param mimeType
+	 *            the MIME type of the response.
+	 * @throws Exception
+	 */
+	public void objectToWriter(Object targetObject, Writer writer, String mimeType)
+			throws Exception;
+
+	/**
+	 * Extract an instance of targetClass from the given reader.
+	 * 
+	 * @param reader
+	 *            the reader of the request body, already decoded with the
+	 *            request charset.
+	 * @param contentLength
+	 *            the length of the request body in bytes, or a negative value
+	 *            if it's unknown.
+	 * @param targetClass
+	 *            the type of the object we want to extract.
+	 * @param mimeType
+	 *            the MIME type of the request.
+	 * @return the object extracted from the reader.
+	 * @throws Exception
+	 */
+	public <T> T readerToObject(Reader reader, int contentLength, Class<T> targetClass,
+			String mimeType) throws Exception;
+}
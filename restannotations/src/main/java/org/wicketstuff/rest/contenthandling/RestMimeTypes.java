@@ -39,6 +39,8 @@ public class RestMimeTypes {
 	
 	public static final String APPLICATION_JSON = "application/json";
 	
+	public static final String APPLICATION_NDJSON = "application/x-ndjson";
+	
 	public static final String IMAGE_GIF = "image/gif";
 	
 	public static final String IMAGE_JPEG = "image/jpeg";
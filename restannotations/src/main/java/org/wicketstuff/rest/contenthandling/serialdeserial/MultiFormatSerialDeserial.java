@@ -22,9 +22,15 @@ import java.util.Map;
 import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.request.http.WebResponse;
 import org.wicketstuff.rest.contenthandling.IObjectSerialDeserial;
+import org.wicketstuff.rest.utils.http.ContentNegotiator;
 
 /**
- * Object serializer/deserializer that supports multiple formats.
+ * Object serializer/deserializer that supports multiple formats. MIME types
+ * are looked up without their parameters and ignoring case, so that for
+ * example 'application/json; charset=utf-8' selects the serializer
+ * registered for 'application/json' (see {@link ContentNegotiator#normalize(String)}).
+ * The type is passed to the selected serializer as it is, with its
+ * parameters.
  * 
  * @author andrea del bene
  *
@@ -37,7 +43,8 @@ public class MultiFormatSerialDeserial implements IObjectSerialDeserial {
 	public void objectToResponse(Object targetObject, WebResponse response, String mimeType)
 			throws Exception {
 		
-		IObjectSerialDeserial serialDeserial = serialsDeserials.get(mimeType);
+		String normalizedType = ContentNegotiator.normalize(mimeType);
+		IObjectSerialDeserial serialDeserial = serialsDeserials.get(normalizedType);
 		
 		if(serialDeserial != null)
 			serialDeserial.objectToResponse(targetObject, response, mimeType);
@@ -46,7 +53,8 @@ public class MultiFormatSerialDeserial implements IObjectSerialDeserial {
 	@Override
 	public <T> T requestToObject(WebRequest request, Class<T> targetClass, String mimeType)
 			throws Exception {
-		IObjectSerialDeserial serialDeserial = serialsDeserials.get(mimeType);
+		String normalizedType = ContentNegotiator.normalize(mimeType);
+		IObjectSerialDeserial serialDeserial = serialsDeserials.get(normalizedType);
 		
 		if(serialDeserial != null)
 			return serialDeserial.requestToObject(request, targetClass, mimeType);
@@ -62,11 +70,11 @@ public class MultiFormatSerialDeserial implements IObjectSerialDeserial {
 	 * 			the MIME type we want to handle with the given serial/deserial.
 	 */
 	public void registerSerDeser(IObjectSerialDeserial serialDeserial, String mimeType){
-		serialsDeserials.put(mimeType, serialDeserial);
+		serialsDeserials.put(ContentNegotiator.normalize(mimeType), serialDeserial);
 	}
 	
 	@Override
 	public boolean isMimeTypeSupported(String mimeType){
-		return serialsDeserials.get(mimeType) != null;
+		return serialsDeserials.get(ContentNegotiator.normalize(mimeType)) != null;
 	}
 }
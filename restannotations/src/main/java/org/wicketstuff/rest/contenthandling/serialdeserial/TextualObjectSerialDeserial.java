@@ -16,22 +16,48 @@
  */
 package org.wicketstuff.rest.contenthandling.serialdeserial;
 
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Iterator;
+
 import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
 
 import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.request.http.WebResponse;
-import org.wicketstuff.rest.contenthandling.IObjectSerialDeserial;
+import org.apache.wicket.util.lang.Args;
+import org.wicketstuff.rest.contenthandling.IElementProducer;
+import org.wicketstuff.rest.contenthandling.IElementSink;
+import org.wicketstuff.rest.contenthandling.IStreamingObjectSerialDeserial;
 import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.utils.http.ContentNegotiator;
 import org.wicketstuff.rest.utils.http.HttpUtils;
+import org.wicketstuff.rest.utils.http.PooledResponseWriter;
 
 // TODO: Auto-generated Javadoc
 /**
  * Abstract object serializer/deserializer that works with textual formats.
+ * Objects are written to the response through
+ * {@link #objectToWriter(Object, Writer, String)}, which by default writes the
+ * string returned by {@link #objectToString(Object, String)}. In the same way
+ * the request body is read through
+ * {@link #readerToObject(Reader, int, Class, String)}, which by default passes
+ * the whole body to {@link #stringToObject(String, Class, String)}. Subclasses
+ * can override these two methods to stream objects directly from/to the
+ * request/response.<br/>
+ * The writer passed to {@link #objectToWriter(Object, Writer, String)} encodes
+ * the characters with the supported charset into pooled buffers, which are
+ * written to the response with a single bulk write (see
+ * {@link PooledResponseWriter}).<br/>
+ * JSON serializers can also stream iterators and {@link IElementProducer}s
+ * one element at a time, as a JSON array or as
+ * NDJSON (see {@link #isElementStream(Object, String)}), so that big responses
+ * are written with constant memory.
  * 
  * @author andrea del bene
  * 
  */
-public abstract class TextualObjectSerialDeserial implements IObjectSerialDeserial {
+public abstract class TextualObjectSerialDeserial implements IStreamingObjectSerialDeserial {
 	
 	/** the supported charset. */
 	private final String charset;
@@ -39,6 +65,12 @@ public abstract class TextualObjectSerialDeserial implements IObjectSerialDeseri
 	/** the supported MIME type. */
 	private final String mimeType;
 
+	/** Default number of elements written between two flushes of a streamed response. */
+	public static final int DEFAULT_FLUSH_BATCH_SIZE = 100;
+
+	/** the number of elements written between two flushes of a streamed response. */
+	private volatile int flushBatchSize = DEFAULT_FLUSH_BATCH_SIZE;
+
 	/**
 	 * Instantiates a new textual object serial deserial.
 	 *
@@ -58,14 +90,94 @@ public abstract class TextualObjectSerialDeserial implements IObjectSerialDeseri
 			throws Exception {
 		setCharsetResponse(response);
 		
-		String strOutput;
+		if(RestMimeTypes.TEXT_PLAIN.equals(ContentNegotiator.normalize(mimeType))){
+			response.write(targetObject == null ? "" : targetObject.toString());
+			return;
+		}
 		
-		if(RestMimeTypes.TEXT_PLAIN.equals(mimeType))
-			strOutput = targetObject == null ? "" : targetObject.toString();
-		else
-			strOutput = objectToString(targetObject, mimeType);
+		Writer writer = new PooledResponseWriter(response, charset);
 		
-		response.write(strOutput);
+		try {
+			if (isElementStream(targetObject, mimeType))
+				writeElements(targetObject, writer, response, mimeType);
+			else
+				objectToWriter(targetObject, writer, mimeType);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Tells if the given object must be streamed one element at a time. JSON
+	 * and NDJSON responses are streamed if the object is an {@link Iterator}
+	 * or an {@link IElementProducer}. NDJSON responses, which are produced
+	 * only by methods declaring this type, are streamed for every
+	 * {@link Iterable} too. Other iterables, like domain objects implementing
+	 * {@link Iterable}, are left to the serializer. Parameters of the MIME type
+	 * are ignored.
+	 * 
+	 * @param targetObject
+	 *            the object to write.
+	 * @param mimeType
+	 *            the MIME type of the response.
+	 * @return true if the object must be streamed
+	 */
+	protected boolean isElementStream(Object targetObject, String mimeType) {
+		mimeType = ContentNegotiator.normalize(mimeType);
+
+		boolean ndjson = RestMimeTypes.APPLICATION_NDJSON.equals(mimeType);
+
+		if (!ndjson && !RestMimeTypes.APPLICATION_JSON.equals(mimeType))
+			return false;
+
+		if (targetObject instanceof Iterator || targetObject instanceof IElementProducer)
+			return true;
+
+		return ndjson && targetObject instanceof Iterable;
+	}
+
+	/**
+	 * Writes the elements of the given object one at a time, as a JSON array
+	 * or as one JSON value per line for NDJSON. Every element is written
+	 * with {@link #objectToWriter(Object, Writer, String)} and the response is
+	 * flushed every {@link #getFlushBatchSize()} elements.
+	 */
+	@SuppressWarnings("unchecked")
+	private void writeElements(Object elements, Writer writer, WebResponse response,
+			String mimeType) throws Exception {
+		boolean ndjson = RestMimeTypes.APPLICATION_NDJSON.equals(ContentNegotiator
+				.normalize(mimeType));
+		ElementWriter sink = new ElementWriter(writer, response, ndjson);
+
+		if (!ndjson)
+			writer.write('[');
+
+		if (elements instanceof IElementProducer) {
+			((IElementProducer<Object>) elements).produce(sink);
+		} else {
+			Iterator<?> iterator = elements instanceof Iterator ? (Iterator<?>) elements
+					: ((Iterable<?>) elements).iterator();
+
+			while (iterator.hasNext()) {
+				sink.accept(iterator.next());
+			}
+		}
+
+		if (!ndjson)
+			writer.write(']');
+	}
+
+	/**
+	 * Writes the string returned by {@link #objectToString(Object, String)}.
+	 * Override this method to write the object without building its whole
+	 * textual representation.
+	 * 
+	 * @see org.wicketstuff.rest.contenthandling.IStreamingObjectSerialDeserial#objectToWriter(java.lang.Object, java.io.Writer, java.lang.String)
+	 */
+	@Override
+	public void objectToWriter(Object targetObject, Writer writer, String mimeType)
+			throws Exception {
+		writer.write(objectToString(targetObject, mimeType));
 	}
 
 	/**
@@ -86,15 +198,44 @@ public abstract class TextualObjectSerialDeserial implements IObjectSerialDeseri
 	@Override
 	public <T> T requestToObject(WebRequest request, Class<T> targetClass, String mimeType)
 			throws Exception {
-		return stringToObject(HttpUtils.readStringFromRequest(request), targetClass, mimeType);
+		HttpServletRequest httpRequest = (HttpServletRequest) request.getContainerRequest();
+		
+		//if the client didn't declare a charset we use the supported one
+		if (httpRequest.getCharacterEncoding() == null)
+			httpRequest.setCharacterEncoding(charset);
+		
+		return readerToObject(httpRequest.getReader(), httpRequest.getContentLength(),
+				targetClass, mimeType);
 	}
 
-	/* (non-Javadoc)
+	/**
+	 * Reads the whole body and passes it to
+	 * {@link #stringToObject(String, Class, String)}. The buffer used to read
+	 * the body is pre-sized with the content length. Override this method to
+	 * parse the object without building the string of the whole body.
+	 * 
+	 * @see org.wicketstuff.rest.contenthandling.IStreamingObjectSerialDeserial#readerToObject(java.io.Reader, int, java.lang.Class, java.lang.String)
+	 */
+	@Override
+	public <T> T readerToObject(Reader reader, int contentLength, Class<T> targetClass,
+			String mimeType) throws Exception {
+		return stringToObject(HttpUtils.readString(reader, contentLength), targetClass, mimeType);
+	}
+
+	/**
+	 * Supports the MIME type of this serializer and plain text. JSON
+	 * serializers support NDJSON too. Parameters of the given type are
+	 * ignored.
+	 * 
 	 * @see org.wicketstuff.rest.contenthandling.IObjectSerialDeserial#isMimeTypeSupported(java.lang.String)
 	 */
 	@Override
 	final public boolean isMimeTypeSupported(String mimeType) {
-		return RestMimeTypes.TEXT_PLAIN.equals(mimeType) || this.mimeType.equals(mimeType);
+		mimeType = ContentNegotiator.normalize(mimeType);
+
+		return RestMimeTypes.TEXT_PLAIN.equals(mimeType) || this.mimeType.equals(mimeType)
+				|| (RestMimeTypes.APPLICATION_NDJSON.equals(mimeType) && RestMimeTypes.APPLICATION_JSON
+						.equals(this.mimeType));
 	}
 
 	/**
@@ -136,4 +277,60 @@ public abstract class TextualObjectSerialDeserial implements IObjectSerialDeseri
 	public String getMimeType() {
 		return mimeType;
 	}
+
+	/**
+	 * Gets the number of elements written between two flushes of a streamed
+	 * response.
+	 * 
+	 * @return the flush batch size
+	 */
+	public int getFlushBatchSize() {
+		return flushBatchSize;
+	}
+
+	/**
+	 * Sets the number of elements written between two flushes of a streamed
+	 * response. Smaller batches send elements to the client sooner, larger
+	 * batches write bigger chunks.
+	 * 
+	 * @param flushBatchSize
+	 *            the flush batch size, must be positive.
+	 */
+	public void setFlushBatchSize(int flushBatchSize) {
+		Args.isTrue(flushBatchSize > 0, "flushBatchSize must be positive");
+		this.flushBatchSize = flushBatchSize;
+	}
+
+	/**
+	 * Sink that writes the elements of a streamed response.
+	 */
+	private class ElementWriter implements IElementSink<Object> {
+		private final Writer writer;
+		private final WebResponse response;
+		private final boolean ndjson;
+		private final int batchSize = flushBatchSize;
+		private int count;
+
+		ElementWriter(Writer writer, WebResponse response, boolean ndjson) {
+			this.writer = writer;
+			this.response = response;
+			this.ndjson = ndjson;
+		}
+
+		@Override
+		public void accept(Object element) throws Exception {
+			if (!ndjson && count > 0)
+				writer.write(',');
+
+			objectToWriter(element, writer, RestMimeTypes.APPLICATION_JSON);
+
+			if (ndjson)
+				writer.write('\n');
+
+			if (++count % batchSize == 0) {
+				writer.flush();
+				response.flush();
+			}
+		}
+	}
 }
@@ -16,42 +16,56 @@
  */
 package org.wicketstuff.rest.resource;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
+import javax.servlet.http.HttpServletRequest;
+
 import org.apache.wicket.Application;
 import org.apache.wicket.Session;
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.authroles.authorization.strategies.role.IRoleCheckingStrategy;
 import org.apache.wicket.authroles.authorization.strategies.role.Roles;
+import org.apache.wicket.protocol.http.servlet.ServletWebRequest;
 import org.apache.wicket.request.Url;
 import org.apache.wicket.request.cycle.RequestCycle;
 import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.request.http.WebResponse;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.request.resource.IResource;
-import org.apache.wicket.util.collections.MultiMap;
 import org.apache.wicket.util.convert.IConverter;
+import org.apache.wicket.util.lang.Args;
 import org.wicketstuff.rest.annotations.AuthorizeInvocation;
 import org.wicketstuff.rest.annotations.MethodMapping;
-import org.wicketstuff.rest.annotations.parameters.CookieParam;
-import org.wicketstuff.rest.annotations.parameters.HeaderParam;
-import org.wicketstuff.rest.annotations.parameters.MatrixParam;
-import org.wicketstuff.rest.annotations.parameters.PathParam;
-import org.wicketstuff.rest.annotations.parameters.RequestBody;
-import org.wicketstuff.rest.annotations.parameters.RequestParam;
 import org.wicketstuff.rest.contenthandling.IObjectSerialDeserial;
 import org.wicketstuff.rest.contenthandling.RestMimeTypes;
-import org.wicketstuff.rest.resource.urlsegments.AbstractURLSegment;
+import org.wicketstuff.rest.resource.metrics.IPhaseTimingSink;
+import org.wicketstuff.rest.resource.metrics.MeteredWebResponse;
+import org.wicketstuff.rest.resource.metrics.PhaseTimingAggregator;
+import org.wicketstuff.rest.resource.metrics.PrometheusMetricsResource;
+import org.wicketstuff.rest.resource.metrics.RequestPhase;
+import org.wicketstuff.rest.resource.metrics.RestMetricsRegistry;
+import org.wicketstuff.rest.resource.routing.RouteCache;
+import org.wicketstuff.rest.resource.routing.RouteCache.ResolvedRoute;
+import org.wicketstuff.rest.resource.routing.RouteTrie;
+import org.wicketstuff.rest.utils.convert.ITextConverter;
+import org.wicketstuff.rest.utils.convert.TextConverters;
+import org.wicketstuff.rest.utils.http.BinaryContentWriter;
+import org.wicketstuff.rest.utils.http.ContentNegotiator;
 import org.wicketstuff.rest.utils.http.HttpMethod;
 import org.wicketstuff.rest.utils.http.HttpUtils;
+import org.wicketstuff.rest.utils.http.RequestBodyTooLargeException;
+import org.wicketstuff.rest.utils.http.SizeLimitedInputStream;
+import org.wicketstuff.rest.utils.http.SizeLimitedServletRequest;
 import org.wicketstuff.rest.utils.reflection.MethodParameter;
-import org.wicketstuff.rest.utils.reflection.ReflectionUtils;
+import org.wicketstuff.rest.utils.reflection.ParameterSource;
 
 /**
  * Base class to build a resource that serves REST requests.
@@ -60,8 +74,20 @@ import org.wicketstuff.rest.utils.reflection.ReflectionUtils;
  * 
  */
 public abstract class AbstractRestResource<T extends IObjectSerialDeserial> implements IResource {
-	/** Multimap that stores every mapped method of the class */
-	private final MultiMap<String, MethodMappingInfo> mappedMethods = new MultiMap<String, MethodMappingInfo>();
+	/** Error message for the requests that don't match any mapped method. */
+	private static final String NO_SUITABLE_METHOD = "No suitable method found for the URL and the HTTP method of the request.";
+
+	/** Error message for the request bodies bigger than their maximum size. */
+	private static final String REQUEST_BODY_TOO_LARGE = "Request body too large.";
+
+	/** Error message for the requests not accepting any produced MIME type. */
+	private static final String NOT_ACCEPTABLE = "None of the MIME types produced by the method is acceptable.";
+
+	/** Default number of bytes kept in memory while a request body is spooled. */
+	public static final int DEFAULT_REQUEST_BODY_MEMORY_THRESHOLD = 64 * 1024;
+
+	/** Table of the mapped methods, shared by every instance of the class. */
+	private final MethodMappingTable mappingTable;
 
 	/**
 	 * The implementation of {@link IObjectSerialDeserial} that is used to
@@ -72,6 +98,33 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 	/** Role-checking strategy. */
 	private final IRoleCheckingStrategy roleCheckingStrategy;
 
+	/**
+	 * If true the resource never uses the Wicket session to serve a request
+	 * (see {@link #setStateless(boolean)}).
+	 */
+	private volatile boolean stateless;
+
+	/** The locale used to convert string values, if fixed for the resource. */
+	private volatile Locale locale;
+
+	/**
+	 * If true string values are always converted with the converters of the
+	 * application (see {@link #setUseApplicationConverters(boolean)}).
+	 */
+	private volatile boolean useApplicationConverters;
+
+	/** The registry that collects the metrics of the resource, if any. */
+	private volatile RestMetricsRegistry metricsRegistry;
+
+	/** The sink that receives the phase timings of the requests, if any. */
+	private volatile IPhaseTimingSink phaseTimingSink;
+
+	/** The cache of the routes resolved for the requested URLs, if any. */
+	private volatile RouteCache routeCache;
+
+	/** Bytes kept in memory while a request body is spooled to a file. */
+	private volatile int requestBodyMemoryThreshold = DEFAULT_REQUEST_BODY_MEMORY_THRESHOLD;
+
 	/**
 	 * Constructor with no role-checker (i.e we don't use annotation
 	 * {@link AuthorizeInvocation}).
@@ -99,7 +152,8 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 		this.roleCheckingStrategy = roleCheckingStrategy;
 
 		configureObjSerialDeserial(serialDeserial);
-		loadAnnotatedMethods();
+		this.mappingTable = MethodMappingTable.forClass(getClass());
+		checkMappedMethods();
 	}
 
 	/***
@@ -107,44 +161,181 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 	 * {@link MethodMapping}. If the annotated method returns a value, this
 	 * latter is automatically serialized to a given string format (like JSON,
 	 * XML, etc...) and written to the web response.<br/>
-	 * If no method is found to serve the current request, a 400 HTTP code is
-	 * returned to the client. Similarly, a 401 HTTP code is return if the user
+	 * If no method is found to serve the current request, a 404 HTTP code is
+	 * returned to the client, or 405 if no method is mapped on the HTTP method
+	 * of the request. Similarly, a 401 HTTP code is return if the user
 	 * doesn't own one of the roles required to execute an annotated method (See
 	 * {@link AuthorizeInvocation}).
 	 */
 	@Override
 	public final void respond(Attributes attributes) {
+		WebRequest request = (WebRequest) attributes.getRequest();
 		PageParameters pageParameters = attributes.getParameters();
+		String[] segments = new String[pageParameters.getIndexedCount()];
+
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = pageParameters.get(i).toString();
+		}
+
+		respond(attributes, new RestRequestContext(request, HttpUtils.getHttpMethod(request),
+				segments));
+	}
+
+	/**
+	 * Handles a REST request already parsed into the given context. The
+	 * context might contain the mapped method already selected (see
+	 * {@link RestRequestMapper}).
+	 * 
+	 * @param attributes
+	 *            the current Attributes object.
+	 * @param context
+	 *            the context of the current request.
+	 */
+	final void respond(Attributes attributes, RestRequestContext context) {
+		WebRequest request = context.getRequest();
 		WebResponse response = (WebResponse) attributes.getResponse();
-		HttpMethod httpMethod = HttpUtils.getHttpMethod((WebRequest) RequestCycle.get()
-				.getRequest());
-		int indexedParamCount = pageParameters.getIndexedCount();
+		RestMetricsRegistry metrics = metricsRegistry;
+		IPhaseTimingSink phaseSink = phaseTimingSink;
 
-		// mapped method are stored concatenating the number of the segments of
-		// their URL and their HTTP method (see annotation MethodMapping)
-		List<MethodMappingInfo> mappedMethodsCandidates = mappedMethods.get(indexedParamCount + "_"
-				+ httpMethod.getMethod());
+		if (metrics == null && phaseSink == null) {
+			context.setResponse(response);
+			serveRequest(attributes, context);
+			return;
+		}
+
+		MeteredWebResponse meteredResponse = metrics != null ? new MeteredWebResponse(response)
+				: null;
+		long startTime = System.nanoTime();
+		boolean failed = true;
+
+		context.setResponse(meteredResponse != null ? meteredResponse : response);
+
+		if (phaseSink != null)
+			context.enablePhaseTiming();
+
+		try {
+			serveRequest(attributes, context);
+			failed = false;
+		} finally {
+			if (metrics != null) {
+				HttpServletRequest httpRequest = (HttpServletRequest) request
+						.getContainerRequest();
+
+				metrics.record(context.getMappedMethod(),
+						failed ? 500 : meteredResponse.getStatus(), System.nanoTime() - startTime,
+						HttpUtils.getContentLength(httpRequest), meteredResponse.getBytesWritten());
+			}
+
+			if (phaseSink != null)
+				phaseSink.onRequestServed(context);
+		}
+	}
+
+	/**
+	 * Serves the current request selecting and invoking the mapped method.
+	 * 
+	 * @param attributes
+	 *            the current Attributes object.
+	 * @param context
+	 *            the context of the current request.
+	 */
+	private void serveRequest(Attributes attributes, RestRequestContext context) {
+		WebResponse response = context.getResponse();
+		HttpMethod httpMethod = context.getHttpMethod();
 
-		MethodMappingInfo mappedMethod = selectMostSuitedMethod(mappedMethodsCandidates,
-				pageParameters);
+		long phaseStart = context.startPhase();
+		MethodMappingInfo mappedMethod = selectMappedMethod(context);
+
+		context.endPhase(RequestPhase.METHOD_SELECTION, phaseStart);
 
 		if (mappedMethod != null) {
+
 			if (!hasAny(mappedMethod.getRoles())) {
 				response.sendError(401, "User is not allowed to invoke method on server.");
 				return;
 			}
 
-			onBeforeMethodInvoked(mappedMethod, attributes);
-			Object result = invokeMappedMethod(mappedMethod, attributes);
-			onAfterMethodInvoked(mappedMethod, attributes, result);
+			String outputFormat = selectOutputFormat(mappedMethod, context);
 
-			// if the invoked method returns a value, it is written to response
-			if (result != null) {
-				serializeObjectToResponse(response, result, mappedMethod.getMimeOutputFormat());
+			if (outputFormat == null) {
+				response.sendError(406, NOT_ACCEPTABLE);
+				return;
+			}
+
+			try {
+				onBeforeMethodInvoked(mappedMethod, attributes);
+				Object result = invokeMappedMethod(mappedMethod, attributes, context);
+				onAfterMethodInvoked(mappedMethod, attributes, result);
+
+				// if the invoked method returns a value, it is written to response
+				if (result != null) {
+					phaseStart = context.startPhase();
+
+					// binary contents are serialized too if the serializer
+					// handles their MIME type
+					if (BinaryContentWriter.isBinaryContent(result)
+							&& !isMimeTypesSupported(outputFormat))
+						writeBinaryContent(context, result, outputFormat);
+					else
+						serializeObjectToResponse(response, result, outputFormat);
+
+					context.endPhase(RequestPhase.SERIALIZATION, phaseStart);
+				}
+			} finally {
+				// spooled request bodies
+				context.deleteTemporaryFiles();
 			}
 		} else {
-			response.sendError(400, "No suitable method found for URL '" + extractUrlFromRequest()
-					+ "' and HTTP method " + httpMethod);
+			rejectRequest(response, mappingTable.getHttpMethods().contains(httpMethod) ? 404
+					: 405);
+		}
+	}
+
+	/**
+	 * Selects the MIME type of the response among the types produced by the
+	 * mapped method, following the 'Accept' header of the request (see
+	 * {@link ContentNegotiator}). Methods producing a single type always use
+	 * it, whatever the header says.
+	 * 
+	 * @param mappedMethod
+	 *            the mapped method.
+	 * @param context
+	 *            the context of the current request.
+	 * @return the selected type, or null if no produced type is acceptable.
+	 */
+	private String selectOutputFormat(MethodMappingInfo mappedMethod, RestRequestContext context) {
+		String outputFormat = mappedMethod.negotiateMimeOutputFormat(context.getRequest()
+				.getHeader("Accept"));
+
+		// the response changes with the header
+		if (mappedMethod.getMimeOutputFormatsCount() > 1)
+			context.getResponse().setHeader("Vary", "Accept");
+
+		return outputFormat;
+	}
+
+	/**
+	 * Rejects a request that doesn't match any mapped method: with status 405
+	 * if its HTTP method is not used by any mapped method, with status 404
+	 * otherwise. The response is constant, so that floods of unmatched
+	 * requests cost as little as possible.
+	 * 
+	 * @param response
+	 *            the current response.
+	 * @param status
+	 *            the status code of the response, 404 or 405.
+	 */
+	private void rejectRequest(WebResponse response, int status) {
+		RestMetricsRegistry metrics = metricsRegistry;
+
+		if (metrics != null)
+			metrics.recordRejection(status);
+
+		if (status == 405) {
+			response.setHeader("Allow", mappingTable.getAllowHeader());
+			response.sendError(405, "HTTP method not allowed.");
+		} else {
+			response.sendError(status, NO_SUITABLE_METHOD);
 		}
 	}
 
@@ -194,85 +385,110 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 		}
 	}
 
+	/**
+	 * Writes a binary content (a file, a byte buffer, a byte array or an input
+	 * stream) returned by the invoked method, without using the object
+	 * serializer. Binary contents are written this way only if their MIME type
+	 * is not handled by the serializer (for example 'application/octet-stream'
+	 * or 'image/png'). See {@link BinaryContentWriter}.
+	 * 
+	 * @param context
+	 *            the context of the current request.
+	 * @param content
+	 *            the binary content to write.
+	 * @param mimeType
+	 *            the MIME type of the response.
+	 */
+	private void writeBinaryContent(RestRequestContext context, Object content, String mimeType) {
+		WebResponse response = context.getResponse();
+
+		try {
+			response.setContentType(mimeType);
+			BinaryContentWriter.write(content, context.getRequest(), response);
+		} catch (Exception e) {
+			throw new RuntimeException("Error writing binary content to response.", e);
+		}
+	}
+
 	/**
 	 * Method invoked to select the most suited method to serve the current
-	 * request.
+	 * request. The selection is done walking the routing trie of the resource
+	 * (see {@link RouteTrie}). Routes that can't be told apart are rejected
+	 * when the mapping table is built (see {@link MethodMappingTable}), so
+	 * among methods with the same score the first in priority order is
+	 * selected (see {@link RouteTrie#selectMappedMethod(RestRequestContext)}).
+	 * If a route cache is set (see {@link #setRouteCache(RouteCache)}) the
+	 * route resolved for the same URL is reused and the routing trie is not
+	 * walked at all. The selected method is set on the context, together with
+	 * its path parameters if they have been extracted. Requests whose
+	 * structure rules out every mapped method (see
+	 * {@link MethodMappingTable#getRejectionStatus(HttpMethod, int)}) and URLs
+	 * cached as unmatched don't match any method.
 	 * 
-	 * @param mappedMethods
-	 *            List of {@link MethodMappingInfo} containing the informations
-	 *            of mapped methods.
-	 * @param pageParameters
-	 *            The PageParameters of the current request.
-	 * @return The "best" method found to serve the request.
+	 * @param context
+	 *            the context of the current request.
+	 * @return The "best" method found to serve the request, or null if no
+	 *         method matches the request.
 	 */
-	private MethodMappingInfo selectMostSuitedMethod(List<MethodMappingInfo> mappedMethods,
-			PageParameters pageParameters) {
-		int highestScore = 0;
-		MultiMap<Integer, MethodMappingInfo> mappedMethodByScore = new MultiMap<Integer, MethodMappingInfo>();
+	MethodMappingInfo selectMappedMethod(RestRequestContext context) {
+		// the method might have been already selected by RestRequestMapper
+		if (!context.isMappedMethodSelected())
+			context.setMappedMethod(resolveMappedMethod(context));
 
-		// no method mapped
-		if (mappedMethods == null || mappedMethods.size() == 0)
+		return context.getMappedMethod();
+	}
+
+	/**
+	 * Looks up the route cache and then the routing trie for the method with
+	 * the highest score. See {@link #selectMappedMethod(RestRequestContext)}.
+	 */
+	private MethodMappingInfo resolveMappedMethod(RestRequestContext context) {
+		RouteCache cache = routeCache;
+		HttpMethod httpMethod = context.getHttpMethod();
+		String[] actualSegments = context.getActualSegments();
+
+		if (mappingTable.getRejectionStatus(httpMethod, actualSegments.length) != 0)
 			return null;
 
-		/**
-		 * To select the "best" method, a score is assigned to every mapped
-		 * method. To calculate the score method calculateScore is executed for
-		 * every segment.
-		 */
-		for (MethodMappingInfo mappedMethod : mappedMethods) {
-			List<AbstractURLSegment> segments = mappedMethod.getSegments();
-			int score = 0;
-
-			for (AbstractURLSegment segment : segments) {
-				int i = segments.indexOf(segment);
-				String currentActualSegment = AbstractURLSegment.getActualSegment(pageParameters
-						.get(i).toString());
-
-				int partialScore = segment.calculateScore(currentActualSegment);
-
-				if (partialScore == 0) {
-					score = -1;
-					break;
-				}
+		if (cache != null) {
+			ResolvedRoute route = cache.get(httpMethod, actualSegments);
 
-				score += partialScore;
-			}
+			if (route != null && route.isUnmatched())
+				return null;
 
-			if (score >= highestScore) {
-				highestScore = score;
-				mappedMethodByScore.addValue(score, mappedMethod);
+			if (route != null) {
+				context.setPathParameters(route.getPathParameters());
+				return route.getMappedMethod();
 			}
 		}
-		// if we have more than one method with the highest score, throw
-		// ambiguous exception.
-		if (mappedMethodByScore.get(highestScore) != null
-				&& mappedMethodByScore.get(highestScore).size() > 1)
-			throwAmbiguousMethodsException(mappedMethodByScore.get(highestScore));
 
-		return mappedMethodByScore.getFirstValue(highestScore);
-	}
+		MethodMappingInfo mappedMethod = mappingTable.getRouteTrie().selectMappedMethod(context);
 
-	/**
-	 * Throw an exception if two o more methods have the same "score" for the
-	 * current request. See method selectMostSuitedMethod.
-	 * 
-	 * @param list
-	 *            the list of ambiguous methods.
-	 */
-	private void throwAmbiguousMethodsException(List<MethodMappingInfo> list) {
-		WebRequest request = (WebRequest) RequestCycle.get().getRequest();
-		String methodsNames = "";
+		if (mappedMethod == null) {
+			if (cache != null)
+				cache.putUnmatched(httpMethod, actualSegments);
 
-		for (MethodMappingInfo urlMappingInfo : list) {
-			if (!methodsNames.isEmpty())
-				methodsNames += ", ";
+			return null;
+		}
 
-			methodsNames += urlMappingInfo.getMethod().getName();
+		if (cache != null) {
+			Map<String, String> pathParameters = Collections.unmodifiableMap(mappedMethod
+					.populatePathParameters(context));
+
+			cache.put(httpMethod, actualSegments, mappedMethod, pathParameters);
+			context.setPathParameters(pathParameters);
 		}
 
-		throw new WicketRuntimeException("Ambiguous methods mapped for the current request: URL '"
-				+ request.getClientUrl() + "', HTTP method " + HttpUtils.getHttpMethod(request)
-				+ ". " + "Mapped methods: " + methodsNames);
+		return mappedMethod;
+	}
+
+	/**
+	 * Gets the table of the mapped methods of the resource.
+	 * 
+	 * @return the mapped methods table
+	 */
+	MethodMappingTable getMappingTable() {
+		return mappingTable;
 	}
 
 	/**
@@ -286,38 +502,19 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 	};
 
 	/***
-	 * Internal method to load class methods annotated with
-	 * {@link MethodMapping}
+	 * Internal method to check that the methods annotated with
+	 * {@link MethodMapping} can be served by this instance. Methods are loaded
+	 * once per class (see {@link MethodMappingTable}).
 	 */
-	private void loadAnnotatedMethods() {
-		Method[] methods = getClass().getDeclaredMethods();
-		boolean isUsingAuthAnnot = false;
-
-		for (int i = 0; i < methods.length; i++) {
-			Method method = methods[i];
-			MethodMapping methodMapped = method.getAnnotation(MethodMapping.class);
-			AuthorizeInvocation authorizeInvocation = method
-					.getAnnotation(AuthorizeInvocation.class);
-
-			isUsingAuthAnnot = isUsingAuthAnnot || authorizeInvocation != null;
-
-			if (methodMapped != null) {
-				HttpMethod httpMethod = methodMapped.httpMethod();
-				MethodMappingInfo urlMappingInfo = new MethodMappingInfo(methodMapped, method);
-
-				if (!isMimeTypesSupported(urlMappingInfo.getMimeInputFormat())
-						|| !isMimeTypesSupported(urlMappingInfo.getMimeOutputFormat()))
-					throw new WicketRuntimeException(
-							"Mapped methods use a MIME type not supported by obj serializer/deserializer!");
-
-				mappedMethods.addValue(
-						urlMappingInfo.getSegmentsCount() + "_" + httpMethod.getMethod(),
-						urlMappingInfo);
-			}
+	private void checkMappedMethods() {
+		for (String mimeType : mappingTable.getMimeTypes()) {
+			if (!isMimeTypesSupported(mimeType))
+				throw new WicketRuntimeException(
+						"Mapped methods use a MIME type not supported by obj serializer/deserializer!");
 		}
 		// if AuthorizeInvocation has been found but no role-checker has been
 		// configured, throw an exception
-		if (isUsingAuthAnnot && roleCheckingStrategy == null)
+		if (mappingTable.isUsingAuthorizeInvocation() && roleCheckingStrategy == null)
 			throw new WicketRuntimeException(
 					"Annotation AuthorizeInvocation is used but no role-checking strategy has been set for the controller!");
 	}
@@ -331,7 +528,7 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 	 * @return true if the MIME type is supported, false otherwise.
 	 */
 	private boolean isMimeTypesSupported(String mimeType) {
-		if (RestMimeTypes.TEXT_PLAIN.equals(mimeType))
+		if (RestMimeTypes.TEXT_PLAIN.equals(ContentNegotiator.normalize(mimeType)))
 			return true;
 
 		return objSerialDeserial.isMimeTypeSupported(mimeType);
@@ -344,54 +541,94 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 	 *            mapping info of the method.
 	 * @param attributes
 	 *            Attributes object for the current request.
+	 * @param context
+	 *            the context of the current request.
 	 * @return the value returned by the invoked method
 	 */
-	private Object invokeMappedMethod(MethodMappingInfo mappedMethod, Attributes attributes) {
+	private Object invokeMappedMethod(MethodMappingInfo mappedMethod, Attributes attributes,
+			RestRequestContext context) {
 
-		Method method = mappedMethod.getMethod();
-		List parametersValues = new ArrayList();
+		List<MethodParameter> methodParameters = mappedMethod.getMethodParameters();
+		Object[] parametersValues = new Object[methodParameters.size()];
 
 		// Attributes objects
 		PageParameters pageParameters = attributes.getParameters();
-		WebResponse response = (WebResponse) attributes.getResponse();
-		HttpMethod httpMethod = HttpUtils.getHttpMethod((WebRequest) RequestCycle.get()
-				.getRequest());
-
-		LinkedHashMap<String, String> pathParameters = mappedMethod
-				.populatePathParameters(pageParameters);
-		Iterator<String> pathParamsIterator = pathParameters.values().iterator();
-		Class<?>[] parameterTypes = method.getParameterTypes();
-
-		for (int i = 0; i < parameterTypes.length; i++) {
-			Object paramValue = null;
-			MethodParameter methodParameter = new MethodParameter(parameterTypes[i], mappedMethod,
-					i);
-			Annotation annotation = ReflectionUtils.getAnnotationParam(i, method);
+		WebResponse response = context.getResponse();
+		HttpMethod httpMethod = context.getHttpMethod();
+
+		long phaseStart = context.startPhase();
+		Map<String, String> pathParameters = context.getPathParameters();
+
+		if (pathParameters == null) {
+			pathParameters = mappedMethod.populatePathParameters(context);
+			context.setPathParameters(pathParameters);
+		}
+
+		context.endPhase(RequestPhase.PATH_PARAMETERS, phaseStart);
+
+		for (int i = 0; i < parametersValues.length; i++) {
+			MethodParameter methodParameter = methodParameters.get(i);
+			boolean requestBody = methodParameter.getSource() == ParameterSource.REQUEST_BODY;
+
+			// reject big bodies before reading them
+			if (requestBody && isRequestBodyTooLarge(methodParameter, context, null)) {
+				response.sendError(413, REQUEST_BODY_TOO_LARGE);
+				return null;
+			}
+
+			phaseStart = context.startPhase();
+			Object paramValue;
+
 			//retrieve parameter value
-			if (annotation != null)
-				paramValue = extractParameterValue(methodParameter, pathParameters, annotation,
-						pageParameters);
-			else
-				paramValue = extractParameterFromUrl(methodParameter, pathParamsIterator);
+			try {
+				paramValue = extractParameterValue(methodParameter, pathParameters,
+						pageParameters, context);
+			} catch (RuntimeException e) {
+				if (!requestBody || !isRequestBodyTooLarge(null, context, e))
+					throw e;
+
+				response.sendError(413, REQUEST_BODY_TOO_LARGE);
+				return null;
+			}
+
 			//try to use the default value
 			if (paramValue == null && !methodParameter.getDeaultValue().isEmpty())
-				paramValue = toObject(methodParameter.getParameterClass(),
-						methodParameter.getDeaultValue());
+				paramValue = getDefaultValue(methodParameter, context);
+
+			context.endPhase(RequestPhase.forParameterSource(methodParameter.getSource()),
+					phaseStart);
+
+			// the error is already in the response, which can't take the
+			// result of the method too
+			if (context.isConversionFailed())
+				return null;
 
 			if (paramValue == null && methodParameter.isRequired()) {
 				response.sendError(400, "No suitable method found for URL '"
-						+ extractUrlFromRequest() + "' and HTTP method " + httpMethod);
+						+ context.getRequest().getClientUrl() + "' and HTTP method "
+						+ httpMethod);
 				return null;
 			}
 
-			parametersValues.add(paramValue);
+			parametersValues[i] = paramValue;
 		}
 
+		phaseStart = context.startPhase();
+
 		try {
-			return method.invoke(this, parametersValues.toArray());
+			return mappedMethod.getInvoker().invoke(this, parametersValues);
 		} catch (Exception e) {
+			// a raw request body was bigger than its maximum size
+			if (isRequestBodyTooLarge(null, context, e)) {
+				response.sendError(413, REQUEST_BODY_TOO_LARGE);
+				return null;
+			}
+
 			response.sendError(500, "General server error.");
-			throw new RuntimeException("Error invoking method '" + method.getName() + "'", e);
+			throw new RuntimeException("Error invoking method '"
+					+ mappedMethod.getMethod().getName() + "'", e);
+		} finally {
+			context.endPhase(RequestPhase.INVOCATION, phaseStart);
 		}
 	}
 
@@ -405,87 +642,83 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 	}
 
 	/**
-	 * Extract the value for an annotated-method parameter (see package
+	 * Extract the value for a method parameter from the source indicated by
+	 * its annotation (see package
 	 * {@link org.wicketstuff.rest.annotations.parameters}).
 	 * 
 	 * @param methodParameter
 	 *            the current method parameter.
 	 * @param pathParameters
 	 *            the values of path parameters for the current request.
-	 * @param annotation
-	 *            the annotation for the current parameter that indicates how to
-	 *            retrieve the value for the current parameter.
 	 * @param pageParameters
 	 *            PageParameters for the current request.
+	 * @param context
+	 *            the context of the current request.
 	 * @return the extracted value.
 	 */
 	private Object extractParameterValue(MethodParameter methodParameter,
-			LinkedHashMap<String, String> pathParameters, Annotation annotation,
-			PageParameters pageParameters) {
-		Object paramValue = null;
-		Class<?> argClass = methodParameter.getParameterClass();
-		String mimeInputFormat = methodParameter.getOwnerMethod().getMimeInputFormat();
-
-		if (annotation instanceof RequestBody)
-			paramValue = deserializeObjectFromRequest(argClass, mimeInputFormat);
-		else if (annotation instanceof PathParam)
-			paramValue = toObject(argClass, pathParameters.get(((PathParam) annotation).value()));
-		else if (annotation instanceof RequestParam)
-			paramValue = extractParameterFromQuery(pageParameters, (RequestParam) annotation,
-					argClass);
-		else if (annotation instanceof HeaderParam)
-			paramValue = extractParameterFromHeader((HeaderParam) annotation, argClass);
-		else if (annotation instanceof CookieParam)
-			paramValue = extractParameterFromCookies((CookieParam) annotation, argClass);
-		else if (annotation instanceof MatrixParam)
-			paramValue = extractParameterFromMatrixParams(pageParameters, (MatrixParam) annotation,
-					argClass);
-
-		return paramValue;
+			Map<String, String> pathParameters, PageParameters pageParameters,
+			RestRequestContext context) {
+		String name = methodParameter.getName();
+
+		switch (methodParameter.getSource()) {
+		case PATH:
+			return toObject(methodParameter, pathParameters.get(name), context);
+		case REQUEST_BODY:
+			if (methodParameter.isRawRequestBody())
+				return extractRawRequestBody(methodParameter, context);
+
+			return deserializeObjectFromRequest(methodParameter, context);
+		case REQUEST_PARAM:
+			return extractParameterFromQuery(pageParameters, name, methodParameter, context);
+		case HEADER:
+			return extractParameterFromHeader(name, methodParameter, context);
+		case COOKIE:
+			return extractParameterFromCookies(name, methodParameter, context);
+		case MATRIX:
+			return extractParameterFromMatrixParams(methodParameter.getSegmentIndex(), name,
+					methodParameter, context);
+		default:
+			return null;
+		}
 	}
 
 	/**
 	 * Extract method parameter value from matrix parameters.
 	 * 
-	 * @param pageParameters
-	 *            PageParameters for the current request.
-	 * @param matrixParam
-	 *            the {@link MatrixParam} annotation used for the current
-	 *            parameter.
-	 * @param argClass
-	 *            the type of the current method parameter.
-	 * @return the value obtained from query parameters and converted to
-	 *         argClass.
-	 */
-	private Object extractParameterFromMatrixParams(PageParameters pageParameters,
-			MatrixParam matrixParam, Class<?> argClass) {
-		int segmentIndex = matrixParam.segmentIndex();
-		String variableName = matrixParam.parameterName();
-		String rawsSegment = pageParameters.get(segmentIndex).toString();
-		Map<String, String> matrixParameters = AbstractURLSegment
-				.getSegmentMatrixParameters(rawsSegment);
-
-		if (matrixParameters.get(variableName) == null)
-			return null;
-
-		return toObject(argClass, matrixParameters.get(variableName));
+	 * @param segmentIndex
+	 *            the index of the segment containing the matrix parameter.
+	 * @param variableName
+	 *            the name of the matrix parameter.
+	 * @param methodParameter
+	 *            the current method parameter.
+	 * @param context
+	 *            the context of the current request.
+	 * @return the value obtained from query parameters and converted to the
+	 *         parameter type.
+	 */
+	private Object extractParameterFromMatrixParams(int segmentIndex, String variableName,
+			MethodParameter methodParameter, RestRequestContext context) {
+		return toObject(methodParameter, context.getMatrixParameter(segmentIndex, variableName),
+				context);
 	}
 
 	/**
 	 * Extract method parameter value from request header.
 	 * 
-	 * @param headerParam
-	 *            the {@link HeaderParam} annotation used for the current method
-	 *            parameter.
-	 * @param argClass
-	 *            the type of the current method parameter.
-	 * @return the extracted value converted to argClass.
+	 * @param headerName
+	 *            the name of the header parameter.
+	 * @param methodParameter
+	 *            the current method parameter.
+	 * @param context
+	 *            the context of the current request.
+	 * @return the extracted value converted to the parameter type.
 	 */
-	private Object extractParameterFromHeader(HeaderParam headerParam, Class<?> argClass) {
-		String value = headerParam.value();
-		WebRequest webRequest = (WebRequest) RequestCycle.get().getRequest();
+	private Object extractParameterFromHeader(String headerName, MethodParameter methodParameter,
+			RestRequestContext context) {
+		WebRequest webRequest = context.getRequest();
 
-		return toObject(argClass, webRequest.getHeader(value));
+		return toObject(methodParameter, webRequest.getHeader(headerName), context);
 	}
 
 	/**
@@ -493,78 +726,262 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 	 * 
 	 * @param pageParameters
 	 *            the PageParameters of the current request.
-	 * @param requestParam
-	 *            the {@link RequestParam} annotation used for the current
-	 *            method parameter.
-	 * @param argClass
-	 *            the type of the current method parameter.
-	 * @return the extracted value converted to argClass.
+	 * @param paramName
+	 *            the name of the request parameter.
+	 * @param methodParameter
+	 *            the current method parameter.
+	 * @param context
+	 *            the context of the current request.
+	 * @return the extracted value converted to the parameter type.
 	 */
-	private Object extractParameterFromQuery(PageParameters pageParameters,
-			RequestParam requestParam, Class<?> argClass) {
-
-		String value = requestParam.value();
+	private Object extractParameterFromQuery(PageParameters pageParameters, String paramName,
+			MethodParameter methodParameter, RestRequestContext context) {
 
-		if (pageParameters.get(value) == null)
+		if (pageParameters.get(paramName) == null)
 			return null;
 
-		return toObject(argClass, pageParameters.get(value).toString());
+		return toObject(methodParameter, pageParameters.get(paramName).toString(), context);
 	}
 
 	/**
 	 * Extract method parameter's value from cookies.
 	 * 
-	 * @param annotation
-	 *            the {@link CookieParam} annotation used for the current method
-	 *            parameter.
-	 * @param argClass
-	 *            the type of the current method parameter.
-	 * @return the extracted value converted to argClass.
+	 * @param cookieName
+	 *            the name of the cookie.
+	 * @param methodParameter
+	 *            the current method parameter.
+	 * @param context
+	 *            the context of the current request.
+	 * @return the extracted value converted to the parameter type.
 	 */
-	private Object extractParameterFromCookies(CookieParam cookieParam, Class<?> argClass) {
-		String value = cookieParam.value();
-		WebRequest webRequest = (WebRequest) RequestCycle.get().getRequest();
+	private Object extractParameterFromCookies(String cookieName, MethodParameter methodParameter,
+			RestRequestContext context) {
+		return toObject(methodParameter, context.getCookieValue(cookieName), context);
+	}
 
-		if (webRequest.getCookie(value) == null)
-			return null;
+	/**
+	 * Extracts the raw request body for a parameter of type
+	 * {@link InputStream}, {@link ReadableByteChannel} or {@link File} (see
+	 * {@link MethodParameter#isRawRequestBody()}). Files are spooled to a
+	 * temporary file which is deleted once the request has been served. If the
+	 * parameter has a maximum size, reading more bytes fails with
+	 * {@link RequestBodyTooLargeException}.
+	 * 
+	 * @param methodParameter
+	 *            the current method parameter.
+	 * @param context
+	 *            the context of the current request.
+	 * @return the request body.
+	 */
+	private Object extractRawRequestBody(MethodParameter methodParameter,
+			RestRequestContext context) {
+		HttpServletRequest httpRequest = (HttpServletRequest) context.getRequest()
+				.getContainerRequest();
+		Class<?> parameterClass = methodParameter.getParameterClass();
+
+		try {
+			InputStream inputStream = httpRequest.getInputStream();
+
+			if (methodParameter.getMaxSize() >= 0)
+				inputStream = new SizeLimitedInputStream(inputStream, methodParameter.getMaxSize());
 
-		return toObject(argClass, webRequest.getCookie(value).getValue());
+			if (parameterClass == InputStream.class)
+				return inputStream;
+
+			if (parameterClass == ReadableByteChannel.class)
+				return Channels.newChannel(inputStream);
+
+			File file = HttpUtils.spoolToTempFile(inputStream, requestBodyMemoryThreshold);
+
+			context.addTemporaryFile(file);
+			return file;
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading request body", e);
+		}
 	}
 
 	/**
-	 * Internal method that tries to extract an instance of the given class from
-	 * the request body.
+	 * Checks if the request body is bigger than the maximum size of the given
+	 * parameter, either as declared by header Content-Length or as found
+	 * while reading it (i.e. if the given exception has been caused by a
+	 * {@link RequestBodyTooLargeException}).
 	 * 
-	 * @param argClass
-	 *            the type we want to extract from request body.
+	 * @param methodParameter
+	 *            the parameter bound to the request body, or null.
+	 * @param context
+	 *            the context of the current request.
+	 * @param exception
+	 *            the exception thrown reading the body, or null.
+	 * @return true if the request body is too large.
+	 */
+	private boolean isRequestBodyTooLarge(MethodParameter methodParameter,
+			RestRequestContext context, Throwable exception) {
+		for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+			if (cause instanceof RequestBodyTooLargeException)
+				return true;
+		}
+
+		if (methodParameter == null || methodParameter.getMaxSize() < 0)
+			return false;
+
+		HttpServletRequest httpRequest = (HttpServletRequest) context.getRequest()
+				.getContainerRequest();
+
+		return HttpUtils.getContentLength(httpRequest) > methodParameter.getMaxSize();
+	}
+
+	/**
+	 * Internal method that tries to extract an instance of the type of the
+	 * given parameter from the request body. If the parameter has a maximum
+	 * size, the serializer reads the body through a
+	 * {@link SizeLimitedServletRequest}, so that reading more bytes fails with
+	 * {@link RequestBodyTooLargeException} even if the length of the body is
+	 * not declared.
+	 * 
+	 * @param methodParameter
+	 *            the parameter bound to the request body.
+	 * @param context
+	 *            the context of the current request.
 	 * @return the extracted object.
 	 */
-	private Object deserializeObjectFromRequest(Class<?> argClass, String mimeType) {
-		WebRequest servletRequest = (WebRequest) RequestCycle.get().getRequest();
+	private Object deserializeObjectFromRequest(MethodParameter methodParameter,
+			RestRequestContext context) {
+		WebRequest servletRequest = context.getRequest();
+
+		if (methodParameter.getMaxSize() >= 0 && servletRequest instanceof ServletWebRequest) {
+			ServletWebRequest webRequest = (ServletWebRequest) servletRequest;
+
+			servletRequest = new ServletWebRequest(new SizeLimitedServletRequest(
+					webRequest.getContainerRequest(), methodParameter.getMaxSize()),
+					webRequest.getFilterPrefix(), webRequest.getUrl());
+		}
+
 		try {
-			return objSerialDeserial.requestToObject(servletRequest, argClass, mimeType);
+			return objSerialDeserial.requestToObject(servletRequest,
+					methodParameter.getParameterClass(), methodParameter.getOwnerMethod()
+							.getMimeInputFormat());
 		} catch (Exception e) {
 			throw new RuntimeException("Error deserializing object from request", e);
 		}
 	}
 
-	/***
-	 * Extract a parameter values from the rest URL.
+	/**
+	 * Converts a string value to the type of the given method parameter using
+	 * the locale of the current request (see
+	 * {@link #getConversionLocale(RestRequestContext)}). The built-in converter
+	 * of the parameter (see {@link MethodParameter#getConverter()}) is tried
+	 * first, then the converter of the application is used.
 	 * 
 	 * @param methodParameter
-	 *            the current method parameter.
-	 * @param pathParamIterator
-	 *            an iterator on the current values of path parameters.
+	 *            the method parameter the value is for.
+	 * @param value
+	 *            the string value we want to convert.
+	 * @param context
+	 *            the context of the current request.
+	 * @return the object corresponding to the converted string value, or null
+	 *         if value parameter is null
+	 */
+	private Object toObject(MethodParameter methodParameter, String value,
+			RestRequestContext context) {
+		if (value == null)
+			return null;
+
+		Locale conversionLocale = getConversionLocale(context);
+		ITextConverter converter = methodParameter.getConverter();
+
+		if (converter != null && !useApplicationConverters) {
+			Object convertedValue = converter.convert(value, conversionLocale);
+
+			if (convertedValue != null)
+				return convertedValue;
+		}
+
+		return toObject(methodParameter.getParameterClass(), value, conversionLocale, context);
+	}
+
+	/**
+	 * Returns the default value of the given method parameter.
 	 * 
-	 * @return the parameter value.
+	 * @param methodParameter
+	 *            the method parameter.
+	 * @param context
+	 *            the context of the current request.
+	 * @return the default value converted to the parameter type.
 	 */
-	private Object extractParameterFromUrl(MethodParameter methodParameter,
-			Iterator<String> pathParamIterator) {
+	private Object getDefaultValue(MethodParameter methodParameter, RestRequestContext context) {
+		Object defaultValue = methodParameter.getConvertedDefaultValue();
+
+		if (defaultValue != null && !useApplicationConverters)
+			return defaultValue;
 
-		if (!pathParamIterator.hasNext())
+		return toObject(methodParameter.getParameterClass(), methodParameter.getDeaultValue(),
+				getConversionLocale(context), context);
+	}
+
+	/**
+	 * Returns the locale used to convert string values for the current
+	 * request. The locale is resolved only once per request with
+	 * {@link #resolveConversionLocale(WebRequest)}.
+	 * 
+	 * @param context
+	 *            the context of the current request.
+	 * @return the conversion locale.
+	 */
+	private Locale getConversionLocale(RestRequestContext context) {
+		Locale conversionLocale = context.getLocale();
+
+		if (conversionLocale == null) {
+			conversionLocale = resolveConversionLocale(context.getRequest());
+			context.setLocale(conversionLocale);
+		}
+
+		return conversionLocale;
+	}
+
+	/**
+	 * Resolves the locale used to convert string values. If a locale has been
+	 * set with {@link #setLocale(Locale)} it is always used. Otherwise, if the
+	 * resource is stateless, the locale is read from header 'Accept-Language'
+	 * (falling back to the default locale of the server), else the locale of
+	 * the current session is used.
+	 * 
+	 * @param request
+	 *            the current request.
+	 * @return the locale to use with the current request.
+	 */
+	protected Locale resolveConversionLocale(WebRequest request) {
+		Locale fixedLocale = locale;
+
+		if (fixedLocale != null)
+			return fixedLocale;
+
+		if (stateless)
+			return request.getLocale();
+
+		return Session.get().getLocale();
+	}
+
+	/**
+	 * Utility method to convert string values to the corresponding objects
+	 * using the locale of the current session. If no session has been bound
+	 * the locale of the current request is used, so the conversion never
+	 * creates a session.
+	 * 
+	 * @param clazz
+	 *            the type of the object we want to obtain.
+	 * @param value
+	 *            the string value we want to convert.
+	 * @return the object corresponding to the converted string value, or null
+	 *         if value parameter is null
+	 */
+	public static Object toObject(Class clazz, String value) throws IllegalArgumentException {
+		if (value == null)
 			return null;
 
-		return toObject(methodParameter.getParameterClass(), pathParamIterator.next());
+		Locale locale = Session.exists() ? Session.get().getLocale()
+				: RequestCycle.get().getRequest().getLocale();
+
+		return toObject(clazz, value, locale);
 	}
 
 	/**
@@ -574,29 +991,253 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 	 *            the type of the object we want to obtain.
 	 * @param value
 	 *            the string value we want to convert.
+	 * @param locale
+	 *            the locale used for the conversion.
 	 * @return the object corresponding to the converted string value, or null
 	 *         if value parameter is null
 	 */
-	public static Object toObject(Class clazz, String value) throws IllegalArgumentException {
+	public static Object toObject(Class clazz, String value, Locale locale)
+			throws IllegalArgumentException {
 		if (value == null)
 			return null;
-		// we use the standard Wicket conversion mechanism to obtain the
-		// converted value.
-		try {
-			IConverter converter = Application.get().getConverterLocator().getConverter(clazz);
 
-			return converter.convertToObject(value, Session.get().getLocale());
+		try {
+			return convertValue(clazz, value, locale);
 		} catch (Exception e) {
-			WebResponse response = (WebResponse) RequestCycle.get().getResponse();
+			writeConversionError(clazz, value, (WebResponse) RequestCycle.get().getResponse());
+			return null;
+		}
+	}
 
-			response.setStatus(400);
-			response.write("Could not find a suitable constructor for value '" + value
-					+ "' of type '" + clazz + "'");
+	/**
+	 * Converts string values to the corresponding objects, reporting
+	 * conversion errors to the response of the given request. The request is
+	 * marked as failed (see {@link RestRequestContext#isConversionFailed()}),
+	 * so that the mapped method is not invoked and nothing else is written to
+	 * the response.
+	 * 
+	 * @param clazz
+	 *            the type of the object we want to obtain.
+	 * @param value
+	 *            the string value we want to convert.
+	 * @param locale
+	 *            the locale used for the conversion.
+	 * @param context
+	 *            the context of the current request.
+	 * @return the object corresponding to the converted string value, or null
+	 *         if value parameter is null or it can't be converted
+	 */
+	private static Object toObject(Class<?> clazz, String value, Locale locale,
+			RestRequestContext context) {
+		if (value == null)
+			return null;
 
+		try {
+			return convertValue(clazz, value, locale);
+		} catch (Exception e) {
+			writeConversionError(clazz, value, context.getResponse());
+			context.setConversionFailed();
 			return null;
 		}
 	}
 
+	/**
+	 * Converts a string value with the standard Wicket conversion mechanism.
+	 * 
+	 * @param clazz
+	 *            the type of the object we want to obtain.
+	 * @param value
+	 *            the string value we want to convert.
+	 * @param locale
+	 *            the locale used for the conversion.
+	 * @return the object corresponding to the converted string value
+	 */
+	private static Object convertValue(Class<?> clazz, String value, Locale locale) {
+		IConverter<?> converter = Application.get().getConverterLocator().getConverter(clazz);
+
+		return converter.convertToObject(value, locale);
+	}
+
+	/**
+	 * Reports to the client a value that can't be converted.
+	 * 
+	 * @param clazz
+	 *            the type of the object we wanted to obtain.
+	 * @param value
+	 *            the string value that can't be converted.
+	 * @param response
+	 *            the response used to report the error.
+	 */
+	private static void writeConversionError(Class<?> clazz, String value, WebResponse response) {
+		response.setStatus(400);
+		response.write("Could not find a suitable constructor for value '" + value
+				+ "' of type '" + clazz + "'");
+	}
+
+	/**
+	 * Checks if the resource is stateless.
+	 * 
+	 * @return true if the resource is stateless, false otherwise
+	 * @see #setStateless(boolean)
+	 */
+	public boolean isStateless() {
+		return stateless;
+	}
+
+	/**
+	 * Sets the resource as stateless. A stateless resource never uses the
+	 * Wicket session to serve a request: string values are converted with the
+	 * locale set with {@link #setLocale(Locale)} or, if no locale has been
+	 * set, with the locale specified by header 'Accept-Language'.<br/>
+	 * Note that the role-checking strategy used with
+	 * {@link AuthorizeInvocation} might still use the session.
+	 * 
+	 * @param stateless
+	 *            true to make the resource stateless.
+	 */
+	public void setStateless(boolean stateless) {
+		this.stateless = stateless;
+	}
+
+	/**
+	 * Gets the locale used to convert string values.
+	 * 
+	 * @return the locale, or null if it is resolved for every request
+	 */
+	public Locale getLocale() {
+		return locale;
+	}
+
+	/**
+	 * Sets the locale used to convert string values for every request.
+	 * 
+	 * @param locale
+	 *            the locale, or null to resolve it for every request (see
+	 *            {@link #resolveConversionLocale(WebRequest)})
+	 */
+	public void setLocale(Locale locale) {
+		this.locale = locale;
+	}
+
+	/**
+	 * Gets the registry that collects the metrics of the resource.
+	 * 
+	 * @return the metrics registry, or null if metrics are not collected
+	 */
+	public RestMetricsRegistry getMetricsRegistry() {
+		return metricsRegistry;
+	}
+
+	/**
+	 * Sets the registry used to collect request counters, errors, sizes and
+	 * latencies of every mapped method. The same registry can be shared by
+	 * several resources and exposed with {@link PrometheusMetricsResource}.
+	 * Metrics are not collected if no registry is set (the default).
+	 * 
+	 * @param metricsRegistry
+	 *            the metrics registry, or null to stop collecting metrics.
+	 */
+	public void setMetricsRegistry(RestMetricsRegistry metricsRegistry) {
+		this.metricsRegistry = metricsRegistry;
+	}
+
+	/**
+	 * Gets the sink that receives the phase timings of the requests.
+	 * 
+	 * @return the phase timing sink, or null if phases are not timed
+	 */
+	public IPhaseTimingSink getPhaseTimingSink() {
+		return phaseTimingSink;
+	}
+
+	/**
+	 * Sets the sink that receives the time spent in each phase of every
+	 * request (method selection, parameter binding, invocation and
+	 * serialization, see {@link RequestPhase}). {@link PhaseTimingAggregator}
+	 * can be used to aggregate timings by mapped method. Phases are not timed
+	 * if no sink is set (the default).
+	 * 
+	 * @param phaseTimingSink
+	 *            the phase timing sink, or null to stop timing phases.
+	 */
+	public void setPhaseTimingSink(IPhaseTimingSink phaseTimingSink) {
+		this.phaseTimingSink = phaseTimingSink;
+	}
+
+	/**
+	 * Gets the cache of the routes resolved for the requested URLs.
+	 * 
+	 * @return the route cache, or null if routes are not cached
+	 */
+	public RouteCache getRouteCache() {
+		return routeCache;
+	}
+
+	/**
+	 * Sets the cache used to keep the mapped method and the path parameters
+	 * resolved for the most requested URLs, so that the routing trie is not
+	 * walked again for them. The cache should be set only on resources that
+	 * serve a limited set of hot URLs, and it must not be shared with other
+	 * resources. Routes are not cached if no cache is set (the default).
+	 * 
+	 * @param routeCache
+	 *            the route cache, or null to stop caching routes.
+	 */
+	public void setRouteCache(RouteCache routeCache) {
+		this.routeCache = routeCache;
+	}
+
+	/**
+	 * Gets the number of bytes kept in memory while a request body is spooled
+	 * to a temporary file.
+	 * 
+	 * @return the memory threshold in bytes
+	 * @see #setRequestBodyMemoryThreshold(int)
+	 */
+	public int getRequestBodyMemoryThreshold() {
+		return requestBodyMemoryThreshold;
+	}
+
+	/**
+	 * Sets the number of bytes kept in memory while a request body is spooled
+	 * to a temporary file for a {@link java.io.File} parameter annotated with
+	 * {@link org.wicketstuff.rest.annotations.parameters.RequestBody}. The
+	 * body is written to disk every time this many bytes have been read. The
+	 * default value is {@link #DEFAULT_REQUEST_BODY_MEMORY_THRESHOLD}.
+	 * 
+	 * @param requestBodyMemoryThreshold
+	 *            the memory threshold in bytes, must be positive.
+	 */
+	public void setRequestBodyMemoryThreshold(int requestBodyMemoryThreshold) {
+		Args.isTrue(requestBodyMemoryThreshold > 0, "requestBodyMemoryThreshold must be positive");
+		this.requestBodyMemoryThreshold = requestBodyMemoryThreshold;
+	}
+
+	/**
+	 * Checks if string values are always converted with the converters of the
+	 * application.
+	 * 
+	 * @return true if only the converters of the application are used
+	 * @see #setUseApplicationConverters(boolean)
+	 */
+	public boolean isUseApplicationConverters() {
+		return useApplicationConverters;
+	}
+
+	/**
+	 * By default strings, primitive types, UUID, enums and ISO 8601 dates are
+	 * converted with the built-in converters of {@link TextConverters}, using
+	 * the converters of the application only for the values they can't
+	 * handle. Set this flag to true if the application registers custom
+	 * converters for these types.
+	 * 
+	 * @param useApplicationConverters
+	 *            true to always use the converters of the application.
+	 */
+	public void setUseApplicationConverters(boolean useApplicationConverters) {
+		this.useApplicationConverters = useApplicationConverters;
+	}
+
 	/**
 	 * Utility method to check that the user owns one of the roles provided in
 	 * input.
@@ -0,0 +1,57 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource;
+
+import java.util.List;
+
+import org.wicketstuff.rest.annotations.AuthorizeInvocation;
+import org.wicketstuff.rest.annotations.MethodMapping;
+
+/**
+ * Table of the mapped methods of a resource class, generated at build time
+ * by the annotation processor of module restannotations-apt. The table is a
+ * class in the same package of the resource, named after the resource class
+ * with suffix {@link #CLASS_SUFFIX}. When the table is found,
+ * {@link MethodMappingTable} uses it instead of scanning the methods of the
+ * class and reading their annotations: URL segments, roles and parameter
+ * declarations are written in the table, mapped methods are called directly
+ * instead of with reflection and ambiguities between methods are not checked
+ * again, since the processor has already rejected them.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public interface IRestMappings {
+	/** Suffix appended to the name of the resource class to name its table. */
+	public static final String CLASS_SUFFIX = "_RestMappings";
+
+	/**
+	 * Creates the mapped methods of the resource class, i.e. its methods
+	 * annotated with {@link MethodMapping}.
+	 * 
+	 * @return the mapped methods
+	 */
+	public List<MethodMappingInfo> loadMappedMethods();
+
+	/**
+	 * Checks if annotation {@link AuthorizeInvocation} is used in the
+	 * resource class.
+	 * 
+	 * @return true if the annotation is used, false otherwise
+	 */
+	public boolean isUsingAuthorizeInvocation();
+}
@@ -16,11 +16,15 @@
  */
 package org.wicketstuff.rest.resource;
 
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.wicket.authroles.authorization.strategies.role.Roles;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
@@ -28,7 +32,15 @@ import org.wicketstuff.rest.annotations.AuthorizeInvocation;
 import org.wicketstuff.rest.annotations.MethodMapping;
 import org.wicketstuff.rest.contenthandling.RestMimeTypes;
 import org.wicketstuff.rest.resource.urlsegments.AbstractURLSegment;
+import org.wicketstuff.rest.resource.urlsegments.MultiParamSegment;
+import org.wicketstuff.rest.resource.urlsegments.ParamSegment;
+import org.wicketstuff.rest.utils.http.ContentNegotiator;
 import org.wicketstuff.rest.utils.http.HttpMethod;
+import org.wicketstuff.rest.utils.reflection.IMethodInvoker;
+import org.wicketstuff.rest.utils.reflection.MethodParameter;
+import org.wicketstuff.rest.utils.reflection.ParameterDeclaration;
+import org.wicketstuff.rest.utils.reflection.ReflectionUtils;
+import org.wicketstuff.rest.utils.reflection.ReflectiveMethodInvoker;
 
 // TODO: Auto-generated Javadoc
 /**
@@ -44,6 +56,8 @@ public class MethodMappingInfo {
 	private final HttpMethod httpMethod;
 	/** Segments that compose the URL we mapped the method on. */
 	private final List<AbstractURLSegment> segments;
+	/** The URL we mapped the method on, normalized from its segments. */
+	private final String urlPath;
 	
 	/** Optional roles we used to annotate the method (see. {@link AuthorizeInvocation}). */
 	private final Roles roles;
@@ -51,8 +65,16 @@ public class MethodMappingInfo {
 	private final Method method;
 	/** The MIME type to use in input. */
 	private final String inputFormat;
-	/** The MIME type to use in output. */
-	private final String outputFormat;
+	/** The MIME types produced in output, as they were declared. */
+	private final String[] outputFormats;
+	/** Selects the output type following the 'Accept' header. */
+	private final ContentNegotiator contentNegotiator;
+	/** Names of the path parameters, in the same order they appear in the URL. */
+	private final List<String> pathParameterNames;
+	/** The parameters of the mapped method, ready to be bound at request time. */
+	private final List<MethodParameter> methodParameters;
+	/** The invoker used to call the mapped method. */
+	private final IMethodInvoker invoker;
 
 	/**
 	 * Class constructor.
@@ -61,14 +83,83 @@ public class MethodMappingInfo {
 	 * @param method the resource's method mapped.
 	 */
 	public MethodMappingInfo(MethodMapping methodMapped, Method method) {
-		this.httpMethod = methodMapped.httpMethod();
+		this(methodMapped.httpMethod(), methodMapped.value(), methodMapped.consumes(),
+				methodMapped.produces(), method, null);
+	}
+
+	/**
+	 * Class constructor used by the tables generated at build time (see
+	 * {@link IRestMappings}), which read the values of {@link MethodMapping}
+	 * from the source code.
+	 * 
+	 * @param httpMethod
+	 *            the HTTP method used to invoke the method.
+	 * @param urlPath
+	 *            the URL the method is mapped on.
+	 * @param consumes
+	 *            the MIME type to use in input.
+	 * @param produces
+	 *            the MIME types produced in output, in order of preference.
+	 * @param method
+	 *            the resource's method mapped.
+	 * @param invoker
+	 *            the invoker used to call the method, or null to call it with
+	 *            reflection.
+	 */
+	public MethodMappingInfo(HttpMethod httpMethod, String urlPath, String consumes,
+			String[] produces, Method method, IMethodInvoker invoker) {
+		this(httpMethod, loadSegments(urlPath), consumes, produces, loadRoles(method), method,
+				invoker, null);
+	}
+
+	/**
+	 * Class constructor used by the tables generated at build time (see
+	 * {@link IRestMappings}), which parse the mapped URL and read the
+	 * annotations of the method and of its parameters from the source code.
+	 * 
+	 * @param httpMethod
+	 *            the HTTP method used to invoke the method.
+	 * @param segments
+	 *            the segments of the URL the method is mapped on.
+	 * @param consumes
+	 *            the MIME type to use in input.
+	 * @param produces
+	 *            the MIME types produced in output, in order of preference.
+	 * @param roles
+	 *            the roles declared with {@link AuthorizeInvocation}, empty if
+	 *            the method is not annotated.
+	 * @param method
+	 *            the resource's method mapped.
+	 * @param invoker
+	 *            the invoker used to call the method, or null to call it with
+	 *            reflection.
+	 * @param parameters
+	 *            the declarations of the method parameters, null for the
+	 *            parameters which are not annotated.
+	 */
+	public MethodMappingInfo(HttpMethod httpMethod, AbstractURLSegment[] segments,
+			String consumes, String[] produces, String[] roles, Method method,
+			IMethodInvoker invoker, ParameterDeclaration[] parameters) {
+		this(httpMethod, Arrays.asList(segments), consumes, produces, new Roles(roles), method,
+				invoker, parameters);
+	}
+
+	private MethodMappingInfo(HttpMethod httpMethod, List<AbstractURLSegment> segments,
+			String consumes, String[] produces, Roles roles, Method method,
+			IMethodInvoker invoker, ParameterDeclaration[] parameters) {
+		this.httpMethod = httpMethod;
 		this.method = method;
-		this.segments = Collections.unmodifiableList(loadSegments(methodMapped.value()));
-		this.roles = loadRoles();
+		this.segments = Collections.unmodifiableList(segments);
+		this.urlPath = loadUrlPath();
+		this.roles = roles;
 
-		this.inputFormat = methodMapped.consumes();
-		this.outputFormat = methodMapped.produces();
+		this.inputFormat = ContentNegotiator.normalize(consumes);
+		this.contentNegotiator = new ContentNegotiator(produces);
+		this.outputFormats = contentNegotiator.getProducedTypes();
 
+		this.pathParameterNames = Collections.unmodifiableList(loadPathParameterNames());
+		this.methodParameters = Collections.unmodifiableList(loadMethodParameters(parameters));
+		this.invoker = invoker != null ? invoker : new ReflectiveMethodInvoker(method);
 	}
 
 	/**
@@ -79,7 +170,7 @@ public class MethodMappingInfo {
 	 *            the URL path of the method.
 	 * @return a list containing the segments that compose the URL in input
 	 */
-	private List<AbstractURLSegment> loadSegments(String urlPath) {
+	private static List<AbstractURLSegment> loadSegments(String urlPath) {
 		String[] segArray = urlPath.split("/");
 		ArrayList<AbstractURLSegment> segments = new ArrayList<AbstractURLSegment>();
 
@@ -97,13 +188,89 @@ public class MethodMappingInfo {
 		return segments;
 	}
 
+	/**
+	 * Builds the URL of the method joining its segments.
+	 * 
+	 * @return the URL path, starting with '/'
+	 */
+	private String loadUrlPath() {
+		StringBuilder builder = new StringBuilder();
+
+		for (AbstractURLSegment segment : segments) {
+			builder.append('/').append(segment);
+		}
+
+		return builder.length() == 0 ? "/" : builder.toString();
+	}
+
+	/**
+	 * Loads the names of the path parameters declared in the segments of the
+	 * URL. Names are returned once and in the same order they are found by
+	 * {@link #populatePathParameters(PageParameters)}.
+	 * 
+	 * @return the list of the path parameter names.
+	 */
+	private List<String> loadPathParameterNames() {
+		Set<String> names = new LinkedHashSet<String>();
+
+		for (AbstractURLSegment segment : segments) {
+			if (segment instanceof ParamSegment) {
+				names.add(((ParamSegment) segment).getParamName());
+			} else if (segment instanceof MultiParamSegment) {
+				for (AbstractURLSegment subSegment : ((MultiParamSegment) segment)
+						.getSubSegments()) {
+					if (subSegment instanceof ParamSegment)
+						names.add(((ParamSegment) subSegment).getParamName());
+				}
+			}
+		}
+
+		return new ArrayList<String>(names);
+	}
+
+	/**
+	 * Loads the parameters of the mapped method. Parameters which are not
+	 * annotated (see {@link ReflectionUtils#getAnnotationParam(int, Method)})
+	 * take their value from path parameters, following the order of the URL.
+	 * 
+	 * @param declarations
+	 *            the declarations of the parameters generated at build time,
+	 *            or null to read them from the parameter annotations.
+	 * @return the list of the method parameters.
+	 */
+	private List<MethodParameter> loadMethodParameters(ParameterDeclaration[] declarations) {
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		List<MethodParameter> parameters = new ArrayList<MethodParameter>(parameterTypes.length);
+		int pathParameterIndex = 0;
+
+		for (int i = 0; i < parameterTypes.length; i++) {
+			if (declarations != null && declarations[i] != null) {
+				parameters.add(new MethodParameter(parameterTypes[i], this, i, declarations[i]));
+				continue;
+			}
+
+			Annotation annotation = declarations == null ? ReflectionUtils.getAnnotationParam(i,
+					method) : null;
+			String pathParameterName = null;
+
+			if (annotation == null && pathParameterIndex < pathParameterNames.size())
+				pathParameterName = pathParameterNames.get(pathParameterIndex++);
+
+			parameters.add(new MethodParameter(parameterTypes[i], this, i, annotation,
+					pathParameterName));
+		}
+
+		return parameters;
+	}
+
 	/**
 	 * Load the optional roles used to annotate the method with.
 	 *
+	 * @param method the resource's method mapped.
 	 * @return the authorization roles for the method.
 	 * {@link AuthorizeInvocation}
 	 */
-	private Roles loadRoles() {
+	private static Roles loadRoles(Method method) {
 		AuthorizeInvocation authorizeInvocation = method.getAnnotation(AuthorizeInvocation.class);
 		Roles roles = new Roles();
 
@@ -122,15 +289,52 @@ public class MethodMappingInfo {
 	 * @return a Map containing the path parameters with their relative value.
 	 */
 	public LinkedHashMap<String, String> populatePathParameters(PageParameters pageParameters) {
-		LinkedHashMap<String, String> pathParameters = new LinkedHashMap<String, String>();
 		int indexedCount = pageParameters.getIndexedCount();
+		String[] actualSegments = new String[indexedCount];
 
 		for (int i = 0; i < indexedCount; i++) {
-			String segmentContent = AbstractURLSegment.getActualSegment(pageParameters.get(i)
+			actualSegments[i] = AbstractURLSegment.getActualSegment(pageParameters.get(i)
 					.toString());
-			AbstractURLSegment segment = segments.get(i);
+		}
+
+		return populatePathParameters(actualSegments);
+	}
+
+	/**
+	 * Populates the path parameters found in the mapped URL with the given
+	 * segments of the current request.
+	 * 
+	 * @param actualSegments
+	 *            the segments of the current request, without matrix
+	 *            parameters.
+	 * @return a Map containing the path parameters with their relative value.
+	 */
+	public LinkedHashMap<String, String> populatePathParameters(String[] actualSegments) {
+		LinkedHashMap<String, String> pathParameters = new LinkedHashMap<String, String>();
+
+		for (int i = 0; i < actualSegments.length; i++) {
+			segments.get(i).populatePathVariables(pathParameters, actualSegments[i]);
+		}
+
+		return pathParameters;
+	}
+
+	/**
+	 * Populates the path parameters found in the mapped URL with the segments
+	 * of the current request, reusing the values captured while the segments
+	 * were matched (see
+	 * {@link AbstractURLSegment#calculateScore(RestRequestContext, int)}).
+	 * 
+	 * @param context
+	 *            the context of the current request.
+	 * @return a Map containing the path parameters with their relative value.
+	 */
+	public LinkedHashMap<String, String> populatePathParameters(RestRequestContext context) {
+		LinkedHashMap<String, String> pathParameters = new LinkedHashMap<String, String>();
+		int segmentCount = context.getSegmentCount();
 
-			segment.populatePathVariables(pathParameters, segmentContent);
+		for (int i = 0; i < segmentCount; i++) {
+			segments.get(i).populatePathVariables(pathParameters, context, i);
 		}
 
 		return pathParameters;
@@ -147,6 +351,16 @@ public class MethodMappingInfo {
 		return segments;
 	}
 
+	/**
+	 * Gets the URL the method is mapped on, in the form
+	 * '/segment1/segment2/...'.
+	 * 
+	 * @return the URL path
+	 */
+	public String getUrlPath() {
+		return urlPath;
+	}
+
 	/**
 	 * Gets the segments count.
 	 * 
@@ -156,6 +370,50 @@ public class MethodMappingInfo {
 		return segments.size();
 	}
 
+	/**
+	 * Gets the names of the path parameters in the same order they appear in
+	 * the URL.
+	 * 
+	 * @return the path parameter names
+	 */
+	public List<String> getPathParameterNames() {
+		return pathParameterNames;
+	}
+
+	/**
+	 * Gets the parameters of the mapped method.
+	 * 
+	 * @return the method parameters
+	 */
+	public List<MethodParameter> getMethodParameters() {
+		return methodParameters;
+	}
+
+	/**
+	 * Checks if the method reads the raw request body (see
+	 * {@link MethodParameter#isRawRequestBody()}), which is not handled by the
+	 * object serializer.
+	 * 
+	 * @return true if a parameter receives the raw request body
+	 */
+	public boolean isReadingRawRequestBody() {
+		for (MethodParameter methodParameter : methodParameters) {
+			if (methodParameter.isRawRequestBody())
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Gets the invoker used to call the mapped method.
+	 * 
+	 * @return the method invoker
+	 */
+	public IMethodInvoker getInvoker() {
+		return invoker;
+	}
+
 	/**
 	 * Gets the HTTP method.
 	 * 
@@ -193,11 +451,46 @@ public class MethodMappingInfo {
 	}
 
 	/**
-	 * Gets the mime output format.
+	 * Gets the mime output format, i.e. the first type produced by the method.
 	 *
 	 * @return the mime output format
 	 */
 	public String getMimeOutputFormat() {
-		return outputFormat;
+		return outputFormats[0];
+	}
+
+	/**
+	 * Gets the MIME types produced by the method, as they were declared.
+	 *
+	 * @return the produced MIME types
+	 */
+	public String[] getMimeOutputFormats() {
+		return outputFormats.clone();
+	}
+
+	/**
+	 * Gets the number of MIME types produced by the method, without copying
+	 * them.
+	 *
+	 * @return the number of produced MIME types
+	 */
+	public int getMimeOutputFormatsCount() {
+		return outputFormats.length;
+	}
+
+	/**
+	 * Selects the output type following the 'Accept' header of the request
+	 * (see {@link ContentNegotiator}).
+	 *
+	 * @param acceptHeader
+	 *            the 'Accept' header of the request, or null if it's missing.
+	 * @return the selected type, as it was declared, or null if no produced
+	 *         type is acceptable
+	 */
+	public String negotiateMimeOutputFormat(String acceptHeader) {
+		if (outputFormats.length == 1)
+			return outputFormats[0];
+
+		return contentNegotiator.negotiate(acceptHeader);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,347 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource;
+
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.wicketstuff.rest.annotations.AuthorizeInvocation;
+import org.wicketstuff.rest.annotations.MethodMapping;
+import org.wicketstuff.rest.resource.routing.RouteOverlapAnalyzer;
+import org.wicketstuff.rest.resource.routing.RouteOverlapAnalyzer.Ambiguity;
+import org.wicketstuff.rest.resource.routing.RouteTrie;
+import org.wicketstuff.rest.utils.http.BinaryContentWriter;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+
+/**
+ * Immutable table of the methods mapped by a resource class. The table is
+ * built once per class the first time one of its instances is created and it
+ * is shared by every following instance, so that reflection and URL parsing
+ * are not repeated when a resource is created. Tables don't prevent their
+ * classes from being unloaded, but they are released only under memory
+ * pressure. If the table of the class has
+ * been generated at build time (see {@link IRestMappings}), it is used in
+ * place of reflection.<br/>
+ * Mapped methods that would match the same requests with the same score are
+ * rejected when the table is built.
+ *
+ * @author andrea del bene
+ *
+ */
+public class MethodMappingTable {
+	/**
+	 * Tables already loaded, indexed by resource class. Classes are weakly
+	 * referenced, so that the map doesn't keep alive the class loaders of
+	 * undeployed applications. A table references its class through its
+	 * methods, hence tables are softly referenced: they survive ordinary
+	 * garbage collections also when no resource instance uses them, and they
+	 * don't prevent their classes from being unloaded.
+	 */
+	private static final Map<Class<?>, SoftReference<MethodMappingTable>> TABLES = Collections
+			.synchronizedMap(new WeakHashMap<Class<?>, SoftReference<MethodMappingTable>>());
+
+	/** Every mapped method of the class. */
+	private final List<MethodMappingInfo> mappedMethods;
+
+	/** Routing trie built from the segments of the mapped methods. */
+	private final RouteTrie routeTrie;
+
+	/**
+	 * MIME types used by the mapped methods, both in input and in output,
+	 * which the object serializer must support. Input types of methods
+	 * reading the raw request body are excluded, as well as output types of
+	 * methods returning binary contents: these contents are serialized if the
+	 * serializer supports their type and written as they are otherwise (see
+	 * {@link BinaryContentWriter}).
+	 */
+	private final Set<String> mimeTypes;
+
+	/** Tells if annotation {@link AuthorizeInvocation} is used in the class. */
+	private final boolean usingAuthorizeInvocation;
+
+	/** HTTP methods used by at least a mapped method. */
+	private final Set<HttpMethod> httpMethods;
+
+	/** Value for header 'Allow', listing the HTTP methods used by the class. */
+	private final String allowHeader;
+
+	/** Tells, for every number of segments, if a mapped method uses it. */
+	private final boolean[] segmentCounts;
+
+	/**
+	 * Loads the table for the given resource class.
+	 *
+	 * @param resourceClass
+	 *            the resource class.
+	 */
+	MethodMappingTable(Class<?> resourceClass) {
+		IRestMappings generatedMappings = loadGeneratedMappings(resourceClass);
+		List<MethodMappingInfo> mappedMethods = new ArrayList<MethodMappingInfo>();
+		Set<String> mimeTypes = new LinkedHashSet<String>();
+		boolean isUsingAuthAnnot = false;
+
+		if (generatedMappings != null) {
+			mappedMethods.addAll(generatedMappings.loadMappedMethods());
+			isUsingAuthAnnot = generatedMappings.isUsingAuthorizeInvocation();
+		} else {
+			Method[] methods = resourceClass.getDeclaredMethods();
+
+			for (int i = 0; i < methods.length; i++) {
+				Method method = methods[i];
+				MethodMapping methodMapped = method.getAnnotation(MethodMapping.class);
+				AuthorizeInvocation authorizeInvocation = method
+						.getAnnotation(AuthorizeInvocation.class);
+
+				isUsingAuthAnnot = isUsingAuthAnnot || authorizeInvocation != null;
+
+				if (methodMapped != null)
+					mappedMethods.add(new MethodMappingInfo(methodMapped, method));
+			}
+
+			// generated tables have been already checked at build time
+			checkAmbiguities(resourceClass, mappedMethods);
+		}
+
+		for (MethodMappingInfo mappedMethod : mappedMethods) {
+			// raw request bodies don't need the object serializer
+			if (!mappedMethod.isReadingRawRequestBody())
+				mimeTypes.add(mappedMethod.getMimeInputFormat());
+
+			// binary contents don't need the object serializer
+			if (!BinaryContentWriter.isBinaryType(mappedMethod.getMethod().getReturnType()))
+				mimeTypes.addAll(Arrays.asList(mappedMethod.getMimeOutputFormats()));
+		}
+
+		this.mappedMethods = Collections.unmodifiableList(mappedMethods);
+		this.mimeTypes = Collections.unmodifiableSet(mimeTypes);
+		this.usingAuthorizeInvocation = isUsingAuthAnnot;
+		this.routeTrie = new RouteTrie(mappedMethods);
+
+		Set<HttpMethod> httpMethods = EnumSet.noneOf(HttpMethod.class);
+		int maxSegmentsCount = 0;
+
+		for (MethodMappingInfo mappedMethod : mappedMethods) {
+			httpMethods.add(mappedMethod.getHttpMethod());
+			maxSegmentsCount = Math.max(maxSegmentsCount, mappedMethod.getSegmentsCount());
+		}
+
+		StringBuilder allowHeader = new StringBuilder();
+
+		for (HttpMethod httpMethod : httpMethods) {
+			if (allowHeader.length() > 0)
+				allowHeader.append(", ");
+
+			allowHeader.append(httpMethod.getMethod());
+		}
+
+		this.segmentCounts = new boolean[maxSegmentsCount + 1];
+
+		for (MethodMappingInfo mappedMethod : mappedMethods) {
+			segmentCounts[mappedMethod.getSegmentsCount()] = true;
+		}
+
+		this.httpMethods = Collections.unmodifiableSet(httpMethods);
+		this.allowHeader = allowHeader.toString();
+	}
+
+	/**
+	 * Rejects the mapped methods that would match the same requests with the
+	 * same score (see {@link RouteOverlapAnalyzer}). The remaining methods are
+	 * selected following the priority order of {@link RouteTrie}, so a
+	 * request never matches more than one method.
+	 * 
+	 * @param resourceClass
+	 *            the resource class.
+	 * @param mappedMethods
+	 *            the mapped methods of the class.
+	 */
+	private static void checkAmbiguities(Class<?> resourceClass,
+			List<MethodMappingInfo> mappedMethods) {
+		RouteOverlapAnalyzer<MethodMappingInfo> analyzer = new RouteOverlapAnalyzer<MethodMappingInfo>();
+
+		for (MethodMappingInfo mappedMethod : mappedMethods) {
+			analyzer.addRoute(mappedMethod.getHttpMethod(), mappedMethod.getSegments(),
+					mappedMethod);
+		}
+
+		List<Ambiguity<MethodMappingInfo>> ambiguities = analyzer.findAmbiguities();
+
+		if (ambiguities.isEmpty())
+			return;
+
+		Ambiguity<MethodMappingInfo> ambiguity = ambiguities.get(0);
+
+		throw new WicketRuntimeException("Ambiguous methods mapped in class "
+				+ resourceClass.getName() + ": methods '"
+				+ ambiguity.getFirst().getMethod().getName() + "' and '"
+				+ ambiguity.getSecond().getMethod().getName() + "' both match requests like '"
+				+ ambiguity.getExample() + "', HTTP method "
+				+ ambiguity.getFirst().getHttpMethod() + ".");
+	}
+
+	/**
+	 * Loads the table generated at build time for the given resource class
+	 * (see {@link IRestMappings}).
+	 * 
+	 * @param resourceClass
+	 *            the resource class.
+	 * @return the generated table, or null if the class has no generated
+	 *         table.
+	 */
+	private static IRestMappings loadGeneratedMappings(Class<?> resourceClass) {
+		ClassLoader classLoader = resourceClass.getClassLoader();
+		Class<?> mappingsClass;
+
+		try {
+			mappingsClass = Class.forName(resourceClass.getName() + IRestMappings.CLASS_SUFFIX,
+					true, classLoader);
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+
+		if (!IRestMappings.class.isAssignableFrom(mappingsClass))
+			return null;
+
+		try {
+			return (IRestMappings) mappingsClass.newInstance();
+		} catch (Exception e) {
+			throw new WicketRuntimeException("Error loading generated mappings "
+					+ mappingsClass.getName(), e);
+		}
+	}
+
+	/**
+	 * Returns the table of the given resource class, loading it if this is the
+	 * first request for the class.
+	 *
+	 * @param resourceClass
+	 *            the resource class.
+	 * @return the table of the mapped methods of the class.
+	 */
+	public static MethodMappingTable forClass(Class<?> resourceClass) {
+		MethodMappingTable table = getTable(resourceClass);
+
+		if (table != null)
+			return table;
+
+		MethodMappingTable newTable = new MethodMappingTable(resourceClass);
+
+		synchronized (TABLES) {
+			table = getTable(resourceClass);
+
+			if (table == null) {
+				table = newTable;
+				TABLES.put(resourceClass, new SoftReference<MethodMappingTable>(table));
+			}
+		}
+
+		return table;
+	}
+
+	private static MethodMappingTable getTable(Class<?> resourceClass) {
+		SoftReference<MethodMappingTable> reference = TABLES.get(resourceClass);
+
+		return reference != null ? reference.get() : null;
+	}
+
+	/**
+	 * Gets the mapped methods of the class.
+	 *
+	 * @return the mapped methods
+	 */
+	public List<MethodMappingInfo> getMappedMethods() {
+		return mappedMethods;
+	}
+
+	/**
+	 * Gets the routing trie of the class.
+	 *
+	 * @return the routing trie
+	 */
+	public RouteTrie getRouteTrie() {
+		return routeTrie;
+	}
+
+	/**
+	 * Gets the MIME types used by the mapped methods.
+	 *
+	 * @return the MIME types
+	 */
+	public Set<String> getMimeTypes() {
+		return mimeTypes;
+	}
+
+	/**
+	 * Checks if the structure of a request rules out every mapped method,
+	 * without matching any segment. A request can't be served if its HTTP
+	 * method is not used by any mapped method (status 405), or if no mapped
+	 * method has its number of segments (status 404).
+	 * 
+	 * @param httpMethod
+	 *            the HTTP method of the request.
+	 * @param segmentsCount
+	 *            the number of segments of the request.
+	 * @return the status code to reject the request with, or 0 if some mapped
+	 *         method might serve the request.
+	 */
+	public int getRejectionStatus(HttpMethod httpMethod, int segmentsCount) {
+		if (!httpMethods.contains(httpMethod))
+			return 405;
+
+		if (segmentsCount >= segmentCounts.length || !segmentCounts[segmentsCount])
+			return 404;
+
+		return 0;
+	}
+
+	/**
+	 * Gets the HTTP methods used by the mapped methods.
+	 * 
+	 * @return the HTTP methods
+	 */
+	public Set<HttpMethod> getHttpMethods() {
+		return httpMethods;
+	}
+
+	/**
+	 * Gets the value of header 'Allow' for the responses with status 405.
+	 * 
+	 * @return the HTTP methods used by the mapped methods, separated by comma
+	 */
+	public String getAllowHeader() {
+		return allowHeader;
+	}
+
+	/**
+	 * Checks if annotation {@link AuthorizeInvocation} is used in the class.
+	 *
+	 * @return true if the annotation is used, false otherwise
+	 */
+	public boolean isUsingAuthorizeInvocation() {
+		return usingAuthorizeInvocation;
+	}
+}
@@ -0,0 +1,244 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.Application;
+import org.apache.wicket.ThreadContext;
+import org.apache.wicket.protocol.http.servlet.ServletWebRequest;
+import org.apache.wicket.protocol.http.servlet.ServletWebResponse;
+import org.apache.wicket.request.IRequestMapper;
+import org.apache.wicket.request.mapper.ICompoundRequestMapper;
+import org.wicketstuff.rest.annotations.AuthorizeInvocation;
+
+/**
+ * Servlet filter that serves REST requests without going through the Wicket
+ * request cycle. The filter must be placed before the WicketFilter of the
+ * application and it uses the {@link RestRequestMapper} mounted in the
+ * application to find the resource and the mapped method for every request.
+ * The request is served directly with the servlet request and response
+ * wrapped by {@link ServletWebRequest} and {@link ServletWebResponse}, so no
+ * request cycle, session, response buffering or page parameters other than
+ * the ones of the resource are created.<br/>
+ * <br/>
+ * Since no session is available, only requests for stateless resources (see
+ * {@link AbstractRestResource#setStateless(boolean)}) invoking methods with
+ * no {@link AuthorizeInvocation} annotation are served by the filter. Any
+ * other request, including the ones that don't match a mapped method, is
+ * passed to the next filter of the chain and it is served by Wicket as usual,
+ * so role checks and error reporting don't change.<br/>
+ * <br/>
+ * Example of configuration in web.xml:
+ * 
+ * <pre>
+ * &lt;filter&gt;
+ *     &lt;filter-name&gt;rest&lt;/filter-name&gt;
+ *     &lt;filter-class&gt;org.wicketstuff.rest.resource.RestFilter&lt;/filter-class&gt;
+ *     &lt;init-param&gt;
+ *         &lt;param-name&gt;applicationName&lt;/param-name&gt;
+ *         &lt;param-value&gt;wicket.myapp&lt;/param-value&gt;
+ *     &lt;/init-param&gt;
+ * &lt;/filter&gt;
+ * </pre>
+ * 
+ * where 'wicket.myapp' is the filter name of the WicketFilter. If the
+ * WicketFilter is not mapped to '/*', init parameter 'filterPath' must contain
+ * the same path used by the WicketFilter (for example 'app').
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class RestFilter implements Filter {
+	/** Init parameter with the name of the Wicket application. */
+	public static final String APP_NAME_PARAM = "applicationName";
+
+	/** Init parameter with the filter path of the Wicket application. */
+	public static final String FILTER_PATH_PARAM = "filterPath";
+
+	/** The name of the Wicket application. */
+	private String applicationName;
+
+	/** The filter path of the Wicket application, without leading '/'. */
+	private String filterPath = "";
+
+	/** The Wicket application, resolved with the first request. */
+	private volatile Application application;
+
+	/** The mapper of the REST resources, resolved with the first request. */
+	private volatile RestRequestMapper requestMapper;
+
+	/**
+	 * Constructor used when the filter is configured in web.xml.
+	 */
+	public RestFilter() {
+	}
+
+	/**
+	 * Constructor supporting programmatic setup of the filter.
+	 * 
+	 * @param application
+	 *            the Wicket application.
+	 * @param requestMapper
+	 *            the mapper of the REST resources.
+	 * @param filterPath
+	 *            the filter path of the Wicket application.
+	 */
+	public RestFilter(Application application, RestRequestMapper requestMapper, String filterPath) {
+		this.application = application;
+		this.requestMapper = requestMapper;
+		this.filterPath = normalizeFilterPath(filterPath);
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		String applicationName = filterConfig.getInitParameter(APP_NAME_PARAM);
+		String filterPath = filterConfig.getInitParameter(FILTER_PATH_PARAM);
+
+		if (applicationName != null)
+			this.applicationName = applicationName;
+
+		if (filterPath != null)
+			this.filterPath = normalizeFilterPath(filterPath);
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		RestRequestMapper requestMapper = getRequestMapper();
+
+		if (requestMapper == null || !(request instanceof HttpServletRequest)) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		ServletWebRequest webRequest = new ServletWebRequest((HttpServletRequest) request,
+				filterPath);
+		RestRequestHandler handler = requestMapper.mapRequest(webRequest);
+
+		if (!canServe(handler)) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		ServletWebResponse webResponse = new ServletWebResponse(webRequest,
+				(HttpServletResponse) response);
+		// converters are taken from the application bound to the thread
+		ThreadContext previousContext = ThreadContext.detach();
+
+		try {
+			ThreadContext.setApplication(application);
+			handler.respond(webRequest, webResponse);
+		} finally {
+			ThreadContext.restore(previousContext);
+		}
+	}
+
+	/**
+	 * Checks if the request mapped to the given handler can be served without
+	 * a request cycle.
+	 * 
+	 * @param handler
+	 *            the handler returned by the mapper.
+	 * @return true if the filter can serve the request, false if it must be
+	 *         served by Wicket.
+	 */
+	protected boolean canServe(RestRequestHandler handler) {
+		if (handler == null || handler.getMappedMethod() == null)
+			return false;
+
+		return handler.getResource().isStateless()
+				&& handler.getMappedMethod().getRoles().isEmpty();
+	}
+
+	@Override
+	public void destroy() {
+		application = null;
+		requestMapper = null;
+	}
+
+	/**
+	 * Returns the mapper of the REST resources, looking it up in the
+	 * application the first time it is requested.
+	 * 
+	 * @return the mapper, or null if the application is not available yet or
+	 *         it has no {@link RestRequestMapper}
+	 */
+	private RestRequestMapper getRequestMapper() {
+		RestRequestMapper mapper = requestMapper;
+
+		if (mapper != null || applicationName == null)
+			return mapper;
+
+		// the application is created by the WicketFilter, which might be
+		// initialized after this filter.
+		Application application = Application.get(applicationName);
+
+		if (application == null)
+			return null;
+
+		IRequestMapper rootMapper = application.getRootRequestMapper();
+
+		if (rootMapper instanceof ICompoundRequestMapper) {
+			for (IRequestMapper mapperItem : (ICompoundRequestMapper) rootMapper) {
+				if (mapperItem instanceof RestRequestMapper) {
+					mapper = (RestRequestMapper) mapperItem;
+					break;
+				}
+			}
+		}
+
+		if (mapper != null) {
+			this.application = application;
+			this.requestMapper = mapper;
+		}
+
+		return mapper;
+	}
+
+	/**
+	 * Removes the leading and trailing '/' and the wildcard from a filter
+	 * path.
+	 * 
+	 * @param filterPath
+	 *            the filter path.
+	 * @return the normalized filter path.
+	 */
+	private static String normalizeFilterPath(String filterPath) {
+		String path = filterPath.trim();
+
+		if (path.endsWith("*"))
+			path = path.substring(0, path.length() - 1);
+
+		while (path.startsWith("/"))
+			path = path.substring(1);
+
+		while (path.endsWith("/"))
+			path = path.substring(0, path.length() - 1);
+
+		return path;
+	}
+}
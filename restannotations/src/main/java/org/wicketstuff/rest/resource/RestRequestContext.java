@@ -0,0 +1,459 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.http.Cookie;
+
+import org.apache.wicket.request.http.WebRequest;
+import org.apache.wicket.request.http.WebResponse;
+import org.wicketstuff.rest.resource.metrics.RequestPhase;
+import org.wicketstuff.rest.resource.urlsegments.AbstractURLSegment;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+
+/**
+ * Contains the informations of the request being served by a REST resource.
+ * An instance is created for every request and it is used to read the request
+ * data only once: the HTTP method and the URL segments are parsed when the
+ * context is created, while matrix parameters and cookies are parsed the
+ * first time one of them is read. Segments are relative to the path the
+ * resource is mounted on.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class RestRequestContext {
+	/** The current request. */
+	private final WebRequest request;
+
+	/** The current response. */
+	private WebResponse response;
+
+	/** The HTTP method of the current request. */
+	private final HttpMethod httpMethod;
+
+	/** The URL segments, including their matrix parameters. */
+	private final String[] segments;
+
+	/** The URL segments without matrix parameters. */
+	private final String[] actualSegments;
+
+	/** The matrix parameters of each segment, parsed on first use. */
+	private Map<String, String>[] matrixParameters;
+
+	/** The values of the cookies indexed by name, read on first use. */
+	private Map<String, String> cookies;
+
+	/**
+	 * The normalized text of the segments which captured the values below (see
+	 * {@link AbstractURLSegment#getNormalizedText()}).
+	 */
+	private String[] captureKeys;
+
+	/**
+	 * The values captured by the segments of the mapped URLs while they were
+	 * matched, indexed by segment of the request.
+	 */
+	private String[][] capturedValues;
+
+	/** The mapped method selected to serve the request. */
+	private MethodMappingInfo mappedMethod;
+
+	/** Tells if the mapped method has been selected, even if none matches. */
+	private boolean mappedMethodSelected;
+
+	/** Tells if a parameter value couldn't be converted. */
+	private boolean conversionFailed;
+
+	/** The path parameters of the mapped method, extracted on first use. */
+	private Map<String, String> pathParameters;
+
+	/** The locale used to convert string values, resolved on first use. */
+	private Locale locale;
+
+	/** Temporary files to delete once the request has been served. */
+	private List<File> temporaryFiles;
+
+	/**
+	 * Nanoseconds spent in each phase, indexed by phase ordinal. Null if phase
+	 * timing is disabled.
+	 */
+	private long[] phaseNanos;
+
+	RestRequestContext(WebRequest request, HttpMethod httpMethod, String[] segments) {
+		this.request = request;
+		this.httpMethod = httpMethod;
+		this.segments = segments;
+		this.actualSegments = new String[segments.length];
+
+		for (int i = 0; i < segments.length; i++) {
+			actualSegments[i] = AbstractURLSegment.getActualSegment(segments[i]);
+		}
+	}
+
+	/**
+	 * Creates a context reading the URL segments from the given list.
+	 * 
+	 * @param request
+	 *            the current request.
+	 * @param httpMethod
+	 *            the HTTP method of the request.
+	 * @param urlSegments
+	 *            the segments of the request URL.
+	 * @param firstSegment
+	 *            the index of the first segment after the mount path.
+	 * @return the new context.
+	 */
+	static RestRequestContext forSegments(WebRequest request, HttpMethod httpMethod,
+			List<String> urlSegments, int firstSegment) {
+		String[] segments = new String[urlSegments.size() - firstSegment];
+
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = urlSegments.get(firstSegment + i);
+		}
+
+		return new RestRequestContext(request, httpMethod, segments);
+	}
+
+	/**
+	 * Gets the current request.
+	 * 
+	 * @return the request
+	 */
+	public WebRequest getRequest() {
+		return request;
+	}
+
+	/**
+	 * Gets the current response.
+	 * 
+	 * @return the response
+	 */
+	public WebResponse getResponse() {
+		return response;
+	}
+
+	void setResponse(WebResponse response) {
+		this.response = response;
+	}
+
+	/**
+	 * Gets the HTTP method of the current request.
+	 * 
+	 * @return the HTTP method
+	 */
+	public HttpMethod getHttpMethod() {
+		return httpMethod;
+	}
+
+	/**
+	 * Gets the number of URL segments.
+	 * 
+	 * @return the number of segments
+	 */
+	public int getSegmentCount() {
+		return segments.length;
+	}
+
+	/**
+	 * Gets a URL segment, including its matrix parameters.
+	 * 
+	 * @param index
+	 *            the index of the segment.
+	 * @return the segment
+	 */
+	public String getSegment(int index) {
+		return segments[index];
+	}
+
+	/**
+	 * Gets a URL segment without its matrix parameters.
+	 * 
+	 * @param index
+	 *            the index of the segment.
+	 * @return the segment without matrix parameters
+	 */
+	public String getActualSegment(int index) {
+		return actualSegments[index];
+	}
+
+	/**
+	 * Gets the URL segments without matrix parameters. The returned array must
+	 * not be modified.
+	 * 
+	 * @return the segments without matrix parameters
+	 */
+	public String[] getActualSegments() {
+		return actualSegments;
+	}
+
+	/**
+	 * Gets the value of a matrix parameter. The parameters of a segment are
+	 * parsed the first time one of them is read.
+	 * 
+	 * @param segmentIndex
+	 *            the index of the segment containing the parameter.
+	 * @param name
+	 *            the name of the parameter.
+	 * @return the value of the parameter, or null if the segment doesn't
+	 *         exist or it doesn't contain the parameter
+	 */
+	public String getMatrixParameter(int segmentIndex, String name) {
+		if (segmentIndex < 0 || segmentIndex >= segments.length)
+			return null;
+
+		// segments without matrix parameters are never parsed
+		if (segments[segmentIndex].length() == actualSegments[segmentIndex].length())
+			return null;
+
+		if (matrixParameters == null) {
+			@SuppressWarnings("unchecked")
+			Map<String, String>[] segmentsParameters = (Map<String, String>[]) new Map<?, ?>[
+					segments.length];
+
+			matrixParameters = segmentsParameters;
+		}
+
+		Map<String, String> parameters = matrixParameters[segmentIndex];
+
+		if (parameters == null) {
+			parameters = AbstractURLSegment.getSegmentMatrixParameters(segments[segmentIndex]);
+			matrixParameters[segmentIndex] = parameters;
+		}
+
+		return parameters.get(name);
+	}
+
+	/**
+	 * Gets the value of a cookie. Cookies are read from the request the first
+	 * time one of them is requested.
+	 * 
+	 * @param name
+	 *            the name of the cookie.
+	 * @return the value of the cookie, or null if the request doesn't contain
+	 *         it
+	 */
+	public String getCookieValue(String name) {
+		if (cookies == null) {
+			List<Cookie> requestCookies = request.getCookies();
+
+			cookies = new HashMap<String, String>(Math.max(requestCookies.size() * 2, 4));
+
+			// like WebRequest#getCookie(String), the first cookie wins
+			for (Cookie cookie : requestCookies) {
+				if (!cookies.containsKey(cookie.getName()))
+					cookies.put(cookie.getName(), cookie.getValue());
+			}
+		}
+
+		return cookies.get(name);
+	}
+
+	/**
+	 * Gets the values captured by a segment of a mapped URL while it was
+	 * matched with a segment of the request, so that they are not extracted
+	 * again. Captures are shared by the segments with the same normalized
+	 * text (see {@link AbstractURLSegment#getNormalizedText()}), which capture
+	 * the same values in the same order even if their parameters have
+	 * different names.
+	 * 
+	 * @param segmentIndex
+	 *            the index of the segment of the request.
+	 * @param segment
+	 *            the segment of the mapped URL.
+	 * @return the captured values, or null if a segment like the given one has
+	 *         not been the last one to capture the request segment
+	 */
+	public String[] getCapturedValues(int segmentIndex, AbstractURLSegment segment) {
+		if (captureKeys == null || !segment.getNormalizedText().equals(captureKeys[segmentIndex]))
+			return null;
+
+		return capturedValues[segmentIndex];
+	}
+
+	/**
+	 * Stores the values captured by a segment of a mapped URL while it was
+	 * matched with a segment of the request.
+	 * 
+	 * @param segmentIndex
+	 *            the index of the segment of the request.
+	 * @param segment
+	 *            the segment of the mapped URL.
+	 * @param values
+	 *            the captured values.
+	 */
+	public void setCapturedValues(int segmentIndex, AbstractURLSegment segment, String[] values) {
+		if (captureKeys == null) {
+			captureKeys = new String[segments.length];
+			capturedValues = new String[segments.length][];
+		}
+
+		captureKeys[segmentIndex] = segment.getNormalizedText();
+		capturedValues[segmentIndex] = values;
+	}
+
+	/**
+	 * Gets the mapped method selected to serve the request.
+	 * 
+	 * @return the mapped method, or null if it has not been selected yet or
+	 *         no method matches the request
+	 */
+	public MethodMappingInfo getMappedMethod() {
+		return mappedMethod;
+	}
+
+	void setMappedMethod(MethodMappingInfo mappedMethod) {
+		this.mappedMethod = mappedMethod;
+		this.mappedMethodSelected = true;
+	}
+
+	/**
+	 * Checks if the mapped method has been selected for the request.
+	 * 
+	 * @return true if the method has been selected, also when no method
+	 *         matches the request
+	 */
+	boolean isMappedMethodSelected() {
+		return mappedMethodSelected;
+	}
+
+	/**
+	 * Gets the path parameters of the selected mapped method.
+	 * 
+	 * @return the path parameters, or null if they have not been extracted
+	 *         yet
+	 */
+	public Map<String, String> getPathParameters() {
+		return pathParameters;
+	}
+
+	void setPathParameters(Map<String, String> pathParameters) {
+		this.pathParameters = pathParameters;
+	}
+
+	/**
+	 * Checks if the value of a parameter of the mapped method couldn't be
+	 * converted. The error has then been written to the response and the
+	 * method is not invoked.
+	 * 
+	 * @return true if a conversion failed
+	 */
+	public boolean isConversionFailed() {
+		return conversionFailed;
+	}
+
+	void setConversionFailed() {
+		this.conversionFailed = true;
+	}
+
+	/**
+	 * Gets the locale used to convert string values, if it has already been
+	 * resolved.
+	 * 
+	 * @return the locale, or null if it has not been resolved yet
+	 */
+	public Locale getLocale() {
+		return locale;
+	}
+
+	void setLocale(Locale locale) {
+		this.locale = locale;
+	}
+
+	/**
+	 * Registers a temporary file to delete once the request has been served,
+	 * for example a spooled request body.
+	 * 
+	 * @param file
+	 *            the temporary file.
+	 */
+	void addTemporaryFile(File file) {
+		if (temporaryFiles == null)
+			temporaryFiles = new ArrayList<File>(1);
+
+		temporaryFiles.add(file);
+	}
+
+	/**
+	 * Deletes the temporary files registered for this request.
+	 */
+	void deleteTemporaryFiles() {
+		if (temporaryFiles == null)
+			return;
+
+		for (File file : temporaryFiles) {
+			file.delete();
+		}
+
+		temporaryFiles = null;
+	}
+
+	/**
+	 * Checks if the time spent in each phase is recorded for this request.
+	 * 
+	 * @return true if phase timing is enabled
+	 */
+	public boolean isPhaseTimingEnabled() {
+		return phaseNanos != null;
+	}
+
+	/**
+	 * Gets the nanoseconds spent in the given phase. Phases that can be
+	 * entered more than once (like parameter binding) report their total time.
+	 * 
+	 * @param phase
+	 *            the phase.
+	 * @return the time spent in the phase, 0 if the phase was not reached or
+	 *         phase timing is disabled
+	 */
+	public long getPhaseNanos(RequestPhase phase) {
+		return phaseNanos != null ? phaseNanos[phase.ordinal()] : 0;
+	}
+
+	void enablePhaseTiming() {
+		phaseNanos = new long[RequestPhase.values().length];
+	}
+
+	/**
+	 * Starts timing a phase.
+	 * 
+	 * @return the current time in nanoseconds, or 0 if phase timing is
+	 *         disabled
+	 */
+	long startPhase() {
+		return phaseNanos != null ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Ends timing a phase started with {@link #startPhase()}.
+	 * 
+	 * @param phase
+	 *            the phase.
+	 * @param startTime
+	 *            the value returned by {@link #startPhase()}.
+	 */
+	void endPhase(RequestPhase phase, long startTime) {
+		if (phaseNanos != null)
+			phaseNanos[phase.ordinal()] += System.nanoTime() - startTime;
+	}
+}
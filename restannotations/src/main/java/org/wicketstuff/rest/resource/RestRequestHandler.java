@@ -0,0 +1,104 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource;
+
+import org.apache.wicket.request.IRequestCycle;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.http.WebRequest;
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.request.resource.IResource.Attributes;
+
+/**
+ * Request handler created by {@link RestRequestMapper}. It passes the mapped
+ * method already selected by the mapper to the resource.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class RestRequestHandler implements IRequestHandler {
+	/** The resource that serves the request. */
+	private final AbstractRestResource<?> resource;
+
+	/** The parameters of the request, relative to the mount path. */
+	private final PageParameters pageParameters;
+
+	/**
+	 * The context of the request, with the mapped method if it has been
+	 * selected by the mapper.
+	 */
+	private final RestRequestContext context;
+
+	RestRequestHandler(AbstractRestResource<?> resource, PageParameters pageParameters,
+			RestRequestContext context) {
+		this.resource = resource;
+		this.pageParameters = pageParameters;
+		this.context = context;
+	}
+
+	@Override
+	public void respond(IRequestCycle requestCycle) {
+		respond((WebRequest) requestCycle.getRequest(), (WebResponse) requestCycle.getResponse());
+	}
+
+	/**
+	 * Serves the request with the given request and response, also outside a
+	 * request cycle (see {@link RestFilter}).
+	 * 
+	 * @param request
+	 *            the current request.
+	 * @param response
+	 *            the current response.
+	 */
+	void respond(WebRequest request, WebResponse response) {
+		Attributes attributes = new Attributes(request, response, pageParameters);
+
+		resource.respond(attributes, context);
+	}
+
+	@Override
+	public void detach(IRequestCycle requestCycle) {
+	}
+
+	/**
+	 * Gets the resource that serves the request.
+	 * 
+	 * @return the resource
+	 */
+	public AbstractRestResource<?> getResource() {
+		return resource;
+	}
+
+	/**
+	 * Gets the mapped method selected by the mapper.
+	 * 
+	 * @return the mapped method, or null if it must be selected by the
+	 *         resource
+	 */
+	public MethodMappingInfo getMappedMethod() {
+		return context.getMappedMethod();
+	}
+
+	/**
+	 * Gets the parameters of the request, relative to the mount path.
+	 * 
+	 * @return the page parameters
+	 */
+	public PageParameters getPageParameters() {
+		return pageParameters;
+	}
+}
@@ -0,0 +1,192 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.request.IRequestHandler;
+import org.apache.wicket.request.IRequestMapper;
+import org.apache.wicket.request.Request;
+import org.apache.wicket.request.Url;
+import org.apache.wicket.request.Url.QueryParameter;
+import org.apache.wicket.request.http.WebRequest;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.wicketstuff.rest.annotations.MethodMapping;
+import org.wicketstuff.rest.utils.http.HttpUtils;
+
+/**
+ * Request mapper that serves any number of REST resources. Instead of
+ * mounting every resource with its own mapper, resources are registered with
+ * {@link #mount(String, AbstractRestResource)} and the mapper is added once
+ * to the application:
+ * 
+ * <pre>
+ * RestRequestMapper restMapper = new RestRequestMapper();
+ * 
+ * restMapper.mount(&quot;/api/persons&quot;, new PersonsRestResource());
+ * restMapper.mount(&quot;/api/orders&quot;, new OrdersRestResource());
+ * mount(restMapper);
+ * </pre>
+ * 
+ * Mount paths are kept in a trie shared by all the resources. While mapping
+ * a request the mapper finds the resource mounted on the longest prefix of
+ * the URL and selects its mapped method (see {@link MethodMapping}) with the
+ * remaining segments. The selected method and the parsed request (see
+ * {@link RestRequestContext}) are then handed to the resource, which doesn't
+ * need to route the request again.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class RestRequestMapper implements IRequestMapper {
+	/** Root of the trie of mount paths. */
+	private final MountNode root = new MountNode(0);
+
+	/**
+	 * Mounts a resource on the given path.
+	 * 
+	 * @param path
+	 *            the mount path, for example '/api/persons'.
+	 * @param resource
+	 *            the resource to mount.
+	 * @return this mapper
+	 */
+	public RestRequestMapper mount(String path, AbstractRestResource<?> resource) {
+		MountNode node = root;
+
+		for (String segment : path.split("/")) {
+			if (!segment.isEmpty())
+				node = node.getOrCreateChild(segment);
+		}
+
+		if (node.resource != null)
+			throw new WicketRuntimeException("A resource is already mounted on path '" + path
+					+ "'.");
+
+		node.resource = resource;
+		return this;
+	}
+
+	@Override
+	public RestRequestHandler mapRequest(Request request) {
+		if (!(request instanceof WebRequest))
+			return null;
+
+		Url url = request.getUrl();
+		List<String> urlSegments = url.getSegments();
+		MountNode mountNode = findMountNode(urlSegments);
+
+		if (mountNode == null)
+			return null;
+
+		WebRequest webRequest = (WebRequest) request;
+		RestRequestContext context = RestRequestContext.forSegments(webRequest,
+				HttpUtils.getHttpMethod(webRequest), urlSegments, mountNode.depth);
+		PageParameters pageParameters = new PageParameters();
+
+		for (int i = 0; i < context.getSegmentCount(); i++) {
+			pageParameters.set(i, context.getSegment(i));
+		}
+
+		for (QueryParameter queryParameter : url.getQueryParameters()) {
+			pageParameters.add(queryParameter.getName(), queryParameter.getValue());
+		}
+
+		AbstractRestResource<?> resource = mountNode.resource;
+
+		// if no method matches, the resource reports the error to the client
+		// as usual.
+		resource.selectMappedMethod(context);
+
+		return new RestRequestHandler(resource, pageParameters, context);
+	}
+
+	/**
+	 * Returns the length of the mount path matching the request, so that
+	 * resources mounted on longer paths win over other mappers.
+	 */
+	@Override
+	public int getCompatibilityScore(Request request) {
+		MountNode mountNode = findMountNode(request.getUrl().getSegments());
+
+		return mountNode != null ? mountNode.depth : 0;
+	}
+
+	/**
+	 * URLs are never generated for REST requests.
+	 */
+	@Override
+	public Url mapHandler(IRequestHandler requestHandler) {
+		return null;
+	}
+
+	/**
+	 * Finds the node of the resource mounted on the longest prefix of the
+	 * given segments.
+	 * 
+	 * @param urlSegments
+	 *            the segments of the request URL.
+	 * @return the mount node, or null if no resource is mounted on a prefix of
+	 *         the URL
+	 */
+	private MountNode findMountNode(List<String> urlSegments) {
+		MountNode node = root;
+		MountNode mountNode = root.resource != null ? root : null;
+
+		for (String segment : urlSegments) {
+			node = node.children.get(segment);
+
+			if (node == null)
+				break;
+
+			if (node.resource != null)
+				mountNode = node;
+		}
+
+		return mountNode;
+	}
+
+	/**
+	 * A node of the trie of mount paths.
+	 */
+	private static class MountNode {
+		/** Children indexed by segment. */
+		private final Map<String, MountNode> children = new HashMap<String, MountNode>();
+		/** Number of segments of the path of this node. */
+		private final int depth;
+		/** The resource mounted on this node, if any. */
+		private AbstractRestResource<?> resource;
+
+		MountNode(int depth) {
+			this.depth = depth;
+		}
+
+		MountNode getOrCreateChild(String segment) {
+			MountNode child = children.get(segment);
+
+			if (child == null) {
+				child = new MountNode(depth + 1);
+				children.put(segment, child);
+			}
+
+			return child;
+		}
+	}
+}
@@ -0,0 +1,40 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.metrics;
+
+import org.wicketstuff.rest.resource.AbstractRestResource;
+import org.wicketstuff.rest.resource.RestRequestContext;
+
+/**
+ * Receives the phase timings of the requests served by a REST resource (see
+ * {@link AbstractRestResource#setPhaseTimingSink(IPhaseTimingSink)}).
+ * 
+ * @author andrea del bene
+ * 
+ */
+public interface IPhaseTimingSink {
+	/**
+	 * Called when a request has been served, even if serving it has raised an
+	 * exception. Timings are read with
+	 * {@link RestRequestContext#getPhaseNanos(RequestPhase)}; phases that were
+	 * not reached have a time of 0.
+	 * 
+	 * @param context
+	 *            the context of the served request.
+	 */
+	public void onRequestServed(RestRequestContext context);
+}
@@ -0,0 +1,159 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of latencies expressed in nanoseconds. Values are
+ * counted in logarithmic buckets, each power of two being split in 8 linear
+ * sub-buckets, so that the relative error of the reported percentiles is at
+ * most 12.5% whatever the magnitude of the values. Recording a value costs a
+ * few atomic increments and never allocates.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class LatencyHistogram {
+	/** Bits used to split every power of two in linear sub-buckets. */
+	private static final int SUB_BUCKET_BITS = 3;
+
+	/** Number of sub-buckets for every power of two. */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/** Values lower than this limit are counted exactly. */
+	private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+
+	/** Exponent of the first power of two split in sub-buckets. */
+	private static final int FIRST_EXPONENT = SUB_BUCKET_BITS + 1;
+
+	/** Total number of buckets, enough for every positive long value. */
+	private static final int BUCKETS = LINEAR_LIMIT + (63 - FIRST_EXPONENT) * SUB_BUCKETS;
+
+	/** The counters of the buckets. */
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/** The number of recorded values. */
+	private final AtomicLong totalCount = new AtomicLong();
+
+	/** The sum of recorded values. */
+	private final AtomicLong totalNanos = new AtomicLong();
+
+	/**
+	 * Records a latency value.
+	 * 
+	 * @param nanos
+	 *            the latency in nanoseconds. Negative values are recorded as
+	 *            0.
+	 */
+	public void record(long nanos) {
+		long value = Math.max(nanos, 0);
+
+		counts.incrementAndGet(bucketIndex(value));
+		totalCount.incrementAndGet();
+		totalNanos.addAndGet(value);
+	}
+
+	/**
+	 * Returns the value below which the given percentile of the recorded
+	 * values falls. The returned value is the upper bound of the bucket
+	 * containing the percentile.
+	 * 
+	 * @param percentile
+	 *            the percentile, between 0 and 1 (for example 0.99).
+	 * @return the value at the given percentile, 0 if no value has been
+	 *         recorded.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+
+		if (total == 0)
+			return 0;
+
+		long rank = Math.max((long) Math.ceil(percentile * total), 1);
+		long cumulated = 0;
+
+		for (int i = 0; i < BUCKETS; i++) {
+			cumulated += snapshot[i];
+
+			if (cumulated >= rank)
+				return bucketUpperBound(i);
+		}
+
+		return bucketUpperBound(BUCKETS - 1);
+	}
+
+	/**
+	 * Gets the number of recorded values.
+	 * 
+	 * @return the number of recorded values
+	 */
+	public long getCount() {
+		return totalCount.get();
+	}
+
+	/**
+	 * Gets the sum of the recorded values.
+	 * 
+	 * @return the sum of the recorded values in nanoseconds
+	 */
+	public long getTotalNanos() {
+		return totalNanos.get();
+	}
+
+	/**
+	 * Returns the index of the bucket for the given value.
+	 * 
+	 * @param value
+	 *            a non-negative value.
+	 * @return the index of the bucket.
+	 */
+	static int bucketIndex(long value) {
+		if (value < LINEAR_LIMIT)
+			return (int) value;
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+		return LINEAR_LIMIT + (exponent - FIRST_EXPONENT) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * Returns the highest value counted by the given bucket.
+	 * 
+	 * @param index
+	 *            the index of the bucket.
+	 * @return the highest value of the bucket.
+	 */
+	static long bucketUpperBound(int index) {
+		if (index < LINEAR_LIMIT)
+			return index;
+
+		int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + FIRST_EXPONENT;
+		int subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+
+		return (1L << exponent) + subBucket * width + width - 1;
+	}
+}
@@ -0,0 +1,196 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.metrics;
+
+import javax.servlet.http.Cookie;
+
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.util.time.Time;
+
+/**
+ * {@link WebResponse} decorator that keeps track of the status code and of
+ * the number of bytes written to the response. The size of character content
+ * is counted as its UTF-8 encoded length.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class MeteredWebResponse extends WebResponse {
+	/** The decorated response. */
+	private final WebResponse response;
+
+	/** The status code set on the response. */
+	private int status = 200;
+
+	/** The number of bytes written. */
+	private long bytesWritten;
+
+	public MeteredWebResponse(WebResponse response) {
+		this.response = response;
+	}
+
+	/**
+	 * Gets the status code set on the response.
+	 * 
+	 * @return the status code, 200 if no status has been set
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * Gets the number of bytes written to the response.
+	 * 
+	 * @return the number of bytes written
+	 */
+	public long getBytesWritten() {
+		return bytesWritten;
+	}
+
+	@Override
+	public void write(CharSequence sequence) {
+		bytesWritten += utf8Length(sequence);
+		response.write(sequence);
+	}
+
+	@Override
+	public void write(byte[] array) {
+		bytesWritten += array.length;
+		response.write(array);
+	}
+
+	@Override
+	public void write(byte[] array, int offset, int length) {
+		bytesWritten += length;
+		response.write(array, offset, length);
+	}
+
+	@Override
+	public void setStatus(int sc) {
+		status = sc;
+		response.setStatus(sc);
+	}
+
+	@Override
+	public void sendError(int sc, String msg) {
+		status = sc;
+		response.sendError(sc, msg);
+	}
+
+	@Override
+	public void sendRedirect(String url) {
+		status = 302;
+		response.sendRedirect(url);
+	}
+
+	@Override
+	public void reset() {
+		status = 200;
+		bytesWritten = 0;
+		response.reset();
+	}
+
+	@Override
+	public void close() {
+		response.close();
+	}
+
+	@Override
+	public String encodeURL(CharSequence url) {
+		return response.encodeURL(url);
+	}
+
+	@Override
+	public Object getContainerResponse() {
+		return response.getContainerResponse();
+	}
+
+	@Override
+	public void addCookie(Cookie cookie) {
+		response.addCookie(cookie);
+	}
+
+	@Override
+	public void clearCookie(Cookie cookie) {
+		response.clearCookie(cookie);
+	}
+
+	@Override
+	public void setHeader(String name, String value) {
+		response.setHeader(name, value);
+	}
+
+	@Override
+	public void addHeader(String name, String value) {
+		response.addHeader(name, value);
+	}
+
+	@Override
+	public void setDateHeader(String name, Time date) {
+		response.setDateHeader(name, date);
+	}
+
+	@Override
+	public void setContentLength(long length) {
+		response.setContentLength(length);
+	}
+
+	@Override
+	public void setContentType(String mimeType) {
+		response.setContentType(mimeType);
+	}
+
+	@Override
+	public String encodeRedirectURL(CharSequence url) {
+		return response.encodeRedirectURL(url);
+	}
+
+	@Override
+	public boolean isRedirect() {
+		return response.isRedirect();
+	}
+
+	@Override
+	public void flush() {
+		response.flush();
+	}
+
+	/**
+	 * Returns the length of the given characters encoded with UTF-8.
+	 * 
+	 * @param sequence
+	 *            the characters.
+	 * @return the number of bytes needed to encode the characters.
+	 */
+	static long utf8Length(CharSequence sequence) {
+		int length = sequence.length();
+		long bytes = length;
+
+		for (int i = 0; i < length; i++) {
+			char c = sequence.charAt(i);
+
+			if (c >= 0x800) {
+				// surrogate pairs take 4 bytes, i.e. 2 for each char
+				bytes += Character.isHighSurrogate(c) || Character.isLowSurrogate(c) ? 1 : 2;
+			} else if (c >= 0x80) {
+				bytes++;
+			}
+		}
+
+		return bytes;
+	}
+}
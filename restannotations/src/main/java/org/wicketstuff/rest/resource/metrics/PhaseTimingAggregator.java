@@ -0,0 +1,105 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.resource.RestRequestContext;
+
+/**
+ * Default {@link IPhaseTimingSink} that keeps a {@link LatencyHistogram} for
+ * every phase of every mapped method. Phases that were not reached by a
+ * request are not recorded, and requests that didn't match any mapped method
+ * are ignored.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class PhaseTimingAggregator implements IPhaseTimingSink {
+	/** The phases, read once to avoid copying the array of the values. */
+	private static final RequestPhase[] PHASES = RequestPhase.values();
+
+	/** Histograms of the mapped methods, indexed by phase ordinal. */
+	private final ConcurrentMap<MethodMappingInfo, LatencyHistogram[]> routes = new ConcurrentHashMap<MethodMappingInfo, LatencyHistogram[]>();
+
+	@Override
+	public void onRequestServed(RestRequestContext context) {
+		MethodMappingInfo mappedMethod = context.getMappedMethod();
+
+		if (mappedMethod == null)
+			return;
+
+		LatencyHistogram[] histograms = getHistograms(mappedMethod);
+
+		for (RequestPhase phase : PHASES) {
+			long nanos = context.getPhaseNanos(phase);
+
+			if (nanos > 0)
+				histograms[phase.ordinal()].record(nanos);
+		}
+	}
+
+	/**
+	 * Returns the histogram of the given phase for the given mapped method.
+	 * 
+	 * @param mappedMethod
+	 *            the mapped method.
+	 * @param phase
+	 *            the phase.
+	 * @return the histogram of the phase
+	 */
+	public LatencyHistogram getHistogram(MethodMappingInfo mappedMethod, RequestPhase phase) {
+		return getHistograms(mappedMethod)[phase.ordinal()];
+	}
+
+	/**
+	 * Returns the mapped methods that have served at least a request, sorted
+	 * by class name, method name and HTTP method.
+	 * 
+	 * @return the mapped methods
+	 */
+	public List<MethodMappingInfo> getMappedMethods() {
+		List<MethodMappingInfo> mappedMethods = new ArrayList<MethodMappingInfo>(routes.keySet());
+
+		Collections.sort(mappedMethods, RestMetricsRegistry.MAPPED_METHODS_ORDER);
+		return mappedMethods;
+	}
+
+	private LatencyHistogram[] getHistograms(MethodMappingInfo mappedMethod) {
+		LatencyHistogram[] histograms = routes.get(mappedMethod);
+
+		if (histograms == null) {
+			LatencyHistogram[] newHistograms = new LatencyHistogram[PHASES.length];
+
+			for (int i = 0; i < newHistograms.length; i++) {
+				newHistograms[i] = new LatencyHistogram();
+			}
+
+			histograms = routes.putIfAbsent(mappedMethod, newHistograms);
+
+			if (histograms == null)
+				histograms = newHistograms;
+		}
+
+		return histograms;
+	}
+}
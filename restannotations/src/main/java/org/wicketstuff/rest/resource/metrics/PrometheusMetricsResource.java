@@ -0,0 +1,312 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.request.resource.AbstractResource;
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.utils.http.BufferPool;
+import org.wicketstuff.rest.utils.http.PooledResponseWriter;
+
+/**
+ * Resource that exposes the content of a {@link RestMetricsRegistry} using the
+ * <a href="http://prometheus.io/docs/instrumenting/exposition_formats/">text
+ * format of Prometheus</a>. The resource can be mounted like any other
+ * resource, for example:
+ * 
+ * <pre>
+ * mountResource(&quot;/metrics&quot;, new ResourceReference(&quot;metrics&quot;) {
+ * 	PrometheusMetricsResource resource = new PrometheusMetricsResource(registry);
+ * 
+ * 	public IResource getResource() {
+ * 		return resource;
+ * 	}
+ * });
+ * </pre>
+ * 
+ * Latency percentiles are computed over every request served since the
+ * registry was created. The counters of the default {@link BufferPool} are
+ * exposed as well.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class PrometheusMetricsResource extends AbstractResource {
+	/** Content type of the Prometheus text format. */
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=UTF-8";
+
+	/** Quantiles reported for request latencies. */
+	private static final double[] QUANTILES = { 0.5, 0.99, 0.999 };
+
+	private static final long serialVersionUID = 1L;
+
+	/** The exposed registry. */
+	private final RestMetricsRegistry registry;
+
+	/** The exposed phase timings, if any. */
+	private final PhaseTimingAggregator phaseTimings;
+
+	public PrometheusMetricsResource(RestMetricsRegistry registry) {
+		this(registry, null);
+	}
+
+	/**
+	 * Creates a resource that exposes also the phase timings collected by the
+	 * given aggregator.
+	 * 
+	 * @param registry
+	 *            the metrics registry to expose.
+	 * @param phaseTimings
+	 *            the phase timings to expose, can be null.
+	 */
+	public PrometheusMetricsResource(RestMetricsRegistry registry,
+			PhaseTimingAggregator phaseTimings) {
+		this.registry = registry;
+		this.phaseTimings = phaseTimings;
+	}
+
+	@Override
+	protected ResourceResponse newResourceResponse(Attributes attributes) {
+		ResourceResponse resourceResponse = new ResourceResponse();
+
+		resourceResponse.setContentType(CONTENT_TYPE);
+		resourceResponse.disableCaching();
+		resourceResponse.setWriteCallback(new WriteCallback() {
+			@Override
+			public void writeData(Attributes attributes) throws IOException {
+				Writer writer = new PooledResponseWriter((WebResponse) attributes.getResponse(),
+						"UTF-8");
+
+				try {
+					writeMetrics(registry, writer);
+
+					if (phaseTimings != null)
+						writePhaseTimings(phaseTimings, writer);
+
+					writeBufferPool(BufferPool.getDefault(), writer);
+				} finally {
+					writer.close();
+				}
+			}
+		});
+
+		return resourceResponse;
+	}
+
+	/**
+	 * Writes the content of the given registry using the text format of
+	 * Prometheus.
+	 * 
+	 * @param registry
+	 *            the registry to write.
+	 * @param writer
+	 *            the output writer.
+	 * @throws IOException
+	 */
+	public static void writeMetrics(RestMetricsRegistry registry, Writer writer)
+			throws IOException {
+		List<RouteMetrics> routesMetrics = registry.getRoutesMetrics();
+		String[] labels = new String[routesMetrics.size()];
+
+		for (int i = 0; i < labels.length; i++) {
+			labels[i] = formatLabels(routesMetrics.get(i).getMappedMethod());
+		}
+
+		writeHeader(writer, "wicket_rest_requests_total", "counter",
+				"Requests served by the mapped method.");
+		for (int i = 0; i < labels.length; i++) {
+			writeSample(writer, "wicket_rest_requests_total", labels[i],
+					String.valueOf(routesMetrics.get(i).getRequests()));
+		}
+
+		writeHeader(writer, "wicket_rest_client_errors_total", "counter",
+				"Requests answered with a 4xx status code.");
+		for (int i = 0; i < labels.length; i++) {
+			writeSample(writer, "wicket_rest_client_errors_total", labels[i],
+					String.valueOf(routesMetrics.get(i).getClientErrors()));
+		}
+
+		writeHeader(writer, "wicket_rest_server_errors_total", "counter",
+				"Requests answered with a 5xx status code or failed with an exception.");
+		for (int i = 0; i < labels.length; i++) {
+			writeSample(writer, "wicket_rest_server_errors_total", labels[i],
+					String.valueOf(routesMetrics.get(i).getServerErrors()));
+		}
+
+		writeHeader(writer, "wicket_rest_request_bytes_total", "counter",
+				"Size of the request bodies, as declared by header Content-Length.");
+		for (int i = 0; i < labels.length; i++) {
+			writeSample(writer, "wicket_rest_request_bytes_total", labels[i],
+					String.valueOf(routesMetrics.get(i).getRequestBytes()));
+		}
+
+		writeHeader(writer, "wicket_rest_response_bytes_total", "counter",
+				"Size of the response bodies.");
+		for (int i = 0; i < labels.length; i++) {
+			writeSample(writer, "wicket_rest_response_bytes_total", labels[i],
+					String.valueOf(routesMetrics.get(i).getResponseBytes()));
+		}
+
+		writeHeader(writer, "wicket_rest_request_duration_seconds", "summary",
+				"Time spent serving the request.");
+		for (int i = 0; i < labels.length; i++) {
+			LatencyHistogram latency = routesMetrics.get(i).getLatency();
+
+			for (double quantile : QUANTILES) {
+				writeSample(writer, "wicket_rest_request_duration_seconds", labels[i]
+						+ ",quantile=\"" + quantile + "\"",
+						toSeconds(latency.getValueAtPercentile(quantile)));
+			}
+
+			writeSample(writer, "wicket_rest_request_duration_seconds_sum", labels[i],
+					toSeconds(latency.getTotalNanos()));
+			writeSample(writer, "wicket_rest_request_duration_seconds_count", labels[i],
+					String.valueOf(latency.getCount()));
+		}
+
+		writeHeader(writer, "wicket_rest_unmatched_requests_total", "counter",
+				"Requests that didn't match any mapped method.");
+		writeSample(writer, "wicket_rest_unmatched_requests_total", null,
+				String.valueOf(registry.getUnmatchedRequests()));
+
+		writeHeader(writer, "wicket_rest_rejected_requests_total", "counter",
+				"Unmatched requests, by status code.");
+		writeSample(writer, "wicket_rest_rejected_requests_total", "status=\"404\"",
+				String.valueOf(registry.getRejectedRequests(404)));
+		writeSample(writer, "wicket_rest_rejected_requests_total", "status=\"405\"",
+				String.valueOf(registry.getRejectedRequests(405)));
+	}
+
+	/**
+	 * Writes the phase timings collected by the given aggregator using the
+	 * text format of Prometheus.
+	 * 
+	 * @param phaseTimings
+	 *            the phase timings to write.
+	 * @param writer
+	 *            the output writer.
+	 * @throws IOException
+	 */
+	public static void writePhaseTimings(PhaseTimingAggregator phaseTimings, Writer writer)
+			throws IOException {
+		writeHeader(writer, "wicket_rest_phase_duration_seconds", "summary",
+				"Time spent in each phase of request processing.");
+
+		for (MethodMappingInfo mappedMethod : phaseTimings.getMappedMethods()) {
+			String routeLabels = formatLabels(mappedMethod);
+
+			for (RequestPhase phase : RequestPhase.values()) {
+				LatencyHistogram histogram = phaseTimings.getHistogram(mappedMethod, phase);
+
+				if (histogram.getCount() == 0)
+					continue;
+
+				String labels = routeLabels + ",phase=\"" + phase.getLabel() + "\"";
+
+				for (double quantile : QUANTILES) {
+					writeSample(writer, "wicket_rest_phase_duration_seconds", labels
+							+ ",quantile=\"" + quantile + "\"",
+							toSeconds(histogram.getValueAtPercentile(quantile)));
+				}
+
+				writeSample(writer, "wicket_rest_phase_duration_seconds_sum", labels,
+						toSeconds(histogram.getTotalNanos()));
+				writeSample(writer, "wicket_rest_phase_duration_seconds_count", labels,
+						String.valueOf(histogram.getCount()));
+			}
+		}
+	}
+
+	/**
+	 * Writes the counters of the given buffer pool using the text format of
+	 * Prometheus.
+	 * 
+	 * @param bufferPool
+	 *            the buffer pool to write.
+	 * @param writer
+	 *            the output writer.
+	 * @throws IOException
+	 */
+	public static void writeBufferPool(BufferPool bufferPool, Writer writer) throws IOException {
+		writeHeader(writer, "wicket_rest_buffer_pool_hits_total", "counter",
+				"Response buffers taken from the pool.");
+		writeSample(writer, "wicket_rest_buffer_pool_hits_total", null,
+				String.valueOf(bufferPool.getHitCount()));
+
+		writeHeader(writer, "wicket_rest_buffer_pool_misses_total", "counter",
+				"Response buffers allocated because the pool was empty.");
+		writeSample(writer, "wicket_rest_buffer_pool_misses_total", null,
+				String.valueOf(bufferPool.getMissCount()));
+
+		writeHeader(writer, "wicket_rest_buffer_pool_discards_total", "counter",
+				"Response buffers not kept by the pool because oversized or the pool was full.");
+		writeSample(writer, "wicket_rest_buffer_pool_discards_total", null,
+				String.valueOf(bufferPool.getDiscardCount()));
+	}
+
+	private static void writeHeader(Writer writer, String name, String type, String help)
+			throws IOException {
+		writer.write("# HELP ");
+		writer.write(name);
+		writer.write(' ');
+		writer.write(help);
+		writer.write("\n# TYPE ");
+		writer.write(name);
+		writer.write(' ');
+		writer.write(type);
+		writer.write('\n');
+	}
+
+	private static void writeSample(Writer writer, String name, String labels, String value)
+			throws IOException {
+		writer.write(name);
+
+		if (labels != null) {
+			writer.write('{');
+			writer.write(labels);
+			writer.write('}');
+		}
+
+		writer.write(' ');
+		writer.write(value);
+		writer.write('\n');
+	}
+
+	private static String formatLabels(MethodMappingInfo mappedMethod) {
+		StringBuilder builder = new StringBuilder();
+
+		builder.append("resource=\"")
+				.append(escape(mappedMethod.getMethod().getDeclaringClass().getName()))
+				.append("\",method=\"").append(escape(mappedMethod.getMethod().getName()))
+				.append("\",http_method=\"").append(mappedMethod.getHttpMethod())
+				.append("\",route=\"").append(escape(mappedMethod.getUrlPath())).append('"');
+
+		return builder.toString();
+	}
+
+	private static String escape(String labelValue) {
+		return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private static String toSeconds(long nanos) {
+		return String.valueOf(nanos / 1e9);
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.metrics;
+
+import org.wicketstuff.rest.utils.reflection.ParameterSource;
+
+/**
+ * The phases a REST resource goes through to serve a request. Phase timings
+ * are recorded only if a {@link IPhaseTimingSink} is set on the resource.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public enum RequestPhase {
+	/** Selection of the mapped method that serves the request. */
+	METHOD_SELECTION("method_selection"),
+	/** Extraction of the path parameters from the URL. */
+	PATH_PARAMETERS("path_parameters"),
+	/** Binding of method parameters read from path parameters. */
+	BIND_PATH("bind_path"),
+	/** Binding of method parameters read from the request body. */
+	BIND_REQUEST_BODY("bind_request_body"),
+	/** Binding of method parameters read from query parameters. */
+	BIND_REQUEST_PARAM("bind_request_param"),
+	/** Binding of method parameters read from headers. */
+	BIND_HEADER("bind_header"),
+	/** Binding of method parameters read from cookies. */
+	BIND_COOKIE("bind_cookie"),
+	/** Binding of method parameters read from matrix parameters. */
+	BIND_MATRIX("bind_matrix"),
+	/** Invocation of the mapped method. */
+	INVOCATION("invocation"),
+	/** Serialization of the returned value to the response. */
+	SERIALIZATION("serialization");
+
+	/** Binding phases indexed by parameter source. */
+	private static final RequestPhase[] BINDING_PHASES = new RequestPhase[ParameterSource
+			.values().length];
+
+	static {
+		BINDING_PHASES[ParameterSource.PATH.ordinal()] = BIND_PATH;
+		BINDING_PHASES[ParameterSource.REQUEST_BODY.ordinal()] = BIND_REQUEST_BODY;
+		BINDING_PHASES[ParameterSource.REQUEST_PARAM.ordinal()] = BIND_REQUEST_PARAM;
+		BINDING_PHASES[ParameterSource.HEADER.ordinal()] = BIND_HEADER;
+		BINDING_PHASES[ParameterSource.COOKIE.ordinal()] = BIND_COOKIE;
+		BINDING_PHASES[ParameterSource.MATRIX.ordinal()] = BIND_MATRIX;
+		BINDING_PHASES[ParameterSource.UNKNOWN.ordinal()] = BIND_PATH;
+	}
+
+	/** The name used when the phase is reported. */
+	private final String label;
+
+	private RequestPhase(String label) {
+		this.label = label;
+	}
+
+	/**
+	 * Gets the name used when the phase is reported.
+	 * 
+	 * @return the label of the phase
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Returns the binding phase for the method parameters read from the given
+	 * source.
+	 * 
+	 * @param source
+	 *            the source of the parameter value.
+	 * @return the binding phase
+	 */
+	public static RequestPhase forParameterSource(ParameterSource source) {
+		return BINDING_PHASES[source.ordinal()];
+	}
+}
@@ -0,0 +1,180 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.wicketstuff.rest.resource.AbstractRestResource;
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+
+/**
+ * Registry of the metrics collected by one or more REST resources (see
+ * {@link AbstractRestResource#setMetricsRegistry(RestMetricsRegistry)}).
+ * Metrics are kept for every mapped method and they can be exposed with
+ * {@link PrometheusMetricsResource}.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class RestMetricsRegistry {
+	/** Orders mapped methods by class name, method name and HTTP method. */
+	static final Comparator<MethodMappingInfo> MAPPED_METHODS_ORDER = new Comparator<MethodMappingInfo>() {
+		@Override
+		public int compare(MethodMappingInfo mappedMethod1, MethodMappingInfo mappedMethod2) {
+			int result = mappedMethod1.getMethod().getDeclaringClass().getName()
+					.compareTo(mappedMethod2.getMethod().getDeclaringClass().getName());
+
+			if (result == 0)
+				result = mappedMethod1.getMethod().getName()
+						.compareTo(mappedMethod2.getMethod().getName());
+
+			if (result == 0)
+				result = mappedMethod1.getHttpMethod().compareTo(mappedMethod2.getHttpMethod());
+
+			return result;
+		}
+	};
+
+	/** Metrics of the mapped methods. */
+	private final ConcurrentMap<MethodMappingInfo, RouteMetrics> routes = new ConcurrentHashMap<MethodMappingInfo, RouteMetrics>();
+
+	/** Requests that didn't match any mapped method. */
+	private final AtomicLong unmatchedRequests = new AtomicLong();
+
+	/** Unmatched requests rejected with status 404. */
+	private final AtomicLong notFoundRejections = new AtomicLong();
+
+	/** Unmatched requests rejected with status 405 because of their method. */
+	private final AtomicLong methodNotAllowedRejections = new AtomicLong();
+
+	/**
+	 * Records a served request.
+	 * 
+	 * @param mappedMethod
+	 *            the mapped method that served the request, or null if no
+	 *            method matched the request.
+	 * @param status
+	 *            the status code of the response.
+	 * @param nanos
+	 *            the time spent to serve the request, in nanoseconds.
+	 * @param requestSize
+	 *            the size of the request body, or a negative value if unknown.
+	 * @param responseSize
+	 *            the size of the response body.
+	 */
+	public void record(MethodMappingInfo mappedMethod, int status, long nanos, long requestSize,
+			long responseSize) {
+		if (mappedMethod == null) {
+			unmatchedRequests.incrementAndGet();
+			return;
+		}
+
+		getRouteMetrics(mappedMethod).record(status, nanos, requestSize, responseSize);
+	}
+
+	/**
+	 * Records a request rejected because it doesn't match any mapped method:
+	 * with status 405 if no mapped method uses its HTTP method, with status
+	 * 404 otherwise. The request is recorded as unmatched too.
+	 * 
+	 * @param status
+	 *            the status code of the response.
+	 */
+	public void recordRejection(int status) {
+		if (status == 405) {
+			methodNotAllowedRejections.incrementAndGet();
+		} else {
+			notFoundRejections.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Returns the metrics of the given mapped method, creating them if
+	 * needed.
+	 * 
+	 * @param mappedMethod
+	 *            the mapped method.
+	 * @return the metrics of the mapped method.
+	 */
+	public RouteMetrics getRouteMetrics(MethodMappingInfo mappedMethod) {
+		RouteMetrics metrics = routes.get(mappedMethod);
+
+		if (metrics == null) {
+			RouteMetrics newMetrics = new RouteMetrics(mappedMethod);
+
+			metrics = routes.putIfAbsent(mappedMethod, newMetrics);
+
+			if (metrics == null)
+				metrics = newMetrics;
+		}
+
+		return metrics;
+	}
+
+	/**
+	 * Returns the metrics of the mapped methods that have served at least a
+	 * request, sorted by class name, method name and HTTP method.
+	 * 
+	 * @return the metrics of the mapped methods.
+	 */
+	public List<RouteMetrics> getRoutesMetrics() {
+		List<RouteMetrics> metrics = new ArrayList<RouteMetrics>(routes.values());
+
+		Collections.sort(metrics, new Comparator<RouteMetrics>() {
+			@Override
+			public int compare(RouteMetrics metrics1, RouteMetrics metrics2) {
+				return MAPPED_METHODS_ORDER.compare(metrics1.getMappedMethod(),
+						metrics2.getMappedMethod());
+			}
+		});
+
+		return metrics;
+	}
+
+	/**
+	 * Gets the number of requests that didn't match any mapped method.
+	 * 
+	 * @return the number of unmatched requests
+	 */
+	public long getUnmatchedRequests() {
+		return unmatchedRequests.get();
+	}
+
+	/**
+	 * Gets the number of unmatched requests rejected with the given status
+	 * code (see {@link #recordRejection(int)}).
+	 * 
+	 * @param status
+	 *            the status code, 404 or 405.
+	 * @return the number of rejected requests
+	 */
+	public long getRejectedRequests(int status) {
+		if (status == 405)
+			return methodNotAllowedRejections.get();
+
+		if (status == 404)
+			return notFoundRejections.get();
+
+		return 0;
+	}
+}
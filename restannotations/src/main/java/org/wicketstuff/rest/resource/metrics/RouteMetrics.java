@@ -0,0 +1,146 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+
+/**
+ * Counters and latency histogram of a single mapped method.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class RouteMetrics {
+	/** The mapped method. */
+	private final MethodMappingInfo mappedMethod;
+
+	/** The number of served requests. */
+	private final AtomicLong requests = new AtomicLong();
+
+	/** The number of requests answered with a 4xx status code. */
+	private final AtomicLong clientErrors = new AtomicLong();
+
+	/** The number of requests answered with a 5xx status code. */
+	private final AtomicLong serverErrors = new AtomicLong();
+
+	/** The total size of request bodies. */
+	private final AtomicLong requestBytes = new AtomicLong();
+
+	/** The total size of response bodies. */
+	private final AtomicLong responseBytes = new AtomicLong();
+
+	/** The latency histogram. */
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	RouteMetrics(MethodMappingInfo mappedMethod) {
+		this.mappedMethod = mappedMethod;
+	}
+
+	/**
+	 * Records a served request.
+	 * 
+	 * @param status
+	 *            the status code of the response.
+	 * @param nanos
+	 *            the time spent to serve the request, in nanoseconds.
+	 * @param requestSize
+	 *            the size of the request body, or a negative value if unknown.
+	 * @param responseSize
+	 *            the size of the response body.
+	 */
+	void record(int status, long nanos, long requestSize, long responseSize) {
+		requests.incrementAndGet();
+		latency.record(nanos);
+
+		if (status >= 500)
+			serverErrors.incrementAndGet();
+		else if (status >= 400)
+			clientErrors.incrementAndGet();
+
+		if (requestSize > 0)
+			requestBytes.addAndGet(requestSize);
+
+		if (responseSize > 0)
+			responseBytes.addAndGet(responseSize);
+	}
+
+	/**
+	 * Gets the mapped method.
+	 * 
+	 * @return the mapped method
+	 */
+	public MethodMappingInfo getMappedMethod() {
+		return mappedMethod;
+	}
+
+	/**
+	 * Gets the number of served requests.
+	 * 
+	 * @return the number of requests
+	 */
+	public long getRequests() {
+		return requests.get();
+	}
+
+	/**
+	 * Gets the number of requests answered with a 4xx status code.
+	 * 
+	 * @return the number of client errors
+	 */
+	public long getClientErrors() {
+		return clientErrors.get();
+	}
+
+	/**
+	 * Gets the number of requests answered with a 5xx status code, including
+	 * the requests that raised an exception.
+	 * 
+	 * @return the number of server errors
+	 */
+	public long getServerErrors() {
+		return serverErrors.get();
+	}
+
+	/**
+	 * Gets the total size of request bodies, in bytes.
+	 * 
+	 * @return the total size of request bodies
+	 */
+	public long getRequestBytes() {
+		return requestBytes.get();
+	}
+
+	/**
+	 * Gets the total size of response bodies, in bytes.
+	 * 
+	 * @return the total size of response bodies
+	 */
+	public long getResponseBytes() {
+		return responseBytes.get();
+	}
+
+	/**
+	 * Gets the latency histogram.
+	 * 
+	 * @return the latency histogram
+	 */
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+}
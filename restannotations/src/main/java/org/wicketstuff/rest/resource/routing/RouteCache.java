@@ -0,0 +1,412 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.routing;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+
+/**
+ * Size-bounded cache of resolved routes. For an HTTP method and the segments
+ * of a URL (without matrix parameters) it keeps the selected mapped method and
+ * the path parameters already extracted, so that requests for the same URL
+ * don't need to walk the {@link RouteTrie} again.<br/>
+ * <br/>
+ * Lookups are lock-free. The cache keeps an approximate count of how often
+ * each URL is requested (a count-min sketch whose counters are halved
+ * periodically, so that old requests are forgotten). When the cache is full,
+ * a new route replaces the least requested among a few sampled routes, and
+ * only if it has been requested more often than that route. This way scans
+ * of unique URLs (for example different ids requested only once) don't
+ * flush the routes of the URLs requested most often.<br/>
+ * <br/>
+ * URLs that don't match any mapped method can be cached too (see
+ * {@link #putUnmatched(HttpMethod, String[])}).
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class RouteCache {
+	/** Number of routes sampled to choose the route to evict. */
+	private static final int EVICTION_SAMPLE_SIZE = 8;
+
+	/** Maximum value of the counters of the sketch. */
+	private static final int MAX_FREQUENCY = 15;
+
+	/** Route cached for the URLs that don't match any mapped method. */
+	private static final ResolvedRoute UNMATCHED = new ResolvedRoute(null, null);
+
+	/** The cached routes. */
+	private final ConcurrentHashMap<RouteKey, ResolvedRoute> routes;
+
+	/** The keys of the cached routes, used to sample the route to evict. */
+	private final RouteKey[] keys;
+
+	/** The maximum number of cached routes. */
+	private final int maximumSize;
+
+	/**
+	 * The counters of the frequency sketch, four rows of the same size. Rows
+	 * are much wider than the cache, so that keys requested once rarely
+	 * collide with hot keys in every row.
+	 */
+	private final byte[] frequencies;
+
+	/** Mask to compute the index of a counter in a row. */
+	private final int rowMask;
+
+	/** Number of increments after which the counters are halved. */
+	private final int resetThreshold;
+
+	/** Increments since the last time the counters were halved. */
+	private final AtomicInteger increments = new AtomicInteger();
+
+	private final Random random = new Random();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/** Number of cached routes, guarded by this. */
+	private int size;
+
+	/**
+	 * Creates a cache with the given size.
+	 * 
+	 * @param maximumSize
+	 *            the maximum number of cached routes.
+	 */
+	public RouteCache(int maximumSize) {
+		if (maximumSize <= 0)
+			throw new IllegalArgumentException("The size of the cache must be positive.");
+
+		int rowSize = Integer.highestOneBit(Math.max(maximumSize, 64) * 8 - 1);
+
+		this.maximumSize = maximumSize;
+		this.routes = new ConcurrentHashMap<RouteKey, ResolvedRoute>(maximumSize * 4 / 3 + 1);
+		this.keys = new RouteKey[maximumSize];
+		this.frequencies = new byte[rowSize * 4];
+		this.rowMask = rowSize - 1;
+		this.resetThreshold = Math.max(maximumSize, 16) * 10;
+	}
+
+	/**
+	 * Gets the route resolved for the given URL.
+	 * 
+	 * @param httpMethod
+	 *            the HTTP method of the request.
+	 * @param segments
+	 *            the segments of the URL, without matrix parameters.
+	 * @return the resolved route, or null if the URL is not cached.
+	 */
+	public ResolvedRoute get(HttpMethod httpMethod, String[] segments) {
+		RouteKey key = new RouteKey(httpMethod, segments);
+		ResolvedRoute route = routes.get(key);
+
+		recordAccess(key.hashCode);
+
+		if (route != null) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+
+		return route;
+	}
+
+	/**
+	 * Caches the route resolved for the given URL. If the cache is full the
+	 * route might be discarded.
+	 * 
+	 * @param httpMethod
+	 *            the HTTP method of the request.
+	 * @param segments
+	 *            the segments of the URL, without matrix parameters. The
+	 *            array must not be modified after this call.
+	 * @param mappedMethod
+	 *            the selected mapped method.
+	 * @param pathParameters
+	 *            the path parameters extracted for the URL. The map must not
+	 *            be modified after this call.
+	 * @return the cached route
+	 */
+	public ResolvedRoute put(HttpMethod httpMethod, String[] segments,
+			MethodMappingInfo mappedMethod, Map<String, String> pathParameters) {
+		ResolvedRoute route = new ResolvedRoute(mappedMethod, pathParameters);
+
+		admit(new RouteKey(httpMethod, segments), route);
+		return route;
+	}
+
+	/**
+	 * Caches the fact that no mapped method matches the given URL, so that
+	 * following requests for it are rejected without walking the routing
+	 * trie. If the cache is full the route might be discarded.
+	 * 
+	 * @param httpMethod
+	 *            the HTTP method of the request.
+	 * @param segments
+	 *            the segments of the URL, without matrix parameters. The
+	 *            array must not be modified after this call.
+	 */
+	public void putUnmatched(HttpMethod httpMethod, String[] segments) {
+		admit(new RouteKey(httpMethod, segments), UNMATCHED);
+	}
+
+	/**
+	 * Adds the given route, evicting another route if the cache is full.
+	 */
+	private synchronized void admit(RouteKey key, ResolvedRoute route) {
+		if (routes.containsKey(key))
+			return;
+
+		if (size < maximumSize) {
+			keys[size++] = key;
+			routes.put(key, route);
+			return;
+		}
+
+		int victimIndex = selectVictim();
+		RouteKey victim = keys[victimIndex];
+
+		// admit the new route only if it's requested more often
+		if (frequency(key.hashCode) <= frequency(victim.hashCode))
+			return;
+
+		routes.remove(victim);
+		keys[victimIndex] = key;
+		routes.put(key, route);
+		evictions.incrementAndGet();
+	}
+
+	/**
+	 * Removes all the cached routes and resets the statistics.
+	 */
+	public synchronized void clear() {
+		routes.clear();
+		Arrays.fill(keys, null);
+		Arrays.fill(frequencies, (byte) 0);
+		size = 0;
+		hits.set(0);
+		misses.set(0);
+		evictions.set(0);
+	}
+
+	/**
+	 * Samples some cached routes and returns the index of the least requested
+	 * one.
+	 */
+	private int selectVictim() {
+		int victimIndex = random.nextInt(maximumSize);
+		int victimFrequency = frequency(keys[victimIndex].hashCode);
+
+		for (int i = 1; i < EVICTION_SAMPLE_SIZE; i++) {
+			int index = random.nextInt(maximumSize);
+			int frequency = frequency(keys[index].hashCode);
+
+			if (frequency < victimFrequency) {
+				victimIndex = index;
+				victimFrequency = frequency;
+			}
+		}
+
+		return victimIndex;
+	}
+
+	/**
+	 * Increments the counters of the given hash. Counters are updated without
+	 * synchronization, hence some increments might be lost under contention.
+	 */
+	private void recordAccess(int hash) {
+		for (int row = 0; row < 4; row++) {
+			int index = counterIndex(hash, row);
+
+			if (frequencies[index] < MAX_FREQUENCY)
+				frequencies[index]++;
+		}
+
+		if (increments.incrementAndGet() >= resetThreshold) {
+			increments.set(0);
+
+			for (int i = 0; i < frequencies.length; i++) {
+				frequencies[i] >>= 1;
+			}
+		}
+	}
+
+	/**
+	 * Returns the estimated frequency of the given hash.
+	 */
+	private int frequency(int hash) {
+		int frequency = MAX_FREQUENCY;
+
+		for (int row = 0; row < 4; row++) {
+			frequency = Math.min(frequency, frequencies[counterIndex(hash, row)]);
+		}
+
+		return frequency;
+	}
+
+	private int counterIndex(int hash, int row) {
+		// murmur3 finalizer, seeded with the row
+		int h = hash + row * 0x9E3779B9;
+
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return row * (rowMask + 1) + (h & rowMask);
+	}
+
+	/**
+	 * Gets the number of lookups that found a cached route.
+	 * 
+	 * @return the number of hits
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of lookups that didn't find a cached route.
+	 * 
+	 * @return the number of misses
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * Gets the ratio between hits and lookups.
+	 * 
+	 * @return the hit rate, 0 if no lookup has been done
+	 */
+	public double getHitRate() {
+		long hitCount = hits.get();
+		long lookups = hitCount + misses.get();
+
+		return lookups == 0 ? 0 : (double) hitCount / lookups;
+	}
+
+	/**
+	 * Gets the number of routes evicted to make room for other routes.
+	 * 
+	 * @return the number of evictions
+	 */
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	/**
+	 * Gets the number of cached routes.
+	 * 
+	 * @return the size of the cache
+	 */
+	public int size() {
+		return routes.size();
+	}
+
+	/**
+	 * Gets the maximum number of cached routes.
+	 * 
+	 * @return the maximum size of the cache
+	 */
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * A route resolved for a URL: the mapped method and its path parameters.
+	 */
+	public static final class ResolvedRoute {
+		private final MethodMappingInfo mappedMethod;
+		private final Map<String, String> pathParameters;
+
+		ResolvedRoute(MethodMappingInfo mappedMethod, Map<String, String> pathParameters) {
+			this.mappedMethod = mappedMethod;
+			this.pathParameters = pathParameters;
+		}
+
+		/**
+		 * Tells if no mapped method matches the URL of the route.
+		 * 
+		 * @return true if the URL doesn't match any mapped method
+		 */
+		public boolean isUnmatched() {
+			return mappedMethod == null;
+		}
+
+		/**
+		 * Gets the selected mapped method.
+		 * 
+		 * @return the mapped method, or null if the route is unmatched
+		 */
+		public MethodMappingInfo getMappedMethod() {
+			return mappedMethod;
+		}
+
+		/**
+		 * Gets the path parameters of the mapped method.
+		 * 
+		 * @return the path parameters, or null if the route is unmatched
+		 */
+		public Map<String, String> getPathParameters() {
+			return pathParameters;
+		}
+	}
+
+	/**
+	 * Key of a route: the HTTP method and the segments of the URL.
+	 */
+	private static final class RouteKey {
+		private final HttpMethod httpMethod;
+		private final String[] segments;
+		private final int hashCode;
+
+		RouteKey(HttpMethod httpMethod, String[] segments) {
+			this.httpMethod = httpMethod;
+			this.segments = segments;
+			this.hashCode = 31 * httpMethod.ordinal() + Arrays.hashCode(segments);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+
+			if (!(obj instanceof RouteKey))
+				return false;
+
+			RouteKey other = (RouteKey) obj;
+
+			return hashCode == other.hashCode && httpMethod == other.httpMethod
+					&& Arrays.equals(segments, other.segments);
+		}
+	}
+}
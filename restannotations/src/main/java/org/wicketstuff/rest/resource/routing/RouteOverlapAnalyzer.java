@@ -0,0 +1,282 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.routing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.wicketstuff.rest.resource.urlsegments.AbstractURLSegment;
+import org.wicketstuff.rest.resource.urlsegments.FixedURLSegment;
+import org.wicketstuff.rest.resource.urlsegments.ParamSegment;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+
+/**
+ * Finds the mapped URLs that are ambiguous, i.e. the pairs of URLs that would
+ * match the same request with the same score (see
+ * {@link AbstractURLSegment#calculateScore(String)}), so that none of them
+ * can be selected. The analysis doesn't need any request and it's used both
+ * at build time and when routes are loaded.<br/>
+ * <br/>
+ * Two URLs with the same HTTP method, the same number of segments and the
+ * same number of fixed segments are ambiguous if every pair of segments in
+ * the same position can match the same value, and no third URL with a higher
+ * score matches all the requests matched by both. Parameter segments are
+ * compared without the names of their parameters (see
+ * {@link AbstractURLSegment#getNormalizedText()}), so '{id:\d+}' and
+ * '{code:\d+}' overlap. Whether two different regular expressions match a
+ * common value can't be decided in general: such segments are considered
+ * disjoint, hence only certain ambiguities are reported.
+ * 
+ * @author andrea del bene
+ * 
+ * @param <T>
+ *            the type of the objects the analyzed URLs come from (for
+ *            example the mapped methods).
+ */
+public class RouteOverlapAnalyzer<T> {
+	/** Score assigned to a fixed segment. */
+	private static final int FIXED_SEGMENT_SCORE = 2;
+
+	/** Score assigned to a parameter segment. */
+	private static final int PARAM_SEGMENT_SCORE = 1;
+
+	/** The routes added so far. */
+	private final List<Route<T>> routes = new ArrayList<Route<T>>();
+
+	/**
+	 * Adds a mapped URL to the analysis.
+	 * 
+	 * @param httpMethod
+	 *            the HTTP method of the URL.
+	 * @param urlPath
+	 *            the mapped URL, like '/persons/{id}'.
+	 * @param source
+	 *            the object the URL comes from.
+	 */
+	public void addRoute(HttpMethod httpMethod, String urlPath, T source) {
+		String[] segArray = urlPath.split("/");
+		List<AbstractURLSegment> segments = new ArrayList<AbstractURLSegment>();
+
+		for (int i = 0; i < segArray.length; i++) {
+			if (!segArray[i].isEmpty())
+				segments.add(AbstractURLSegment.newSegment(segArray[i]));
+		}
+
+		addRoute(httpMethod, segments, source);
+	}
+
+	/**
+	 * Adds a mapped URL to the analysis.
+	 * 
+	 * @param httpMethod
+	 *            the HTTP method of the URL.
+	 * @param segments
+	 *            the segments of the mapped URL.
+	 * @param source
+	 *            the object the URL comes from.
+	 */
+	public void addRoute(HttpMethod httpMethod, List<AbstractURLSegment> segments, T source) {
+		routes.add(new Route<T>(httpMethod, segments, source));
+	}
+
+	/**
+	 * Returns the ambiguous pairs among the routes added so far.
+	 * 
+	 * @return the ambiguities found, in the order routes have been added.
+	 */
+	public List<Ambiguity<T>> findAmbiguities() {
+		List<Ambiguity<T>> ambiguities = new ArrayList<Ambiguity<T>>();
+
+		for (int i = 0; i < routes.size(); i++) {
+			for (int j = i + 1; j < routes.size(); j++) {
+				Route<T> route1 = routes.get(i);
+				Route<T> route2 = routes.get(j);
+				String[] overlap = findOverlap(route1, route2);
+
+				if (overlap != null && !isShadowed(overlap, route1.score))
+					ambiguities.add(new Ambiguity<T>(route1.source, route2.source,
+							toUrlPath(overlap)));
+			}
+		}
+
+		return ambiguities;
+	}
+
+	/**
+	 * Returns the requests matched by both routes with the same score: for
+	 * every position the fixed value of the segment, or null if the segment
+	 * can have many values. Returns null if the routes are not in conflict.
+	 */
+	private String[] findOverlap(Route<T> route1, Route<T> route2) {
+		if (route1.httpMethod != route2.httpMethod || route1.score != route2.score
+				|| route1.segments.size() != route2.segments.size())
+			return null;
+
+		String[] overlap = new String[route1.segments.size()];
+
+		for (int i = 0; i < overlap.length; i++) {
+			AbstractURLSegment segment1 = route1.segments.get(i);
+			AbstractURLSegment segment2 = route2.segments.get(i);
+
+			if (segment1 instanceof FixedURLSegment) {
+				if (segment2.calculateScore(segment1.toString()) == 0)
+					return null;
+
+				overlap[i] = segment1.toString();
+			} else if (segment2 instanceof FixedURLSegment) {
+				if (segment1.calculateScore(segment2.toString()) == 0)
+					return null;
+
+				overlap[i] = segment2.toString();
+			} else if (!canOverlap(segment1, segment2)) {
+				return null;
+			}
+		}
+
+		return overlap;
+	}
+
+	/**
+	 * Checks if two parameter segments match a common value, assuming that
+	 * every regular expression matches some value. The names of the
+	 * parameters don't matter.
+	 */
+	private static boolean canOverlap(AbstractURLSegment segment1, AbstractURLSegment segment2) {
+		return isAnyValue(segment1) || isAnyValue(segment2)
+				|| segment1.getNormalizedText().equals(segment2.getNormalizedText());
+	}
+
+	/**
+	 * Checks if a segment matches any value, i.e. it's a parameter without
+	 * regular expression.
+	 */
+	private static boolean isAnyValue(AbstractURLSegment segment) {
+		return segment instanceof ParamSegment && ((ParamSegment) segment).getRegExp() == null;
+	}
+
+	/**
+	 * Checks if a route with a score higher than the given one matches every
+	 * request of an overlap.
+	 */
+	private boolean isShadowed(String[] overlap, int score) {
+		for (Route<T> route : routes) {
+			if (route.score <= score || route.segments.size() != overlap.length)
+				continue;
+
+			boolean matchesAll = true;
+
+			for (int i = 0; i < overlap.length && matchesAll; i++) {
+				AbstractURLSegment segment = route.segments.get(i);
+
+				matchesAll = overlap[i] != null ? segment.calculateScore(overlap[i]) > 0
+						: isAnyValue(segment);
+			}
+
+			if (matchesAll)
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Builds an example URL for an overlap, with '*' for the segments that
+	 * can have many values.
+	 */
+	private static String toUrlPath(String[] overlap) {
+		StringBuilder builder = new StringBuilder();
+
+		for (String segment : overlap) {
+			builder.append('/').append(segment != null ? segment : "*");
+		}
+
+		return builder.length() == 0 ? "/" : builder.toString();
+	}
+
+	/**
+	 * A mapped URL with its HTTP method and score.
+	 */
+	private static final class Route<T> {
+		private final HttpMethod httpMethod;
+		private final List<AbstractURLSegment> segments;
+		private final T source;
+		private final int score;
+
+		Route(HttpMethod httpMethod, List<AbstractURLSegment> segments, T source) {
+			int score = 0;
+
+			for (AbstractURLSegment segment : segments) {
+				score += segment instanceof FixedURLSegment ? FIXED_SEGMENT_SCORE
+						: PARAM_SEGMENT_SCORE;
+			}
+
+			this.httpMethod = httpMethod;
+			this.segments = Collections.unmodifiableList(new ArrayList<AbstractURLSegment>(
+					segments));
+			this.source = source;
+			this.score = score;
+		}
+	}
+
+	/**
+	 * A pair of ambiguous URLs.
+	 * 
+	 * @param <T>
+	 *            the type of the objects the URLs come from.
+	 */
+	public static final class Ambiguity<T> {
+		private final T first;
+		private final T second;
+		private final String example;
+
+		Ambiguity(T first, T second, String example) {
+			this.first = first;
+			this.second = second;
+			this.example = example;
+		}
+
+		/**
+		 * Gets the source of the first URL.
+		 * 
+		 * @return the source of the first URL
+		 */
+		public T getFirst() {
+			return first;
+		}
+
+		/**
+		 * Gets the source of the second URL.
+		 * 
+		 * @return the source of the second URL
+		 */
+		public T getSecond() {
+			return second;
+		}
+
+		/**
+		 * Gets an example of the requests matched by both URLs, like
+		 * '/persons/*', where '*' stands for the segments that can have many
+		 * values.
+		 * 
+		 * @return the example URL
+		 */
+		public String getExample() {
+			return example;
+		}
+	}
+}
@@ -0,0 +1,358 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.routing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.resource.RestRequestContext;
+import org.wicketstuff.rest.resource.urlsegments.AbstractURLSegment;
+import org.wicketstuff.rest.resource.urlsegments.FixedURLSegment;
+import org.wicketstuff.rest.resource.urlsegments.ParamSegment;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+
+/**
+ * Routing structure built once from the segments of the mapped methods. For
+ * every HTTP method we keep a trie whose nodes are the segments of the mapped
+ * URLs: fixed segments are indexed by their value while parameter segments
+ * are kept in a separate list and tested with
+ * {@link AbstractURLSegment#calculateScore(String)}.<br/>
+ * The trie is walked in priority order (fixed segments first) and branches
+ * that can't reach the best score found so far are pruned, hence the cost of
+ * a lookup depends on the depth of the path rather than on the number of
+ * mapped methods. The selected method has the highest score we would obtain
+ * scoring every candidate (see {@link AbstractURLSegment#calculateScore(String)}).<br/>
+ * <br/>
+ * Every node knows the highest score it can still add for every number of
+ * remaining segments, so branches without URLs of the right length are never
+ * entered. Routes follow a total priority order: higher scores first, then,
+ * segment by segment, fixed segments before parameters with a regular
+ * expression, before plain parameters. Parameters that can't be told apart
+ * this way follow the order of the mapped methods, never the names of the
+ * parameters, so renaming a path parameter doesn't change the selected
+ * method. {@link #selectMappedMethod(HttpMethod, String[])} returns the first
+ * route in this order and stops as soon as no other branch can beat it.
+ *
+ * @author andrea del bene
+ *
+ */
+public class RouteTrie {
+	/** Score assigned to a matching fixed segment. */
+	private static final int FIXED_SEGMENT_SCORE = 2;
+
+	/** Score assigned to a matching parameter segment. */
+	private static final int PARAM_SEGMENT_SCORE = 1;
+
+	/** The root nodes of the trie, one for every HTTP method. */
+	private final Map<HttpMethod, Node> roots = new EnumMap<HttpMethod, Node>(HttpMethod.class);
+
+	/**
+	 * Builds the trie for the given mapped methods.
+	 *
+	 * @param mappedMethods
+	 *            the mapped methods to route.
+	 */
+	public RouteTrie(Collection<MethodMappingInfo> mappedMethods) {
+		for (MethodMappingInfo mappedMethod : mappedMethods) {
+			addMappedMethod(mappedMethod);
+		}
+
+		for (Node root : roots.values()) {
+			root.freeze();
+		}
+	}
+
+	/**
+	 * Adds a mapped method to the trie creating the missing nodes.
+	 *
+	 * @param mappedMethod
+	 *            the mapped method.
+	 */
+	private void addMappedMethod(MethodMappingInfo mappedMethod) {
+		Node node = roots.get(mappedMethod.getHttpMethod());
+
+		if (node == null) {
+			node = new Node();
+			roots.put(mappedMethod.getHttpMethod(), node);
+		}
+
+		for (AbstractURLSegment segment : mappedMethod.getSegments()) {
+			node = node.getOrCreateChild(segment);
+		}
+
+		node.mappedMethods.add(mappedMethod);
+	}
+
+	/**
+	 * Selects the first mapped method in priority order among the methods
+	 * with the highest score for the given HTTP method and segments. The
+	 * lookup stops as soon as no other route can have a higher score, hence
+	 * methods with the same score are not reported.
+	 *
+	 * @param httpMethod
+	 *            the HTTP method of the request.
+	 * @param segments
+	 *            the actual segments of the request (i.e. without matrix
+	 *            parameters).
+	 * @return the selected method, or null if no method matches the request.
+	 */
+	public MethodMappingInfo selectMappedMethod(HttpMethod httpMethod, String[] segments) {
+		return selectMappedMethod(httpMethod, segments, null);
+	}
+
+	/**
+	 * Selects the mapped method for the current request, like
+	 * {@link #selectMappedMethod(HttpMethod, String[])}. The values captured
+	 * while matching the segments are stored in the context (see
+	 * {@link AbstractURLSegment#calculateScore(RestRequestContext, int)}).
+	 *
+	 * @param context
+	 *            the context of the current request.
+	 * @return the selected method, or null if no method matches the request.
+	 */
+	public MethodMappingInfo selectMappedMethod(RestRequestContext context) {
+		return selectMappedMethod(context.getHttpMethod(), context.getActualSegments(), context);
+	}
+
+	private MethodMappingInfo selectMappedMethod(HttpMethod httpMethod, String[] segments,
+			RestRequestContext context) {
+		Node root = roots.get(httpMethod);
+
+		if (root == null)
+			return null;
+
+		SearchState state = new SearchState(context);
+		root.search(segments, 0, 0, state);
+
+		return state.bestMatch;
+	}
+
+	/**
+	 * A node of the trie. It corresponds to the segment read to reach it.
+	 */
+	private static class Node {
+		/** Orders parameter children by priority. */
+		private static final Comparator<ParamChild> PRIORITY_ORDER = new Comparator<ParamChild>() {
+			@Override
+			public int compare(ParamChild child1, ParamChild child2) {
+				int result = rank(child1.segment) - rank(child2.segment);
+
+				if (result == 0)
+					result = child2.node.maxScore() - child1.node.maxScore();
+
+				// regular expressions that can't be compared follow the
+				// order of the mapped methods
+				if (result == 0)
+					result = child1.order - child2.order;
+
+				return result;
+			}
+
+			private int rank(AbstractURLSegment segment) {
+				boolean plain = segment instanceof ParamSegment
+						&& ((ParamSegment) segment).getRegExp() == null;
+
+				return plain ? 1 : 0;
+			}
+		};
+
+		/** Children reached with a fixed segment, indexed by segment value. */
+		private final Map<String, Node> fixedChildren = new HashMap<String, Node>();
+		/**
+		 * Children reached with a parameter segment, indexed by the declaration
+		 * without parameter names (see
+		 * {@link AbstractURLSegment#getNormalizedText()}).
+		 */
+		private final Map<String, ParamChild> paramChildren = new LinkedHashMap<String, ParamChild>();
+		/** Children reached with a parameter segment, in priority order. */
+		private ParamChild[] sortedParamChildren;
+		/** Mapped methods whose URL ends with this node. */
+		private final List<MethodMappingInfo> mappedMethods = new ArrayList<MethodMappingInfo>();
+		/**
+		 * The highest score that can be added from this node, indexed by the
+		 * number of remaining segments. -1 if no URL has that length.
+		 */
+		private int[] maxScores;
+
+		Node getOrCreateChild(AbstractURLSegment segment) {
+			String segmentValue = segment.toString();
+
+			if (segment instanceof FixedURLSegment) {
+				Node child = fixedChildren.get(segmentValue);
+
+				if (child == null) {
+					child = new Node();
+					fixedChildren.put(segmentValue, child);
+				}
+
+				return child;
+			}
+
+			String normalizedText = segment.getNormalizedText();
+			ParamChild paramChild = paramChildren.get(normalizedText);
+
+			if (paramChild == null) {
+				paramChild = new ParamChild(segment, paramChildren.size());
+				paramChildren.put(normalizedText, paramChild);
+			}
+
+			return paramChild.node;
+		}
+
+		/**
+		 * Computes the highest scores of the subtree and sorts the parameter
+		 * children once every mapped method has been added.
+		 */
+		void freeze() {
+			int height = 0;
+
+			for (Node child : fixedChildren.values()) {
+				child.freeze();
+				height = Math.max(height, child.maxScores.length);
+			}
+
+			for (ParamChild paramChild : paramChildren.values()) {
+				paramChild.node.freeze();
+				height = Math.max(height, paramChild.node.maxScores.length);
+			}
+
+			maxScores = new int[height + 1];
+			Arrays.fill(maxScores, -1);
+
+			if (!mappedMethods.isEmpty())
+				maxScores[0] = 0;
+
+			for (Node child : fixedChildren.values()) {
+				mergeScores(child, FIXED_SEGMENT_SCORE);
+			}
+
+			for (ParamChild paramChild : paramChildren.values()) {
+				mergeScores(paramChild.node, PARAM_SEGMENT_SCORE);
+			}
+
+			sortedParamChildren = paramChildren.values().toArray(
+					new ParamChild[paramChildren.size()]);
+			Arrays.sort(sortedParamChildren, PRIORITY_ORDER);
+		}
+
+		private void mergeScores(Node child, int segmentScore) {
+			for (int i = 0; i < child.maxScores.length; i++) {
+				if (child.maxScores[i] >= 0)
+					maxScores[i + 1] = Math.max(maxScores[i + 1], child.maxScores[i]
+							+ segmentScore);
+			}
+		}
+
+		/**
+		 * Returns the highest score that can be added from this node.
+		 */
+		int maxScore() {
+			int maxScore = -1;
+
+			for (int score : maxScores) {
+				maxScore = Math.max(maxScore, score);
+			}
+
+			return maxScore;
+		}
+
+		void search(String[] segments, int index, int score, SearchState state) {
+			int remaining = segments.length - index;
+
+			// no URL of the right length below this node
+			if (remaining >= maxScores.length || maxScores[remaining] < 0)
+				return;
+
+			// we couldn't reach the best score found so far. Looking for the
+			// first method in priority order, an equal score is not enough.
+			int bound = score + maxScores[remaining];
+
+			if (bound <= state.bestScore)
+				return;
+
+			if (remaining == 0) {
+				state.offer(mappedMethods, score);
+				return;
+			}
+
+			String segment = segments[index];
+			Node fixedChild = fixedChildren.get(segment);
+
+			if (fixedChild != null)
+				fixedChild.search(segments, index + 1, score + FIXED_SEGMENT_SCORE, state);
+
+			for (int i = 0; i < sortedParamChildren.length; i++) {
+				// the best score reachable from here has been found
+				if (state.bestScore == bound)
+					return;
+
+				ParamChild paramChild = sortedParamChildren[i];
+				int partialScore = state.context != null ? paramChild.segment.calculateScore(
+						state.context, index) : paramChild.segment.calculateScore(segment);
+
+				if (partialScore > 0)
+					paramChild.node.search(segments, index + 1, score + partialScore, state);
+			}
+		}
+	}
+
+	/**
+	 * A parameter segment together with the node it leads to.
+	 */
+	private static class ParamChild {
+		private final AbstractURLSegment segment;
+		private final Node node = new Node();
+		/** The position of the child among the children of its parent. */
+		private final int order;
+
+		ParamChild(AbstractURLSegment segment, int order) {
+			this.segment = segment;
+			this.order = order;
+		}
+	}
+
+	/**
+	 * State of a single lookup.
+	 */
+	private static class SearchState {
+		/** The context of the current request, if any. */
+		private final RestRequestContext context;
+		private int bestScore = -1;
+		/** The first method in priority order with the best score. */
+		private MethodMappingInfo bestMatch;
+
+		SearchState(RestRequestContext context) {
+			this.context = context;
+		}
+
+		void offer(List<MethodMappingInfo> mappedMethods, int score) {
+			if (mappedMethods.isEmpty() || score <= bestScore)
+				return;
+
+			bestScore = score;
+			bestMatch = mappedMethods.get(0);
+		}
+	}
+}
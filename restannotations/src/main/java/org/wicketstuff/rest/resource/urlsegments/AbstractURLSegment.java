@@ -28,8 +28,8 @@ import java.util.regex.Pattern;
 import org.apache.wicket.util.encoding.UrlEncoder;
 import org.apache.wicket.util.parse.metapattern.MetaPattern;
 import org.apache.wicket.util.parse.metapattern.OptionalMetaPattern;
-import org.apache.wicket.util.parse.metapattern.parsers.VariableAssignmentParser;
 import org.apache.wicket.util.string.StringValue;
+import org.wicketstuff.rest.resource.RestRequestContext;
 
 /**
  * Base class to contain the informations of the segments that compose the URL
@@ -82,6 +82,37 @@ public abstract class AbstractURLSegment extends StringValue {
 		return new FixedURLSegment(segment);
 	}
 
+	/**
+	 * Factory method used by the tables generated at build time to create a
+	 * segment with a fixed value, without parsing it.
+	 * 
+	 * @param segment
+	 *            The content of the new segment.
+	 * @return the new instance of FixedURLSegment.
+	 */
+	static public AbstractURLSegment newFixedSegment(String segment) {
+		return new FixedURLSegment(segment);
+	}
+
+	/**
+	 * Factory method used by the tables generated at build time to create a
+	 * segment containing a single parameter, whose name and regular
+	 * expression have been already parsed.
+	 * 
+	 * @param segment
+	 *            The content of the new segment.
+	 * @param paramName
+	 *            the name of the parameter.
+	 * @param regExp
+	 *            the regular expression of the parameter, or null if it
+	 *            doesn't declare one.
+	 * @return the new instance of ParamSegment.
+	 */
+	static public AbstractURLSegment newParamSegment(String segment, String paramName,
+			String regExp) {
+		return new ParamSegment(segment, paramName, regExp);
+	}
+
 	/**
 	 * This method checks if a given string is compatible with the current
 	 * segment.
@@ -96,6 +127,36 @@ public abstract class AbstractURLSegment extends StringValue {
 	 */
 	public abstract int calculateScore(String segment);
 
+	/**
+	 * Like {@link #calculateScore(String)}, for a segment of the current
+	 * request. Segments can store in the context the values captured while
+	 * matching, so that
+	 * {@link #populatePathVariables(Map, RestRequestContext, int)} doesn't
+	 * match the segment again.
+	 * 
+	 * @param context
+	 *            the context of the current request.
+	 * @param segmentIndex
+	 *            the index of the segment of the request.
+	 * @return the score of the segment of the request, see
+	 *         {@link #calculateScore(String)}.
+	 */
+	public int calculateScore(RestRequestContext context, int segmentIndex) {
+		return calculateScore(context.getActualSegment(segmentIndex));
+	}
+
+	/**
+	 * Returns the text of the segment without the names of its parameters,
+	 * like '{:\d+}-{}' for '{day:\d+}-{month}'. Segments with the same
+	 * normalized text match exactly the same values and capture them in the
+	 * same order.
+	 * 
+	 * @return the normalized text of the segment.
+	 */
+	public String getNormalizedText() {
+		return toString();
+	}
+
 	/**
 	 * Get the segment value without optional matrix parameters. For example
 	 * given the following value 'segment;parm=value', the function returns
@@ -105,30 +166,39 @@ public abstract class AbstractURLSegment extends StringValue {
 	 * @return the value of the segment without matrix parameters.
 	 */
 	static public String getActualSegment(String fullSegment) {
-		String[] segmentParts = fullSegment.split(MetaPattern.SEMICOLON.toString());
-		return segmentParts[0];
+		int semicolonIndex = fullSegment.indexOf(';');
+
+		return semicolonIndex < 0 ? fullSegment : fullSegment.substring(0, semicolonIndex);
 	}
 
 	/**
-	 * Extract matrix parameters from the segment in input.
+	 * Extract matrix parameters from the segment in input. Parameters are
+	 * declared as 'name=value' and they are separated by ';'. Quoted values
+	 * are returned with their quotes.
 	 * 
 	 * @param fullSegment
 	 *            the segment in input.
 	 * @return a map containing matrix parameters.
 	 */
 	static public Map<String, String> getSegmentMatrixParameters(String fullSegment) {
-		String[] segmentParts = fullSegment.split(MetaPattern.SEMICOLON.toString());
 		HashMap<String, String> matrixParameters = new HashMap<String, String>();
-
-		if (segmentParts.length < 2)
-			return matrixParameters;
-
-		for (int i = 1; i < segmentParts.length; i++) {
-			String parameterDeclar = segmentParts[i];
-			VariableAssignmentParser parser = new VariableAssignmentParser(parameterDeclar);
-
-			parser.matcher().find();
-			matrixParameters.put(parser.getKey(), parser.getValue());
+		int start = fullSegment.indexOf(';');
+
+		while (start >= 0) {
+			int end = fullSegment.indexOf(';', start + 1);
+			String parameterDeclar = fullSegment.substring(start + 1,
+					end < 0 ? fullSegment.length() : end);
+			int equalsIndex = parameterDeclar.indexOf('=');
+
+			if (equalsIndex < 0) {
+				if (parameterDeclar.trim().length() > 0)
+					matrixParameters.put(parameterDeclar.trim(), null);
+			} else {
+				matrixParameters.put(parameterDeclar.substring(0, equalsIndex).trim(),
+						parameterDeclar.substring(equalsIndex + 1).trim());
+			}
+
+			start = end;
 		}
 
 		return matrixParameters;
@@ -145,6 +215,23 @@ public abstract class AbstractURLSegment extends StringValue {
 	 */
 	public abstract void populatePathVariables(Map<String, String> variables, String segment);
 
+	/**
+	 * Like {@link #populatePathVariables(Map, String)}, for a segment of the
+	 * current request. The values captured by
+	 * {@link #calculateScore(RestRequestContext, int)} are reused.
+	 * 
+	 * @param variables
+	 * 				the Map object containing the extracted parameters.
+	 * @param context
+	 * 				the context of the current request.
+	 * @param segmentIndex
+	 * 				the index of the segment of the request.
+	 */
+	public void populatePathVariables(Map<String, String> variables, RestRequestContext context,
+			int segmentIndex) {
+		populatePathVariables(variables, context.getActualSegment(segmentIndex));
+	}
+
 	/**
 	 * Getter method for segment MetaPattern.
 	 **/
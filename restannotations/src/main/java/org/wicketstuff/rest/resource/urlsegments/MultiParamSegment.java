@@ -21,8 +21,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.wicket.util.parse.metapattern.MetaPattern;
+import org.wicketstuff.rest.resource.RestRequestContext;
 
 /**
  * This kind of segment can contain more than one path parameter, for example
@@ -34,9 +36,30 @@ import org.apache.wicket.util.parse.metapattern.MetaPattern;
 public class MultiParamSegment extends AbstractURLSegment {
 	final private List<AbstractURLSegment> subSegments;
 
+	/** The scanner used in place of the regular expression, if any. */
+	final private SegmentScanner scanner;
+
+	/**
+	 * The pattern with a capture group for each parameter, used if the
+	 * segment has no scanner.
+	 */
+	private volatile CapturePattern capturePattern;
+
+	/** The text of the segment without the parameter names. */
+	final private String normalizedText;
+
 	MultiParamSegment(String text) {
 		super(text);
 		this.subSegments = Collections.unmodifiableList(loadSubSegments(text));
+		this.scanner = SegmentScanner.compile(this);
+
+		StringBuilder normalizedText = new StringBuilder();
+
+		for (AbstractURLSegment subSegment : subSegments) {
+			normalizedText.append(subSegment.getNormalizedText());
+		}
+
+		this.normalizedText = normalizedText.toString();
 	}
 
 	/**
@@ -86,34 +109,150 @@ public class MultiParamSegment extends AbstractURLSegment {
 
 	@Override
 	public int calculateScore(String actualSegment) {
-		Matcher matcher = getMetaPattern().matcher(actualSegment);
+		if (scanner != null)
+			return scanner.matches(actualSegment) ? 1 : 0;
 
-		return matcher.matches() ? 1 : 0;
+		return getCapturePattern().pattern.matcher(actualSegment).matches() ? 1 : 0;
+	}
+
+	/**
+	 * {@inheritDoc} The values of the parameters are stored in the context
+	 * when the segment matches.
+	 */
+	@Override
+	public int calculateScore(RestRequestContext context, int segmentIndex) {
+		String actualSegment = context.getActualSegment(segmentIndex);
+
+		if (scanner != null)
+			return scanner.matches(actualSegment) ? 1 : 0;
+
+		String[] values = capture(actualSegment);
+
+		if (values == null)
+			return 0;
+
+		context.setCapturedValues(segmentIndex, this, values);
+		return 1;
 	}
 
 	@Override
 	public void populatePathVariables(Map<String, String> variables, String segment) {
-		int startingIndex = 0;
+		if (scanner != null) {
+			scanner.populateVariables(variables, segment);
+			return;
+		}
+
+		putVariables(variables, capture(segment));
+	}
 
-		if (!getMetaPattern().matcher(segment).matches())
+	@Override
+	public void populatePathVariables(Map<String, String> variables, RestRequestContext context,
+			int segmentIndex) {
+		String segment = context.getActualSegment(segmentIndex);
+
+		if (scanner != null) {
+			scanner.populateVariables(variables, segment);
 			return;
+		}
 
-		for (AbstractURLSegment subSegment : subSegments) {
-			MetaPattern pattern = subSegment.getMetaPattern();
-			segment = segment.substring(startingIndex);
-			Matcher matcher = pattern.matcher(segment);
+		String[] values = context.getCapturedValues(segmentIndex, this);
+
+		putVariables(variables, values != null ? values : capture(segment));
+	}
+
+	/**
+	 * Matches the given text with the capture pattern.
+	 * 
+	 * @param text
+	 *            the text of the segment.
+	 * @return the values of the parameters, or null if the text doesn't match.
+	 */
+	private String[] capture(String text) {
+		CapturePattern pattern = getCapturePattern();
+		Matcher matcher = pattern.pattern.matcher(text);
 
-			if (matcher.find()) {
-				String group = matcher.group();
+		if (!matcher.matches())
+			return null;
 
-				subSegment.populatePathVariables(variables, group);
+		String[] values = new String[pattern.names.length];
 
-				startingIndex = matcher.end();
-			}
+		for (int i = 0; i < values.length; i++) {
+			values[i] = matcher.group(pattern.groups[i]);
+		}
+
+		return values;
+	}
+
+	private void putVariables(Map<String, String> variables, String[] values) {
+		if (values == null)
+			return;
+
+		String[] names = getCapturePattern().names;
+
+		for (int i = 0; i < names.length; i++) {
+			variables.put(names[i], values[i]);
+		}
+	}
+
+	private CapturePattern getCapturePattern() {
+		CapturePattern pattern = capturePattern;
+
+		if (pattern == null) {
+			pattern = new CapturePattern(subSegments);
+			capturePattern = pattern;
 		}
+
+		return pattern;
+	}
+
+	@Override
+	public String getNormalizedText() {
+		return normalizedText;
 	}
 
 	public List<AbstractURLSegment> getSubSegments() {
 		return subSegments;
 	}
+
+	/**
+	 * Pattern of the whole segment, with the regular expression of every
+	 * parameter wrapped in a capture group.
+	 */
+	private static final class CapturePattern {
+		private final Pattern pattern;
+		/** The names of the parameters. */
+		private final String[] names;
+		/** The index of the capture group of each parameter. */
+		private final int[] groups;
+
+		CapturePattern(List<AbstractURLSegment> subSegments) {
+			StringBuilder regExp = new StringBuilder();
+			List<String> names = new ArrayList<String>();
+			List<Integer> groups = new ArrayList<Integer>();
+			int groupCount = 0;
+
+			for (AbstractURLSegment subSegment : subSegments) {
+				String subRegExp = subSegment.getMetaPattern().toString();
+
+				if (subSegment instanceof ParamSegment) {
+					regExp.append('(').append(subRegExp).append(')');
+					names.add(((ParamSegment) subSegment).getParamName());
+					groups.add(++groupCount);
+				} else {
+					regExp.append(subRegExp);
+				}
+
+				// groups declared inside the regular expression of the segment
+				groupCount += Pattern.compile(subRegExp).matcher("").groupCount();
+			}
+
+			this.pattern = Pattern.compile(regExp.toString());
+			this.names = names.toArray(new String[names.size()]);
+			this.groups = new int[groups.size()];
+
+			for (int i = 0; i < this.groups.length; i++) {
+				this.groups[i] = groups.get(i);
+			}
+		}
+	}
 }
@@ -33,14 +33,41 @@ public class ParamSegment extends AbstractURLSegment {
 	
 	final private String paramName;
 	
+	final private String regExp;
+	
+	/** The scanner used in place of the regular expression, if any. */
+	final private SegmentScanner scanner;
+	
+	/** The text of the segment without the parameter name. */
+	final private String normalizedText;
+	
 	ParamSegment(String text) {
 		super(text);
 		
 		this.paramName = loadParamName();
+		this.regExp = loadRegExp();
+		this.scanner = SegmentScanner.compile(this);
+		this.normalizedText = normalize(regExp);
+	}
+	
+	ParamSegment(String text, String paramName, String regExp) {
+		super(text);
+		
+		this.paramName = paramName;
+		this.regExp = regExp;
+		this.scanner = SegmentScanner.compile(this);
+		this.normalizedText = normalize(regExp);
+	}
+	
+	private static String normalize(String regExp) {
+		return regExp == null ? "{}" : "{:" + regExp + "}";
 	}
 	
 	@Override
 	public int calculateScore(String actualSegment) {
+		if (scanner != null)
+			return scanner.matches(actualSegment) ? 1 : 0;
+		
 		Matcher matcher = getMetaPattern().matcher(actualSegment);
 		
 		return matcher.matches() ? 1 : 0;
@@ -54,32 +81,58 @@ public class ParamSegment extends AbstractURLSegment {
 		return matcher.group();
 	}
 	
-	@Override
-	protected MetaPattern loadMetaPattern() {
+	private String loadRegExp() {
 		String segmentContent = this.toString();
 		int semicolonIndex = segmentContent.indexOf(':');
 		
 		if(semicolonIndex < 0)
-			return MetaPattern.ANYTHING_NON_EMPTY;
+			return null;
 		
 		String regExp = segmentContent.substring(semicolonIndex + 1, segmentContent.length() - 1);
 		Matcher matcher = REGEXP_BODY.matcher(regExp);
 		
 		matcher.matches();
 		
-		String group = matcher.group();
+		return matcher.group();
+	}
+	
+	@Override
+	protected MetaPattern loadMetaPattern() {
+		if(regExp == null)
+			return MetaPattern.ANYTHING_NON_EMPTY;
 		
-		return new MetaPattern(group);
+		return new MetaPattern(regExp);
 	}
 	
 	@Override
 	public void populatePathVariables(Map<String, String> variables, String segment) {
+		if (scanner != null) {
+			if (scanner.matches(segment))
+				variables.put(paramName, segment);
+			return;
+		}
+		
 		Matcher matcher = getMetaPattern().matcher(segment);
 		matcher.matches();
 		variables.put(paramName, matcher.group());
 	}
 	
+	@Override
+	public String getNormalizedText() {
+		return normalizedText;
+	}
+	
 	public String getParamName() {
 		return paramName;
 	}
+	
+	/**
+	 * Gets the regular expression of the parameter.
+	 * 
+	 * @return the regular expression, or null if the parameter doesn't
+	 *         declare one
+	 */
+	public String getRegExp() {
+		return regExp;
+	}
 }
\ No newline at end of file
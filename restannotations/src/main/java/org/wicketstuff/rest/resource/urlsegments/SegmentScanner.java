@@ -0,0 +1,466 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.urlsegments;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hand-written matcher for segments with a common shape, used in place of
+ * regular expressions. A segment can be compiled if its regular expressions
+ * are sequences of:
+ * <ul>
+ * <li>literal text (for example '-', '_' or '\.')</li>
+ * <li>character classes like \d, \w, '.' or simple brackets like [0-9],
+ * [a-z] or [0-9a-fA-F], with an optional quantifier (+, *, ?, {n}, {n,} or
+ * {n,m})</li>
+ * </ul>
+ * Parameters without a regular expression match any non-empty text. This
+ * covers for example '{id}', '{year:\d{4}}', hexadecimal values, UUIDs and
+ * segments like '{day:\d{2}}-{month:\d{2}}-{year:\d{4}}_{message}'.<br/>
+ * <br/>
+ * To be matched with a single left-to-right scan, a class with a variable
+ * length must be the last element of the segment or it must be followed by
+ * literal text starting with a character outside the class. With this rule
+ * the scanner finds the same match the regular expression would find.
+ * Segments that don't follow these rules are not compiled (see
+ * {@link #compile(AbstractURLSegment)}) and they are matched with their
+ * regular expression.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public final class SegmentScanner {
+	/** The elements of the segment, in order. */
+	private final Element[] elements;
+
+	/** The names of the parameters, indexed by group. */
+	private final String[] groupNames;
+
+	private SegmentScanner(Element[] elements, String[] groupNames) {
+		this.elements = elements;
+		this.groupNames = groupNames;
+	}
+
+	/**
+	 * Compiles a segment into a scanner.
+	 * 
+	 * @param segment
+	 *            the segment to compile.
+	 * @return the scanner, or null if the segment has not a supported shape.
+	 */
+	public static SegmentScanner compile(AbstractURLSegment segment) {
+		List<Element> elements = new ArrayList<Element>();
+		List<String> groupNames = new ArrayList<String>();
+
+		if (segment instanceof MultiParamSegment) {
+			for (AbstractURLSegment subSegment : ((MultiParamSegment) segment).getSubSegments()) {
+				if (!appendElements(subSegment, elements, groupNames))
+					return null;
+			}
+		} else if (!appendElements(segment, elements, groupNames)) {
+			return null;
+		}
+
+		for (int i = 0; i < elements.size(); i++) {
+			Element next = i + 1 < elements.size() ? elements.get(i + 1) : null;
+
+			if (!elements.get(i).isFollowedUnambiguouslyBy(next))
+				return null;
+		}
+
+		return new SegmentScanner(elements.toArray(new Element[elements.size()]),
+				groupNames.toArray(new String[groupNames.size()]));
+	}
+
+	/**
+	 * Checks if the given text matches the segment.
+	 * 
+	 * @param text
+	 *            the text of the segment.
+	 * @return true if the text matches, false otherwise.
+	 */
+	public boolean matches(String text) {
+		return scan(text, null);
+	}
+
+	/**
+	 * Puts the values of the parameters of the segment into the given map.
+	 * 
+	 * @param variables
+	 *            the map of the path parameters.
+	 * @param text
+	 *            the text of the segment.
+	 * @return true if the text matches the segment, false otherwise (in this
+	 *         case the map is not modified).
+	 */
+	public boolean populateVariables(Map<String, String> variables, String text) {
+		if (groupNames.length == 0)
+			return matches(text);
+
+		int[] groupBounds = new int[groupNames.length * 2];
+
+		if (!scan(text, groupBounds))
+			return false;
+
+		for (int i = 0; i < groupNames.length; i++) {
+			variables.put(groupNames[i], text.substring(groupBounds[i * 2], groupBounds[i * 2 + 1]));
+		}
+
+		return true;
+	}
+
+	/**
+	 * Scans the given text.
+	 * 
+	 * @param text
+	 *            the text of the segment.
+	 * @param groupBounds
+	 *            if not null, it receives the start and the end of each
+	 *            parameter.
+	 * @return true if the whole text matches.
+	 */
+	private boolean scan(String text, int[] groupBounds) {
+		int position = 0;
+		int length = text.length();
+		int currentGroup = -1;
+
+		for (int i = 0; i < elements.length; i++) {
+			Element element = elements[i];
+
+			if (groupBounds != null && element.group != currentGroup) {
+				if (currentGroup >= 0)
+					groupBounds[currentGroup * 2 + 1] = position;
+
+				if (element.group >= 0)
+					groupBounds[element.group * 2] = position;
+
+				currentGroup = element.group;
+			}
+
+			if (element.literal != null) {
+				if (!text.startsWith(element.literal, position))
+					return false;
+
+				position += element.literal.length();
+			} else {
+				int limit = (int) Math.min(length, (long) position + element.max);
+				int start = position;
+
+				while (position < limit && element.accepts(text.charAt(position)))
+					position++;
+
+				if (position - start < element.min)
+					return false;
+			}
+		}
+
+		if (groupBounds != null && currentGroup >= 0)
+			groupBounds[currentGroup * 2 + 1] = position;
+
+		return position == length;
+	}
+
+	/**
+	 * Appends the elements of a simple segment.
+	 * 
+	 * @return false if the segment can't be compiled.
+	 */
+	private static boolean appendElements(AbstractURLSegment segment, List<Element> elements,
+			List<String> groupNames) {
+		if (segment instanceof FixedURLSegment) {
+			elements.add(Element.literal(segment.toString(), -1));
+			return true;
+		}
+
+		if (!(segment instanceof ParamSegment))
+			return false;
+
+		ParamSegment paramSegment = (ParamSegment) segment;
+		String regExp = paramSegment.getRegExp();
+		int group = groupNames.size();
+
+		groupNames.add(paramSegment.getParamName());
+
+		if (regExp == null) {
+			elements.add(Element.anyNonEmpty(group));
+			return true;
+		}
+
+		int elementsCount = elements.size();
+
+		if (!new RegExpParser(regExp, group, elements).parse())
+			return false;
+
+		// an empty regular expression
+		return elements.size() > elementsCount;
+	}
+
+	/**
+	 * An element of the segment: literal text or a character class.
+	 */
+	private static final class Element {
+		/** The literal text, null for character classes. */
+		private final String literal;
+		/** ASCII characters accepted by the class. */
+		private final boolean[] asciiSet;
+		/** True if the class accepts anything but line terminators. */
+		private final boolean anyChar;
+		/** Minimum and maximum number of characters of the class. */
+		private final int min, max;
+		/** The parameter the element belongs to, -1 for none. */
+		private final int group;
+
+		private Element(String literal, boolean[] asciiSet, boolean anyChar, int min, int max,
+				int group) {
+			this.literal = literal;
+			this.asciiSet = asciiSet;
+			this.anyChar = anyChar;
+			this.min = min;
+			this.max = max;
+			this.group = group;
+		}
+
+		static Element literal(String literal, int group) {
+			return new Element(literal, null, false, literal.length(), literal.length(), group);
+		}
+
+		static Element anyNonEmpty(int group) {
+			return new Element(null, null, true, 1, Integer.MAX_VALUE, group);
+		}
+
+		static Element charClass(boolean[] asciiSet, boolean anyChar, int min, int max,
+				int group) {
+			return new Element(null, asciiSet, anyChar, min, max, group);
+		}
+
+		boolean accepts(char c) {
+			if (anyChar)
+				return c != '\n' && c != '\r' && c != '\u0085' && c != '\u2028'
+						&& c != '\u2029';
+
+			return c < 128 && asciiSet[c];
+		}
+
+		boolean isFollowedUnambiguouslyBy(Element next) {
+			if (literal != null || min == max || next == null)
+				return true;
+
+			return next.literal != null && !next.literal.isEmpty()
+					&& !accepts(next.literal.charAt(0));
+		}
+	}
+
+	/**
+	 * Parser for the supported subset of regular expressions.
+	 */
+	private static final class RegExpParser {
+		private static final String METACHARS = "\\^$.|?*+()[]{}";
+
+		private final String regExp;
+		private final int group;
+		private final List<Element> elements;
+		private int position;
+		private StringBuilder literal = new StringBuilder();
+
+		RegExpParser(String regExp, int group, List<Element> elements) {
+			this.regExp = regExp;
+			this.group = group;
+			this.elements = elements;
+		}
+
+		boolean parse() {
+			while (position < regExp.length()) {
+				char c = regExp.charAt(position);
+				boolean[] asciiSet = null;
+				boolean anyChar = false;
+
+				if (c == '\\') {
+					if (position + 1 >= regExp.length())
+						return false;
+
+					char escaped = regExp.charAt(position + 1);
+
+					position += 2;
+
+					if (escaped == 'd') {
+						asciiSet = new boolean[128];
+						addRange(asciiSet, '0', '9');
+					} else if (escaped == 'w') {
+						asciiSet = new boolean[128];
+						addRange(asciiSet, '0', '9');
+						addRange(asciiSet, 'a', 'z');
+						addRange(asciiSet, 'A', 'Z');
+						asciiSet['_'] = true;
+					} else if (!Character.isLetterOrDigit(escaped) && escaped < 128) {
+						if (!appendLiteral(escaped))
+							return false;
+						continue;
+					} else {
+						return false;
+					}
+				} else if (c == '.') {
+					anyChar = true;
+					position++;
+				} else if (c == '[') {
+					asciiSet = parseBrackets();
+
+					if (asciiSet == null)
+						return false;
+				} else if (METACHARS.indexOf(c) >= 0) {
+					return false;
+				} else {
+					position++;
+
+					if (!appendLiteral(c))
+						return false;
+					continue;
+				}
+
+				flushLiteral();
+
+				int[] quantifier = parseQuantifier();
+
+				if (quantifier == null)
+					return false;
+
+				elements.add(Element.charClass(asciiSet, anyChar, quantifier[0], quantifier[1],
+						group));
+			}
+
+			flushLiteral();
+			return true;
+		}
+
+		/**
+		 * Appends a character to the current literal text. A quantifier
+		 * after a literal character is not supported.
+		 */
+		private boolean appendLiteral(char c) {
+			if (position < regExp.length() && "?*+{".indexOf(regExp.charAt(position)) >= 0)
+				return false;
+
+			literal.append(c);
+			return true;
+		}
+
+		private void flushLiteral() {
+			if (literal.length() > 0) {
+				elements.add(Element.literal(literal.toString(), group));
+				literal = new StringBuilder();
+			}
+		}
+
+		/**
+		 * Parses a class like [0-9a-f]. Negated classes, nested classes and
+		 * non-ASCII characters are not supported.
+		 */
+		private boolean[] parseBrackets() {
+			boolean[] asciiSet = new boolean[128];
+			int end = regExp.indexOf(']', position + 1);
+
+			if (end < 0 || end == position + 1 || regExp.charAt(position + 1) == '^')
+				return null;
+
+			for (int i = position + 1; i < end; i++) {
+				char c = regExp.charAt(i);
+
+				if (c == '[' || c == '\\' || c == '&' || c >= 128)
+					return null;
+
+				if (i + 2 < end && regExp.charAt(i + 1) == '-') {
+					char last = regExp.charAt(i + 2);
+
+					if (last < c || last >= 128)
+						return null;
+
+					addRange(asciiSet, c, last);
+					i += 2;
+				} else {
+					asciiSet[c] = true;
+				}
+			}
+
+			position = end + 1;
+			return asciiSet;
+		}
+
+		/**
+		 * Parses an optional quantifier, returning its minimum and maximum.
+		 * Lazy and possessive quantifiers are not supported.
+		 */
+		private int[] parseQuantifier() {
+			int[] quantifier = new int[] { 1, 1 };
+
+			if (position >= regExp.length())
+				return quantifier;
+
+			char c = regExp.charAt(position);
+
+			if (c == '+') {
+				quantifier[1] = Integer.MAX_VALUE;
+				position++;
+			} else if (c == '*') {
+				quantifier[0] = 0;
+				quantifier[1] = Integer.MAX_VALUE;
+				position++;
+			} else if (c == '?') {
+				quantifier[0] = 0;
+				position++;
+			} else if (c == '{') {
+				int end = regExp.indexOf('}', position);
+
+				if (end < 0)
+					return null;
+
+				String bounds = regExp.substring(position + 1, end);
+				int comma = bounds.indexOf(',');
+
+				try {
+					if (comma < 0) {
+						quantifier[0] = quantifier[1] = Integer.parseInt(bounds);
+					} else {
+						quantifier[0] = Integer.parseInt(bounds.substring(0, comma));
+						quantifier[1] = comma == bounds.length() - 1 ? Integer.MAX_VALUE : Integer
+								.parseInt(bounds.substring(comma + 1));
+					}
+				} catch (NumberFormatException e) {
+					return null;
+				}
+
+				if (quantifier[0] < 0 || quantifier[1] < quantifier[0])
+					return null;
+
+				position = end + 1;
+			} else {
+				return quantifier;
+			}
+
+			if (position < regExp.length() && "?+".indexOf(regExp.charAt(position)) >= 0)
+				return null;
+
+			return quantifier;
+		}
+
+		private static void addRange(boolean[] asciiSet, char first, char last) {
+			for (char c = first; c <= last; c++) {
+				asciiSet[c] = true;
+			}
+		}
+	}
+}
@@ -0,0 +1,42 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.convert;
+
+import java.util.Locale;
+
+/**
+ * General interface to implement the conversion of textual values (like path
+ * parameters, headers, cookies, etc...) to a given type. Unlike Wicket
+ * converters, implementations must not throw exceptions: if a value can't be
+ * converted they simply return null.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public interface ITextConverter {
+	/**
+	 * Convert the given value.
+	 * 
+	 * @param value
+	 *            the value to convert.
+	 * @param locale
+	 *            the locale of the current request, or null if the value does
+	 *            not depend on the request (for example a default value).
+	 * @return the converted value, or null if the value can't be converted.
+	 */
+	public Object convert(CharSequence value, Locale locale);
+}
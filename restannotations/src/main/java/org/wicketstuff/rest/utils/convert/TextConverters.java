@@ -0,0 +1,526 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.convert;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Factory of the built-in {@link ITextConverter}s. Built-in converters handle
+ * strings, primitive types and their wrappers, {@link UUID}, enums and
+ * {@link Date} values in ISO 8601 format (for example '2013-05-21' or
+ * '2013-05-21T10:15:30Z'). They parse values directly from their characters
+ * without throwing exceptions.<br/>
+ * Values in a locale-specific format (like '1,234' or '12,5') are not
+ * handled: converters return null for them, so that callers can fall back to
+ * the Wicket converters.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class TextConverters {
+	/** Max number of digits of a long value. */
+	private static final int LONG_MAX_DIGITS = 19;
+
+	/** Max number of digits of an integer value. */
+	private static final int INTEGER_MAX_DIGITS = 10;
+
+	/** Built-in converters indexed by type. */
+	private static final Map<Class<?>, ITextConverter> CONVERTERS;
+
+	/** Decimal separators already resolved, indexed by locale. */
+	private static final ConcurrentMap<Locale, Character> DECIMAL_SEPARATORS = new ConcurrentHashMap<Locale, Character>();
+
+	/** Converters for enum types, created on first use. */
+	private static final ConcurrentMap<Class<?>, ITextConverter> ENUM_CONVERTERS = new ConcurrentHashMap<Class<?>, ITextConverter>();
+
+	static {
+		Map<Class<?>, ITextConverter> converters = new HashMap<Class<?>, ITextConverter>();
+		ITextConverter integerConverter = new IntegralConverter(Integer.MIN_VALUE,
+				Integer.MAX_VALUE) {
+			@Override
+			protected Object box(long value) {
+				return Integer.valueOf((int) value);
+			}
+		};
+		ITextConverter longConverter = new IntegralConverter(Long.MIN_VALUE, Long.MAX_VALUE) {
+			@Override
+			protected Object box(long value) {
+				return Long.valueOf(value);
+			}
+		};
+		ITextConverter shortConverter = new IntegralConverter(Short.MIN_VALUE, Short.MAX_VALUE) {
+			@Override
+			protected Object box(long value) {
+				return Short.valueOf((short) value);
+			}
+		};
+		ITextConverter byteConverter = new IntegralConverter(Byte.MIN_VALUE, Byte.MAX_VALUE) {
+			@Override
+			protected Object box(long value) {
+				return Byte.valueOf((byte) value);
+			}
+		};
+		ITextConverter floatConverter = new DecimalConverter() {
+			@Override
+			protected Object parse(String value) {
+				return Float.valueOf(value);
+			}
+		};
+		ITextConverter doubleConverter = new DecimalConverter() {
+			@Override
+			protected Object parse(String value) {
+				return Double.valueOf(value);
+			}
+		};
+		ITextConverter booleanConverter = new BooleanConverter();
+
+		converters.put(int.class, integerConverter);
+		converters.put(Integer.class, integerConverter);
+		converters.put(long.class, longConverter);
+		converters.put(Long.class, longConverter);
+		converters.put(short.class, shortConverter);
+		converters.put(Short.class, shortConverter);
+		converters.put(byte.class, byteConverter);
+		converters.put(Byte.class, byteConverter);
+		converters.put(float.class, floatConverter);
+		converters.put(Float.class, floatConverter);
+		converters.put(double.class, doubleConverter);
+		converters.put(Double.class, doubleConverter);
+		converters.put(boolean.class, booleanConverter);
+		converters.put(Boolean.class, booleanConverter);
+		converters.put(String.class, new StringConverter());
+		converters.put(UUID.class, new UUIDConverter());
+		converters.put(Date.class, new IsoDateConverter());
+
+		CONVERTERS = Collections.unmodifiableMap(converters);
+	}
+
+	/**
+	 * Returns the built-in converter for the given type.
+	 * 
+	 * @param type
+	 *            the target type.
+	 * @return the converter for the type, or null if there is no built-in
+	 *         converter for it.
+	 */
+	public static ITextConverter forType(Class<?> type) {
+		ITextConverter converter = CONVERTERS.get(type);
+
+		if (converter != null || !type.isEnum())
+			return converter;
+
+		converter = ENUM_CONVERTERS.get(type);
+
+		if (converter == null) {
+			converter = new EnumConverter(type);
+			ENUM_CONVERTERS.putIfAbsent(type, converter);
+		}
+
+		return converter;
+	}
+
+	/**
+	 * Returns the decimal separator used by the given locale.
+	 * 
+	 * @param locale
+	 *            the locale, or null for locale-independent values.
+	 * @return the decimal separator
+	 */
+	static char getDecimalSeparator(Locale locale) {
+		if (locale == null)
+			return '.';
+
+		Character separator = DECIMAL_SEPARATORS.get(locale);
+
+		if (separator == null) {
+			separator = DecimalFormatSymbols.getInstance(locale).getDecimalSeparator();
+			DECIMAL_SEPARATORS.putIfAbsent(locale, separator);
+		}
+
+		return separator;
+	}
+
+	/**
+	 * Checks that the value contains only digits, optionally preceded by a
+	 * minus sign.
+	 * 
+	 * @param value
+	 *            the value to check.
+	 * @param maxDigits
+	 *            the max number of digits allowed.
+	 * @return true if the value is an integral number, false otherwise.
+	 */
+	static boolean isIntegral(CharSequence value, int maxDigits) {
+		int length = value.length();
+		int i = length > 0 && value.charAt(0) == '-' ? 1 : 0;
+
+		if (i == length || length - i > maxDigits)
+			return false;
+
+		for (; i < length; i++) {
+			char c = value.charAt(i);
+
+			if (c < '0' || c > '9')
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Parse a value checked with {@link #isIntegral(CharSequence, int)}. The
+	 * number is accumulated as negative value, so that Long.MIN_VALUE can be
+	 * parsed too.
+	 * 
+	 * @param value
+	 *            the value to parse.
+	 * @return the parsed number.
+	 */
+	static long parseIntegral(CharSequence value) {
+		boolean negative = value.charAt(0) == '-';
+		long result = 0;
+
+		for (int i = negative ? 1 : 0; i < value.length(); i++) {
+			result = result * 10 - (value.charAt(i) - '0');
+		}
+
+		return negative ? result : -result;
+	}
+
+	/**
+	 * Checks if the absolute value of the given integral number (see
+	 * {@link #isIntegral(CharSequence, int)}) fits a long.
+	 * 
+	 * @param value
+	 *            the value to check.
+	 * @return true if the value fits a long, false otherwise.
+	 */
+	static boolean fitsLong(CharSequence value) {
+		boolean negative = value.charAt(0) == '-';
+		int start = negative ? 1 : 0;
+
+		if (value.length() - start < LONG_MAX_DIGITS)
+			return true;
+
+		String limit = negative ? "9223372036854775808" : "9223372036854775807";
+
+		for (int i = 0; i < LONG_MAX_DIGITS; i++) {
+			char c = value.charAt(start + i);
+
+			if (c != limit.charAt(i))
+				return c < limit.charAt(i);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Parses a fixed number of digits starting from the given index.
+	 * 
+	 * @return the parsed value, or -1 if the characters are not digits.
+	 */
+	static int parseDigits(CharSequence value, int start, int count) {
+		if (start + count > value.length())
+			return -1;
+
+		int result = 0;
+
+		for (int i = start; i < start + count; i++) {
+			char c = value.charAt(i);
+
+			if (c < '0' || c > '9')
+				return -1;
+
+			result = result * 10 + (c - '0');
+		}
+
+		return result;
+	}
+
+	/**
+	 * Converter for integral numbers.
+	 */
+	private abstract static class IntegralConverter implements ITextConverter {
+		private final long minValue;
+		private final long maxValue;
+		private final int maxDigits;
+
+		IntegralConverter(long minValue, long maxValue) {
+			this.minValue = minValue;
+			this.maxValue = maxValue;
+			this.maxDigits = maxValue == Long.MAX_VALUE ? LONG_MAX_DIGITS : INTEGER_MAX_DIGITS;
+		}
+
+		@Override
+		public Object convert(CharSequence value, Locale locale) {
+			if (!isIntegral(value, maxDigits) || (maxDigits == LONG_MAX_DIGITS && !fitsLong(value)))
+				return null;
+
+			long number = parseIntegral(value);
+
+			if (number < minValue || number > maxValue)
+				return null;
+
+			return box(number);
+		}
+
+		protected abstract Object box(long value);
+	}
+
+	/**
+	 * Converter for decimal numbers. Values containing a decimal point are
+	 * handled only if the point is the decimal separator of the locale.
+	 */
+	private abstract static class DecimalConverter implements ITextConverter {
+		@Override
+		public Object convert(CharSequence value, Locale locale) {
+			int length = value.length();
+			int i = length > 0 && value.charAt(0) == '-' ? 1 : 0;
+			boolean hasDigits = false;
+			boolean hasPoint = false;
+
+			for (; i < length; i++) {
+				char c = value.charAt(i);
+
+				if (c >= '0' && c <= '9') {
+					hasDigits = true;
+				} else if (c == '.' && !hasPoint) {
+					hasPoint = true;
+				} else {
+					return null;
+				}
+			}
+
+			if (!hasDigits || (hasPoint && getDecimalSeparator(locale) != '.'))
+				return null;
+
+			return parse(value.toString());
+		}
+
+		protected abstract Object parse(String value);
+	}
+
+	/**
+	 * Converter for boolean values 'true' and 'false' (case insensitive).
+	 */
+	private static class BooleanConverter implements ITextConverter {
+		@Override
+		public Object convert(CharSequence value, Locale locale) {
+			String text = value.toString();
+
+			if ("true".equalsIgnoreCase(text))
+				return Boolean.TRUE;
+			if ("false".equalsIgnoreCase(text))
+				return Boolean.FALSE;
+
+			return null;
+		}
+	}
+
+	/**
+	 * Identity converter for strings.
+	 */
+	private static class StringConverter implements ITextConverter {
+		@Override
+		public Object convert(CharSequence value, Locale locale) {
+			return value.toString();
+		}
+	}
+
+	/**
+	 * Converter for enums. Constants are looked up by name in a map built
+	 * once per enum type.
+	 */
+	private static class EnumConverter implements ITextConverter {
+		private final Map<String, Object> constants = new HashMap<String, Object>();
+
+		EnumConverter(Class<?> enumType) {
+			for (Object constant : enumType.getEnumConstants()) {
+				constants.put(((Enum<?>) constant).name(), constant);
+			}
+		}
+
+		@Override
+		public Object convert(CharSequence value, Locale locale) {
+			return constants.get(value.toString());
+		}
+	}
+
+	/**
+	 * Converter for UUID in their canonical form
+	 * ('xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx').
+	 */
+	private static class UUIDConverter implements ITextConverter {
+		private static final int UUID_LENGTH = 36;
+
+		@Override
+		public Object convert(CharSequence value, Locale locale) {
+			if (value.length() != UUID_LENGTH)
+				return null;
+
+			long mostSigBits = 0;
+			long leastSigBits = 0;
+			int digits = 0;
+
+			for (int i = 0; i < UUID_LENGTH; i++) {
+				char c = value.charAt(i);
+
+				if (i == 8 || i == 13 || i == 18 || i == 23) {
+					if (c != '-')
+						return null;
+					continue;
+				}
+
+				int digit = Character.digit(c, 16);
+
+				if (digit < 0)
+					return null;
+
+				if (digits++ < 16)
+					mostSigBits = (mostSigBits << 4) | digit;
+				else
+					leastSigBits = (leastSigBits << 4) | digit;
+			}
+
+			return new UUID(mostSigBits, leastSigBits);
+		}
+	}
+
+	/**
+	 * Converter for dates in ISO 8601 format: 'yyyy-MM-dd' optionally
+	 * followed by 'THH:mm', seconds, milliseconds and time zone ('Z' or
+	 * '+HH:mm'). Dates without time zone use the default one.
+	 */
+	private static class IsoDateConverter implements ITextConverter {
+		private static final int[] DAYS_IN_MONTH = { 31, 29, 31, 30, 31, 30, 31, 31, 30, 31, 30,
+				31 };
+
+		@Override
+		public Object convert(CharSequence value, Locale locale) {
+			int length = value.length();
+			int year = parseDigits(value, 0, 4);
+			int month = parseDigits(value, 5, 2);
+			int day = parseDigits(value, 8, 2);
+
+			if (year < 0 || month < 1 || month > 12 || day < 1
+					|| day > DAYS_IN_MONTH[month - 1] || value.charAt(4) != '-'
+					|| value.charAt(7) != '-')
+				return null;
+
+			if (month == 2 && day == 29 && !isLeapYear(year))
+				return null;
+
+			int hour = 0, minute = 0, second = 0, millis = 0;
+			int index = 10;
+			TimeZone timeZone = TimeZone.getDefault();
+
+			if (index < length) {
+				if (value.charAt(index) != 'T' || length < index + 6
+						|| value.charAt(index + 3) != ':')
+					return null;
+
+				hour = parseDigits(value, index + 1, 2);
+				minute = parseDigits(value, index + 4, 2);
+				index += 6;
+
+				if (index < length && value.charAt(index) == ':') {
+					second = parseDigits(value, index + 1, 2);
+					index += 3;
+
+					if (index < length && value.charAt(index) == '.') {
+						int start = ++index;
+
+						while (index < length && Character.isDigit(value.charAt(index)))
+							index++;
+
+						int fractionDigits = index - start;
+
+						if (fractionDigits == 0)
+							return null;
+
+						millis = parseDigits(value, start, Math.min(fractionDigits, 3));
+
+						for (int i = fractionDigits; i < 3; i++)
+							millis *= 10;
+					}
+				}
+
+				if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0
+						|| second > 59)
+					return null;
+
+				if (index < length) {
+					timeZone = parseTimeZone(value, index);
+
+					if (timeZone == null)
+						return null;
+				}
+			}
+
+			Calendar calendar = new GregorianCalendar(timeZone);
+
+			calendar.clear();
+			calendar.set(year, month - 1, day, hour, minute, second);
+			calendar.set(Calendar.MILLISECOND, millis);
+
+			return calendar.getTime();
+		}
+
+		private boolean isLeapYear(int year) {
+			return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+		}
+
+		private TimeZone parseTimeZone(CharSequence value, int index) {
+			int length = value.length();
+			char sign = value.charAt(index);
+
+			if (sign == 'Z')
+				return index + 1 == length ? TimeZone.getTimeZone("UTC") : null;
+
+			if (sign != '+' && sign != '-')
+				return null;
+
+			int hours = parseDigits(value, index + 1, 2);
+			int minutesIndex = index + 3;
+
+			if (minutesIndex < length && value.charAt(minutesIndex) == ':')
+				minutesIndex++;
+
+			int minutes = parseDigits(value, minutesIndex, 2);
+
+			if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59
+					|| minutesIndex + 2 != length)
+				return null;
+
+			int offset = (hours * 60 + minutes) * 60 * 1000;
+
+			return new SimpleTimeZone(sign == '-' ? -offset : offset, "ISO");
+		}
+	}
+}
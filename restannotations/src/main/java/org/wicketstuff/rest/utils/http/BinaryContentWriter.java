@@ -0,0 +1,308 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.http;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.wicket.request.http.WebRequest;
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.util.time.Time;
+
+/**
+ * Writes binary content returned by mapped methods directly to the response,
+ * without going through the object serializer. Supported contents are
+ * {@link File}, {@link ByteBuffer}, byte arrays and {@link InputStream}. They
+ * are written this way only when the MIME type of the response is not
+ * handled by the object serializer (for example 'application/octet-stream'
+ * or 'image/png'), otherwise they are serialized like any other value.<br/>
+ * <br/>
+ * Byte arrays and heap buffers are written without copies. Files, streams and
+ * direct buffers are copied through a byte buffer taken from
+ * {@link BufferPool}, so files are never read entirely in memory. Contents with a known length set header
+ * Content-Length and support single byte ranges (header Range, status 206,
+ * and status 416 if the range can't be satisfied). For files the header
+ * If-Range is checked against headers ETag and Last-Modified. Streams are
+ * always sent whole and they are closed once written.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class BinaryContentWriter {
+	/** Range returned when the requested range can't be satisfied. */
+	private static final long[] UNSATISFIABLE = new long[0];
+
+	/**
+	 * Checks if the given type is written as binary content.
+	 * 
+	 * @param type
+	 *            the type to check, for example the return type of a mapped
+	 *            method.
+	 * @return true if values of the type are binary contents
+	 */
+	public static boolean isBinaryType(Class<?> type) {
+		return File.class.isAssignableFrom(type) || ByteBuffer.class.isAssignableFrom(type)
+				|| byte[].class.equals(type) || InputStream.class.isAssignableFrom(type);
+	}
+
+	/**
+	 * Checks if the given object is a binary content.
+	 * 
+	 * @param content
+	 *            the object to check.
+	 * @return true if the object is a binary content
+	 */
+	public static boolean isBinaryContent(Object content) {
+		return content != null && isBinaryType(content.getClass());
+	}
+
+	/**
+	 * Writes a binary content to the response, honoring header Range.
+	 * 
+	 * @param content
+	 *            the content to write.
+	 * @param request
+	 *            the current request.
+	 * @param response
+	 *            the current response.
+	 * @throws IOException
+	 */
+	public static void write(Object content, WebRequest request, WebResponse response)
+			throws IOException {
+		if (content instanceof InputStream) {
+			writeStream((InputStream) content, response);
+			return;
+		}
+
+		if (content instanceof File) {
+			writeFile((File) content, request, response);
+			return;
+		}
+
+		ByteBuffer buffer = content instanceof byte[] ? ByteBuffer.wrap((byte[]) content)
+				: ((ByteBuffer) content).duplicate();
+		long[] range = selectRange(request, response, buffer.remaining(), true);
+
+		if (range == UNSATISFIABLE)
+			return;
+
+		buffer.position(buffer.position() + (int) range[0]);
+		buffer.limit(buffer.position() + (int) (range[1] - range[0] + 1));
+
+		writeBuffer(buffer, response);
+	}
+
+	/**
+	 * Writes the remaining bytes of a buffer. Heap buffers are written
+	 * directly, the others are copied through a pooled byte buffer.
+	 */
+	private static void writeBuffer(ByteBuffer buffer, WebResponse response) {
+		if (buffer.hasArray()) {
+			response.write(buffer.array(), buffer.arrayOffset() + buffer.position(),
+					buffer.remaining());
+			return;
+		}
+
+		BufferPool bufferPool = BufferPool.getDefault();
+		byte[] bytes = bufferPool.acquireByteBuffer();
+
+		try {
+			while (buffer.hasRemaining()) {
+				int chunk = Math.min(buffer.remaining(), bytes.length);
+
+				buffer.get(bytes, 0, chunk);
+				response.write(bytes, 0, chunk);
+			}
+		} finally {
+			bufferPool.releaseByteBuffer(bytes);
+		}
+	}
+
+	private static void writeFile(File file, WebRequest request, WebResponse response)
+			throws IOException {
+		FileInputStream inputStream = new FileInputStream(file);
+
+		try {
+			FileChannel channel = inputStream.getChannel();
+			long length = channel.size();
+			long lastModified = file.lastModified();
+			String eTag = '"' + Long.toHexString(lastModified) + '-' + Long.toHexString(length)
+					+ '"';
+
+			response.setHeader("ETag", eTag);
+			response.setLastModifiedTime(Time.millis(lastModified));
+
+			long[] range = selectRange(request, response, length,
+					isIfRangeMatching(request, eTag, lastModified));
+
+			if (range == UNSATISFIABLE)
+				return;
+
+			BufferPool bufferPool = BufferPool.getDefault();
+			byte[] buffer = bufferPool.acquireByteBuffer();
+			long remaining = range[1] - range[0] + 1;
+
+			channel.position(range[0]);
+
+			try {
+				while (remaining > 0) {
+					int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+
+					// the file has been truncated while we were sending it
+					if (read == -1)
+						throw new IOException("Unexpected end of file " + file);
+
+					response.write(buffer, 0, read);
+					remaining -= read;
+				}
+			} finally {
+				bufferPool.releaseByteBuffer(buffer);
+			}
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	private static void writeStream(InputStream inputStream, WebResponse response)
+			throws IOException {
+		BufferPool bufferPool = BufferPool.getDefault();
+		byte[] buffer = bufferPool.acquireByteBuffer();
+
+		try {
+			int read;
+
+			while ((read = inputStream.read(buffer)) != -1) {
+				response.write(buffer, 0, read);
+			}
+		} finally {
+			bufferPool.releaseByteBuffer(buffer);
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Selects the range of bytes to send and sets the status and the headers
+	 * that depend on it.
+	 * 
+	 * @return the first and the last byte to send, or {@link #UNSATISFIABLE}
+	 *         if nothing must be sent.
+	 */
+	private static long[] selectRange(WebRequest request, WebResponse response, long length,
+			boolean ifRangeMatching) {
+		response.setHeader("Accept-Ranges", "bytes");
+
+		long[] range = ifRangeMatching ? parseRange(request.getHeader("Range"), length) : null;
+
+		if (range == UNSATISFIABLE) {
+			response.setStatus(416);
+			response.setHeader("Content-Range", "bytes */" + length);
+			response.setContentLength(0);
+			return UNSATISFIABLE;
+		}
+
+		if (range == null) {
+			response.setContentLength(length);
+			return new long[] { 0, length - 1 };
+		}
+
+		response.setStatus(206);
+		response.setHeader("Content-Range", "bytes " + range[0] + '-' + range[1] + '/' + length);
+		response.setContentLength(range[1] - range[0] + 1);
+		return range;
+	}
+
+	/**
+	 * Parses the value of header Range. Only a single range is supported:
+	 * multiple ranges and invalid values are ignored, and the whole content is
+	 * sent.
+	 * 
+	 * @param rangeHeader
+	 *            the value of the header, can be null.
+	 * @param length
+	 *            the length of the content.
+	 * @return the first and the last byte of the range, null to send the whole
+	 *         content or {@link #UNSATISFIABLE} if the range can't be
+	 *         satisfied.
+	 */
+	private static long[] parseRange(String rangeHeader, long length) {
+		if (rangeHeader == null || !rangeHeader.startsWith("bytes=")
+				|| rangeHeader.indexOf(',') >= 0)
+			return null;
+
+		String range = rangeHeader.substring("bytes=".length()).trim();
+		int dashIndex = range.indexOf('-');
+
+		if (dashIndex < 0)
+			return null;
+
+		try {
+			String first = range.substring(0, dashIndex).trim();
+			String last = range.substring(dashIndex + 1).trim();
+
+			// suffix range, i.e. the last bytes of the content
+			if (first.length() == 0) {
+				long suffixLength = Long.parseLong(last);
+
+				if (suffixLength <= 0 || length == 0)
+					return UNSATISFIABLE;
+
+				return new long[] { Math.max(0, length - suffixLength), length - 1 };
+			}
+
+			long start = Long.parseLong(first);
+			long end = last.length() == 0 ? Long.MAX_VALUE : Long.parseLong(last);
+
+			if (start < 0 || end < start)
+				return null;
+
+			if (start >= length)
+				return UNSATISFIABLE;
+
+			return new long[] { start, Math.min(end, length - 1) };
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Checks if header If-Range, when present, matches the current version of
+	 * a file.
+	 */
+	private static boolean isIfRangeMatching(WebRequest request, String eTag, long lastModified) {
+		String ifRange = request.getHeader("If-Range");
+
+		if (ifRange == null)
+			return true;
+
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+			return ifRange.equals(eTag);
+
+		try {
+			HttpServletRequest httpRequest = (HttpServletRequest) request.getContainerRequest();
+
+			return httpRequest.getDateHeader("If-Range") / 1000 == lastModified / 1000;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,277 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of reusable character and byte buffers, used to write
+ * responses without allocating new buffers for every request (see
+ * {@link PooledResponseWriter}). The pool is split into stripes selected by
+ * the id of the current thread, so that concurrent requests rarely compete
+ * for the same lock. Every stripe keeps at most a fixed number of buffers of
+ * each kind.<br/>
+ * <br/>
+ * Only buffers of the size configured for the pool are kept: buffers of
+ * other sizes and buffers released to a full stripe are discarded. Hits, misses and discarded buffers are
+ * counted and exposed by
+ * {@link org.wicketstuff.rest.resource.metrics.PrometheusMetricsResource}.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class BufferPool {
+	/** Default size of the character buffers. */
+	public static final int DEFAULT_CHAR_BUFFER_SIZE = 4096;
+
+	/** Default size of the byte buffers. */
+	public static final int DEFAULT_BYTE_BUFFER_SIZE = 8192;
+
+	/** Default number of buffers of each kind kept by a stripe. */
+	public static final int DEFAULT_BUFFERS_PER_STRIPE = 4;
+
+	/** Pool shared by the whole JVM. */
+	private static final BufferPool DEFAULT_POOL = new BufferPool(Runtime.getRuntime()
+			.availableProcessors() * 2, DEFAULT_BUFFERS_PER_STRIPE, DEFAULT_CHAR_BUFFER_SIZE,
+			DEFAULT_BYTE_BUFFER_SIZE);
+
+	/** The stripes of the pool. */
+	private final Stripe[] stripes;
+
+	/** Mask used to select a stripe. */
+	private final int stripeMask;
+
+	/** Size of the pooled character buffers. */
+	private final int charBufferSize;
+
+	/** Size of the pooled byte buffers. */
+	private final int byteBufferSize;
+
+	/** Buffers taken from the pool. */
+	private final AtomicLong hits = new AtomicLong();
+
+	/** Buffers allocated because the stripe was empty. */
+	private final AtomicLong misses = new AtomicLong();
+
+	/** Released buffers not kept by the pool. */
+	private final AtomicLong discards = new AtomicLong();
+
+	/**
+	 * Creates a new pool.
+	 * 
+	 * @param stripesCount
+	 *            the minimum number of stripes, rounded up to a power of two.
+	 * @param buffersPerStripe
+	 *            the number of buffers of each kind kept by a stripe.
+	 * @param charBufferSize
+	 *            the size of the character buffers, at least 2 to hold a
+	 *            surrogate pair.
+	 * @param byteBufferSize
+	 *            the size of the byte buffers.
+	 */
+	public BufferPool(int stripesCount, int buffersPerStripe, int charBufferSize,
+			int byteBufferSize) {
+		if (stripesCount < 1 || buffersPerStripe < 0 || charBufferSize < 2 || byteBufferSize < 1)
+			throw new IllegalArgumentException("Invalid buffer pool configuration.");
+
+		int size = Integer.highestOneBit(stripesCount);
+
+		if (size < stripesCount)
+			size <<= 1;
+
+		this.stripes = new Stripe[size];
+		this.stripeMask = size - 1;
+		this.charBufferSize = charBufferSize;
+		this.byteBufferSize = byteBufferSize;
+
+		for (int i = 0; i < size; i++) {
+			stripes[i] = new Stripe(buffersPerStripe);
+		}
+	}
+
+	/**
+	 * Returns the pool shared by the whole JVM.
+	 * 
+	 * @return the default pool
+	 */
+	public static BufferPool getDefault() {
+		return DEFAULT_POOL;
+	}
+
+	/**
+	 * Takes a character buffer from the pool, or allocates a new one if the
+	 * stripe of the current thread is empty.
+	 * 
+	 * @return a character buffer of size {@link #getCharBufferSize()}
+	 */
+	public char[] acquireCharBuffer() {
+		Stripe stripe = currentStripe();
+		char[] buffer;
+
+		synchronized (stripe) {
+			buffer = stripe.charCount > 0 ? stripe.charBuffers[--stripe.charCount] : null;
+
+			if (buffer != null)
+				stripe.charBuffers[stripe.charCount] = null;
+		}
+
+		if (buffer == null) {
+			misses.incrementAndGet();
+			return new char[charBufferSize];
+		}
+
+		hits.incrementAndGet();
+		return buffer;
+	}
+
+	/**
+	 * Gives a character buffer back to the pool. The buffer must not be used
+	 * after it has been released.
+	 * 
+	 * @param buffer
+	 *            the buffer to release.
+	 */
+	public void releaseCharBuffer(char[] buffer) {
+		if (buffer.length == charBufferSize) {
+			Stripe stripe = currentStripe();
+
+			synchronized (stripe) {
+				if (stripe.charCount < stripe.charBuffers.length) {
+					stripe.charBuffers[stripe.charCount++] = buffer;
+					return;
+				}
+			}
+		}
+
+		discards.incrementAndGet();
+	}
+
+	/**
+	 * Takes a byte buffer from the pool, or allocates a new one if the stripe
+	 * of the current thread is empty.
+	 * 
+	 * @return a byte buffer of size {@link #getByteBufferSize()}
+	 */
+	public byte[] acquireByteBuffer() {
+		Stripe stripe = currentStripe();
+		byte[] buffer;
+
+		synchronized (stripe) {
+			buffer = stripe.byteCount > 0 ? stripe.byteBuffers[--stripe.byteCount] : null;
+
+			if (buffer != null)
+				stripe.byteBuffers[stripe.byteCount] = null;
+		}
+
+		if (buffer == null) {
+			misses.incrementAndGet();
+			return new byte[byteBufferSize];
+		}
+
+		hits.incrementAndGet();
+		return buffer;
+	}
+
+	/**
+	 * Gives a byte buffer back to the pool. The buffer must not be used after
+	 * it has been released.
+	 * 
+	 * @param buffer
+	 *            the buffer to release.
+	 */
+	public void releaseByteBuffer(byte[] buffer) {
+		if (buffer.length == byteBufferSize) {
+			Stripe stripe = currentStripe();
+
+			synchronized (stripe) {
+				if (stripe.byteCount < stripe.byteBuffers.length) {
+					stripe.byteBuffers[stripe.byteCount++] = buffer;
+					return;
+				}
+			}
+		}
+
+		discards.incrementAndGet();
+	}
+
+	private Stripe currentStripe() {
+		long threadId = Thread.currentThread().getId();
+
+		return stripes[(int) (threadId ^ (threadId >>> 16)) & stripeMask];
+	}
+
+	/**
+	 * Gets the number of buffers taken from the pool.
+	 * 
+	 * @return the number of hits
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Gets the number of buffers allocated because the pool was empty.
+	 * 
+	 * @return the number of misses
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	/**
+	 * Gets the number of released buffers that have been discarded because
+	 * they were oversized or the pool was full.
+	 * 
+	 * @return the number of discarded buffers
+	 */
+	public long getDiscardCount() {
+		return discards.get();
+	}
+
+	/**
+	 * Gets the size of the pooled character buffers.
+	 * 
+	 * @return the size of the character buffers
+	 */
+	public int getCharBufferSize() {
+		return charBufferSize;
+	}
+
+	/**
+	 * Gets the size of the pooled byte buffers.
+	 * 
+	 * @return the size of the byte buffers
+	 */
+	public int getByteBufferSize() {
+		return byteBufferSize;
+	}
+
+	/**
+	 * A stripe of the pool, guarded by its own monitor.
+	 */
+	private static class Stripe {
+		private final char[][] charBuffers;
+		private final byte[][] byteBuffers;
+		private int charCount;
+		private int byteCount;
+
+		Stripe(int buffersPerStripe) {
+			this.charBuffers = new char[buffersPerStripe][];
+			this.byteBuffers = new byte[buffersPerStripe][];
+		}
+	}
+}
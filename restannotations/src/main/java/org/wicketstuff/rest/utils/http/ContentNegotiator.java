@@ -0,0 +1,327 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.http;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Selects the MIME type of a response among the types produced by a mapped
+ * method, following the 'Accept' header of the request. Quality values
+ * ('q=0.5') and wildcards ('text/*', '*&#47;*') are honored: every produced
+ * type gets the quality of the most specific media range matching it, the
+ * type with the highest quality wins and ties are resolved with the order of
+ * the produced types. Types with quality 0 are never selected.<br/>
+ * <br/>
+ * Parsed 'Accept' headers are shared by every negotiator, while every
+ * negotiator keeps the outcome of the headers it has already seen. Both
+ * caches are bounded: when a cache is full, new headers are still negotiated
+ * but their results are not kept, so that clients sending always different
+ * headers can't make the caches grow.<br/>
+ * <br/>
+ * MIME types are compared without parameters and ignoring case (see
+ * {@link #normalize(String)}), but the selected type is returned as it was
+ * declared, so that its parameters (for example 'charset' or 'version') are
+ * kept in the 'Content-Type' header.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class ContentNegotiator {
+	/** Maximum number of parsed headers kept in cache. */
+	public static final int MAX_PARSED_HEADERS = 1024;
+
+	/** Maximum number of outcomes kept by every negotiator. */
+	public static final int MAX_CACHED_OUTCOMES = 256;
+
+	/** Headers longer than this are never kept in cache. */
+	private static final int MAX_CACHED_HEADER_LENGTH = 512;
+
+	/** Outcome cached for the headers not accepting any produced type. */
+	private static final String NOT_ACCEPTABLE = new String("not acceptable");
+
+	/** Parsed headers, shared by every negotiator. */
+	private static final ConcurrentMap<String, MediaRange[]> PARSED_HEADERS = new ConcurrentHashMap<String, MediaRange[]>();
+
+	/** The produced types, as they were declared. */
+	private final String[] declaredTypes;
+
+	/** The produced types, normalized, used to match the media ranges. */
+	private final String[] producedTypes;
+
+	/** Type selected for each header already negotiated. */
+	private final ConcurrentMap<String, String> outcomes = new ConcurrentHashMap<String, String>();
+
+	/**
+	 * Creates a negotiator for the given types.
+	 * 
+	 * @param producedTypes
+	 *            the types produced by the mapped method, in order of
+	 *            preference.
+	 */
+	public ContentNegotiator(String... producedTypes) {
+		if (producedTypes.length == 0)
+			throw new IllegalArgumentException("At least a produced type is required.");
+
+		this.declaredTypes = new String[producedTypes.length];
+		this.producedTypes = new String[producedTypes.length];
+
+		for (int i = 0; i < producedTypes.length; i++) {
+			this.declaredTypes[i] = producedTypes[i].trim();
+			this.producedTypes[i] = normalize(producedTypes[i]);
+		}
+	}
+
+	/**
+	 * Selects the type of the response for the given 'Accept' header.
+	 * 
+	 * @param acceptHeader
+	 *            the value of the header, or null if the request has no
+	 *            'Accept' header.
+	 * @return the selected type, as it was declared, or null if no produced
+	 *         type is acceptable (status 406).
+	 */
+	public String negotiate(String acceptHeader) {
+		if (acceptHeader == null || acceptHeader.length() == 0)
+			return declaredTypes[0];
+
+		String outcome = outcomes.get(acceptHeader);
+
+		if (outcome == null) {
+			outcome = selectType(parseAcceptHeader(acceptHeader));
+
+			if (outcome == null)
+				outcome = NOT_ACCEPTABLE;
+
+			if (outcomes.size() < MAX_CACHED_OUTCOMES
+					&& acceptHeader.length() <= MAX_CACHED_HEADER_LENGTH)
+				outcomes.putIfAbsent(acceptHeader, outcome);
+		}
+
+		return outcome != NOT_ACCEPTABLE ? outcome : null;
+	}
+
+	/**
+	 * Gets the produced types, as they were declared.
+	 * 
+	 * @return the produced types
+	 */
+	public String[] getProducedTypes() {
+		return declaredTypes.clone();
+	}
+
+	/**
+	 * Selects the produced type with the highest quality.
+	 * 
+	 * @param mediaRanges
+	 *            the media ranges of the header.
+	 * @return the selected type, or null if no type is acceptable.
+	 */
+	private String selectType(MediaRange[] mediaRanges) {
+		String selectedType = null;
+		float selectedQuality = 0;
+
+		for (int i = 0; i < producedTypes.length; i++) {
+			float quality = qualityOf(producedTypes[i], mediaRanges);
+
+			if (quality > selectedQuality) {
+				selectedType = declaredTypes[i];
+				selectedQuality = quality;
+			}
+		}
+
+		return selectedType;
+	}
+
+	/**
+	 * Returns the quality of the most specific media range matching the given
+	 * type.
+	 * 
+	 * @param producedType
+	 *            the produced type.
+	 * @param mediaRanges
+	 *            the media ranges of the header.
+	 * @return the quality of the type, or 0 if no media range matches it
+	 */
+	private static float qualityOf(String producedType, MediaRange[] mediaRanges) {
+		int specificity = -1;
+		float quality = 0;
+
+		for (MediaRange mediaRange : mediaRanges) {
+			if (mediaRange.specificity > specificity && mediaRange.matches(producedType)) {
+				specificity = mediaRange.specificity;
+				quality = mediaRange.quality;
+			}
+		}
+
+		return quality;
+	}
+
+	/**
+	 * Parses an 'Accept' header, using the cached result if the header has
+	 * already been parsed.
+	 * 
+	 * @param acceptHeader
+	 *            the value of the header.
+	 * @return the media ranges of the header.
+	 */
+	static MediaRange[] parseAcceptHeader(String acceptHeader) {
+		MediaRange[] mediaRanges = PARSED_HEADERS.get(acceptHeader);
+
+		if (mediaRanges == null) {
+			List<MediaRange> parsedRanges = new ArrayList<MediaRange>();
+
+			for (String element : acceptHeader.split(",")) {
+				MediaRange mediaRange = MediaRange.parse(element);
+
+				if (mediaRange != null)
+					parsedRanges.add(mediaRange);
+			}
+
+			mediaRanges = parsedRanges.toArray(new MediaRange[parsedRanges.size()]);
+
+			if (PARSED_HEADERS.size() < MAX_PARSED_HEADERS
+					&& acceptHeader.length() <= MAX_CACHED_HEADER_LENGTH)
+				PARSED_HEADERS.putIfAbsent(acceptHeader, mediaRanges);
+		}
+
+		return mediaRanges;
+	}
+
+	/**
+	 * Normalizes a MIME type removing its parameters and whitespaces and
+	 * converting it to lower case. For example 'Application/JSON;
+	 * charset=utf-8' becomes 'application/json'. Types already normalized
+	 * are returned as they are.
+	 * 
+	 * @param mimeType
+	 *            the MIME type.
+	 * @return the normalized type, or null if the type is null
+	 */
+	public static String normalize(String mimeType) {
+		if (mimeType == null)
+			return null;
+
+		for (int i = 0; i < mimeType.length(); i++) {
+			char c = mimeType.charAt(i);
+
+			if (c == ';' || c <= ' ' || (c >= 'A' && c <= 'Z')) {
+				int end = mimeType.indexOf(';');
+				String type = end >= 0 ? mimeType.substring(0, end) : mimeType;
+
+				return type.trim().toLowerCase(Locale.ENGLISH);
+			}
+		}
+
+		return mimeType;
+	}
+
+	/**
+	 * A media range of an 'Accept' header.
+	 */
+	static class MediaRange {
+		/** The range, normalized, for example 'text/*'. */
+		private final String range;
+		/** The main type followed by '/', for example 'text/'. */
+		private final String mainType;
+		/** 0 for '*&#47;*', 1 for 'type/*', 2 for a full type. */
+		private final int specificity;
+		/** The quality of the range, from 0 to 1. */
+		private final float quality;
+
+		MediaRange(String range, int specificity, float quality) {
+			this.range = range;
+			this.mainType = range.substring(0, range.indexOf('/') + 1);
+			this.specificity = specificity;
+			this.quality = quality;
+		}
+
+		/**
+		 * Parses an element of an 'Accept' header.
+		 * 
+		 * @param element
+		 *            the element, for example 'text/html;level=1;q=0.5'.
+		 * @return the media range, or null if the element is malformed.
+		 */
+		static MediaRange parse(String element) {
+			String[] parts = element.split(";");
+			String range = normalize(parts[0]);
+
+			// some clients send '*' for '*/*'
+			if ("*".equals(range))
+				range = "*/*";
+
+			int slash = range.indexOf('/');
+
+			if (slash <= 0 || slash == range.length() - 1)
+				return null;
+
+			float quality = 1;
+
+			for (int i = 1; i < parts.length; i++) {
+				String parameter = parts[i].trim();
+
+				char name = parameter.length() > 2 ? parameter.charAt(0) : 0;
+
+				if ((name == 'q' || name == 'Q') && parameter.charAt(1) == '=') {
+					try {
+						quality = Float.parseFloat(parameter.substring(2).trim());
+					} catch (NumberFormatException e) {
+						return null;
+					}
+
+					if (quality < 0 || quality > 1)
+						return null;
+
+					break;
+				}
+			}
+
+			int specificity;
+
+			if ("*/*".equals(range))
+				specificity = 0;
+			else if (range.endsWith("/*"))
+				specificity = 1;
+			else
+				specificity = 2;
+
+			return new MediaRange(range, specificity, quality);
+		}
+
+		/**
+		 * Checks if the range matches the given type.
+		 * 
+		 * @param mimeType
+		 *            the type, normalized.
+		 * @return true if the range matches the type
+		 */
+		boolean matches(String mimeType) {
+			switch (specificity) {
+			case 0:
+				return true;
+			case 1:
+				return mimeType.startsWith(mainType);
+			default:
+				return range.equals(mimeType);
+			}
+		}
+	}
+}
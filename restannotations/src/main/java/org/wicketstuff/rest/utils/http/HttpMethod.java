@@ -26,6 +26,9 @@ public enum HttpMethod {
 	GET("GET"), POST("POST"), HEAD("HEAD"), OPTIONS("OPTIONS"), PUT("PUT"), PATCH("PATCH"), DELETE(
 			"DELETE"), TRACE("TRACE");
 
+	/** The values of the enum, cloned only once. */
+	private static final HttpMethod[] VALUES = values();
+
 	private String method;
 
 	private HttpMethod(String method) {
@@ -42,12 +45,17 @@ public enum HttpMethod {
 	 * @return
 	 */
 	public static HttpMethod toHttpMethod(String httpMethod) {
-		HttpMethod[] values = HttpMethod.values();
+		// methods are usually upper case already
+		for (int i = 0; i < VALUES.length; i++) {
+			if (VALUES[i].method.equals(httpMethod))
+				return VALUES[i];
+		}
+
 		httpMethod = httpMethod.toUpperCase();
 
-		for (int i = 0; i < values.length; i++) {
-			if (values[i].method.equals(httpMethod))
-				return values[i];
+		for (int i = 0; i < VALUES.length; i++) {
+			if (VALUES[i].method.equals(httpMethod))
+				return VALUES[i];
 		}
 
 		throw new RuntimeException("The string value '" + httpMethod
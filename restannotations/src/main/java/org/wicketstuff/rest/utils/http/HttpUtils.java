@@ -16,8 +16,16 @@
  */
 package org.wicketstuff.rest.utils.http;
 
-import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -30,6 +38,12 @@ import org.apache.wicket.request.http.WebRequest;
  *
  */
 public class HttpUtils {
+	/** Initial buffer size used when the length of the content is unknown. */
+	private static final int DEFAULT_BUFFER_SIZE = 1024;
+
+	/** Maximum size of a buffer pre-sized from the declared content length. */
+	private static final int MAX_PRESIZED_BUFFER_SIZE = 64 * 1024;
+
 	/**
 	 * Read the string content of the current request.
 	 * 
@@ -41,16 +55,125 @@ public class HttpUtils {
 	 */
 	public static String readStringFromRequest(WebRequest request) throws IOException{
 		HttpServletRequest httpRequest = (HttpServletRequest) request.getContainerRequest();
-		BufferedReader bufReader = httpRequest.getReader();
-		StringBuilder builder = new StringBuilder();
-		String stringLine;
+		
+		return readString(httpRequest.getReader(), httpRequest.getContentLength());
+	}
 
-		while ((stringLine = bufReader.readLine()) != null)
-			builder.append(stringLine);
+	/**
+	 * Read the whole content of a reader. If the length of the content is
+	 * known, the buffer is pre-sized to avoid copies for small contents.
+	 * 
+	 * @param reader
+	 * 			the reader to consume.
+	 * @param contentLength
+	 * 			the length of the content in bytes, or a negative value if unknown.
+	 * @return
+	 * 			the string read.
+	 * @throws IOException
+	 */
+	public static String readString(Reader reader, int contentLength) throws IOException{
+		int bufferSize = contentLength >= 0 ? 
+				Math.min(contentLength, MAX_PRESIZED_BUFFER_SIZE) : DEFAULT_BUFFER_SIZE;
+		char[] buffer = new char[Math.max(bufferSize, 16)];
+		int count = 0;
+		int read;
 		
-		return builder.toString();
+		while ((read = reader.read(buffer, count, buffer.length - count)) != -1) {
+			count += read;
+			
+			if (count == buffer.length) {
+				// with a known length it's likely that we are done
+				int next = reader.read();
+				
+				if (next == -1)
+					break;
+				
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				buffer[count++] = (char) next;
+			}
+		}
+		
+		return new String(buffer, 0, count);
 	}
 	
+	/**
+	 * Copy the content of a stream to a new temporary file. The content is
+	 * read into a buffer of the given size and written to the file through a
+	 * {@link FileChannel} every time the buffer is full, hence no more than
+	 * memoryThreshold bytes are kept in memory. The caller is in charge of
+	 * deleting the file. If copying fails the file is deleted.
+	 * 
+	 * @param inputStream
+	 * 			the stream to copy, which is not closed.
+	 * @param memoryThreshold
+	 * 			the number of bytes kept in memory before they are written to disk.
+	 * @return
+	 * 			the temporary file.
+	 * @throws IOException
+	 */
+	public static File spoolToTempFile(InputStream inputStream, int memoryThreshold)
+			throws IOException {
+		File file = File.createTempFile("wicket-rest-body", ".tmp");
+		FileOutputStream outputStream = new FileOutputStream(file);
+		boolean completed = false;
+
+		try {
+			ReadableByteChannel source = Channels.newChannel(inputStream);
+			FileChannel target = outputStream.getChannel();
+			ByteBuffer buffer = ByteBuffer.allocate(memoryThreshold);
+			boolean endOfStream = false;
+
+			while (!endOfStream) {
+				// fill the buffer before writing to disk
+				while (buffer.hasRemaining() && !endOfStream) {
+					endOfStream = source.read(buffer) == -1;
+				}
+
+				buffer.flip();
+
+				while (buffer.hasRemaining()) {
+					target.write(buffer);
+				}
+
+				buffer.clear();
+			}
+
+			completed = true;
+		} finally {
+			outputStream.close();
+
+			if (!completed)
+				file.delete();
+		}
+
+		return file;
+	}
+
+	/**
+	 * Reads the length of the request body from header 'Content-Length'. Unlike
+	 * {@link HttpServletRequest#getContentLength()}, lengths bigger than 2GB
+	 * are returned too.
+	 * 
+	 * @param httpRequest
+	 *            the current request.
+	 * @return the length of the body, or -1 if it's not declared or it's not
+	 *         valid.
+	 */
+	public static long getContentLength(HttpServletRequest httpRequest) {
+		String contentLength = httpRequest.getHeader("Content-Length");
+
+		if (contentLength == null)
+			return -1;
+
+		try {
+			long length = Long.parseLong(contentLength.trim());
+
+			return length >= 0 ? length : -1;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
 	/**
 	 * Utility method to extract the HTTP request method.
 	 * 
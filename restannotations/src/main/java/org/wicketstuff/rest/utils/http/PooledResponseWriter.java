@@ -0,0 +1,226 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.http;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import org.apache.wicket.request.http.WebResponse;
+
+/**
+ * {@link Writer} bound to a {@link WebResponse} that encodes characters by
+ * itself and writes bytes to the response. Characters are collected into a
+ * buffer taken from a {@link BufferPool} and encoded into a pooled byte
+ * buffer, whose content is written to the response every time it's full.
+ * Hence responses smaller than the byte buffer are written with a single call
+ * to {@link WebResponse#write(byte[], int, int)}, and no response allocates
+ * new buffers.<br/>
+ * <br/>
+ * The buffers are given back to the pool by {@link #close()}, which must be
+ * always called. Closing the writer doesn't close the underlying response.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class PooledResponseWriter extends Writer {
+	/** The response we write to. */
+	private final WebResponse response;
+
+	/** The pool buffers are taken from. */
+	private final BufferPool bufferPool;
+
+	/** The encoder for the charset of the response. */
+	private final CharsetEncoder encoder;
+
+	/** The character buffer, null once the writer has been closed. */
+	private char[] chars;
+
+	/** View of the character buffer passed to the encoder. */
+	private CharBuffer charsView;
+
+	/** Number of characters currently in the buffer. */
+	private int count;
+
+	/** The byte buffer, null once the writer has been closed. */
+	private byte[] bytes;
+
+	/** View of the byte buffer passed to the encoder. */
+	private ByteBuffer bytesView;
+
+	/**
+	 * Creates a writer that uses the default pool (see
+	 * {@link BufferPool#getDefault()}).
+	 * 
+	 * @param response
+	 *            the response we want to write to.
+	 * @param charset
+	 *            the charset of the response.
+	 */
+	public PooledResponseWriter(WebResponse response, String charset) {
+		this(response, charset, BufferPool.getDefault());
+	}
+
+	/**
+	 * Creates a writer that uses the given pool.
+	 * 
+	 * @param response
+	 *            the response we want to write to.
+	 * @param charset
+	 *            the charset of the response.
+	 * @param bufferPool
+	 *            the pool to take buffers from.
+	 */
+	public PooledResponseWriter(WebResponse response, String charset, BufferPool bufferPool) {
+		this.response = response;
+		this.bufferPool = bufferPool;
+		this.encoder = Charset.forName(charset).newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.chars = bufferPool.acquireCharBuffer();
+		this.charsView = CharBuffer.wrap(chars);
+		this.bytes = bufferPool.acquireByteBuffer();
+		this.bytesView = ByteBuffer.wrap(bytes);
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		ensureOpen();
+
+		if (count == chars.length)
+			encodeChars(false);
+
+		chars[count++] = (char) c;
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		ensureOpen();
+
+		while (len > 0) {
+			if (count == chars.length)
+				encodeChars(false);
+
+			int chunk = Math.min(len, chars.length - count);
+
+			System.arraycopy(cbuf, off, chars, count, chunk);
+			count += chunk;
+			off += chunk;
+			len -= chunk;
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		ensureOpen();
+
+		while (len > 0) {
+			if (count == chars.length)
+				encodeChars(false);
+
+			int chunk = Math.min(len, chars.length - count);
+
+			str.getChars(off, off + chunk, chars, count);
+			count += chunk;
+			off += chunk;
+			len -= chunk;
+		}
+	}
+
+	/**
+	 * Writes to the response every character written so far.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		encodeChars(false);
+		writeBytes();
+	}
+
+	/**
+	 * Writes to the response every character written so far and gives the
+	 * buffers back to the pool. The underlying response is not closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (chars == null)
+			return;
+
+		try {
+			encodeChars(true);
+
+			while (encoder.flush(bytesView).isOverflow()) {
+				writeBytes();
+			}
+
+			writeBytes();
+		} finally {
+			bufferPool.releaseCharBuffer(chars);
+			bufferPool.releaseByteBuffer(bytes);
+			chars = null;
+			bytes = null;
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (chars == null)
+			throw new IOException("Writer closed.");
+	}
+
+	/**
+	 * Encodes the buffered characters into the byte buffer. A trailing high
+	 * surrogate is kept in the character buffer until the next character is
+	 * written.
+	 */
+	private void encodeChars(boolean endOfInput) throws CharacterCodingException {
+		charsView.clear();
+		charsView.limit(count);
+
+		while (true) {
+			CoderResult result = encoder.encode(charsView, bytesView, endOfInput);
+
+			if (result.isOverflow())
+				writeBytes();
+			else if (result.isError())
+				result.throwException();
+			else
+				break;
+		}
+
+		int remaining = charsView.remaining();
+
+		System.arraycopy(chars, charsView.position(), chars, 0, remaining);
+		count = remaining;
+	}
+
+	/**
+	 * Writes the content of the byte buffer to the response.
+	 */
+	private void writeBytes() {
+		if (bytesView.position() == 0)
+			return;
+
+		response.write(bytes, 0, bytesView.position());
+		bytesView.clear();
+	}
+}
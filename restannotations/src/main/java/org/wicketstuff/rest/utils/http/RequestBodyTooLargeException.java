@@ -0,0 +1,49 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a request body exceeds the maximum size allowed for it (see
+ * {@link org.wicketstuff.rest.annotations.parameters.RequestBody#maxSize()}).
+ * Resources answer with status 413 when a mapped method fails with this
+ * exception.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class RequestBodyTooLargeException extends IOException {
+	private static final long serialVersionUID = 1L;
+
+	/** The maximum size allowed. */
+	private final long maxSize;
+
+	public RequestBodyTooLargeException(long maxSize) {
+		super("Request body exceeds the maximum size of " + maxSize + " bytes.");
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Gets the maximum size allowed for the request body.
+	 * 
+	 * @return the maximum size in bytes
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+}
@@ -0,0 +1,91 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link InputStream} that fails with {@link RequestBodyTooLargeException} as
+ * soon as more than a given number of bytes have been read from the
+ * underlying stream. It's used to enforce the maximum size of request bodies
+ * whose length is not declared, or is declared wrongly.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class SizeLimitedInputStream extends FilterInputStream {
+	/** The maximum number of bytes that can be read. */
+	private final long maxSize;
+
+	/** The number of bytes read so far. */
+	private long count;
+
+	/**
+	 * Creates a stream that can read at most the given number of bytes.
+	 * 
+	 * @param inputStream
+	 *            the underlying stream.
+	 * @param maxSize
+	 *            the maximum number of bytes.
+	 */
+	public SizeLimitedInputStream(InputStream inputStream, long maxSize) {
+		super(inputStream);
+		this.maxSize = maxSize;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int result = super.read();
+
+		if (result != -1)
+			countBytes(1);
+
+		return result;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int result = super.read(b, off, len);
+
+		if (result > 0)
+			countBytes(result);
+
+		return result;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long result = super.skip(n);
+
+		countBytes(result);
+		return result;
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	private void countBytes(long read) throws RequestBodyTooLargeException {
+		count += read;
+
+		if (count > maxSize)
+			throw new RequestBodyTooLargeException(maxSize);
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.http;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * {@link HttpServletRequest} whose body can't be bigger than a given number of
+ * bytes: both {@link #getInputStream()} and {@link #getReader()} read through
+ * a {@link SizeLimitedInputStream}. It's used to enforce the maximum size of
+ * request bodies deserialized by the object serializer, whose length may not
+ * be declared (for example with chunked uploads).
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class SizeLimitedServletRequest extends HttpServletRequestWrapper {
+	/** Charset of the body if the request doesn't declare one. */
+	private static final String DEFAULT_CHARSET = "ISO-8859-1";
+
+	/** The maximum number of bytes of the body. */
+	private final long maxSize;
+
+	/** The limited body, created on the first access. */
+	private ServletInputStream inputStream;
+
+	/** The reader of the limited body, created on the first access. */
+	private BufferedReader reader;
+
+	/**
+	 * Wraps the given request.
+	 * 
+	 * @param request
+	 *            the request to wrap.
+	 * @param maxSize
+	 *            the maximum number of bytes of the body.
+	 */
+	public SizeLimitedServletRequest(HttpServletRequest request, long maxSize) {
+		super(request);
+		this.maxSize = maxSize;
+	}
+
+	@Override
+	public ServletInputStream getInputStream() throws IOException {
+		if (inputStream == null)
+			inputStream = new LimitedServletInputStream(new SizeLimitedInputStream(
+					super.getInputStream(), maxSize));
+
+		return inputStream;
+	}
+
+	@Override
+	public BufferedReader getReader() throws IOException {
+		if (reader == null) {
+			String charset = getCharacterEncoding();
+
+			reader = new BufferedReader(new InputStreamReader(getInputStream(),
+					charset != null ? charset : DEFAULT_CHARSET));
+		}
+
+		return reader;
+	}
+
+	/**
+	 * {@link ServletInputStream} reading from a {@link SizeLimitedInputStream}.
+	 */
+	private static class LimitedServletInputStream extends ServletInputStream {
+		private final InputStream inputStream;
+
+		LimitedServletInputStream(InputStream inputStream) {
+			this.inputStream = inputStream;
+		}
+
+		@Override
+		public int read() throws IOException {
+			return inputStream.read();
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return inputStream.read(b, off, len);
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			return inputStream.skip(n);
+		}
+
+		@Override
+		public int available() throws IOException {
+			return inputStream.available();
+		}
+
+		@Override
+		public void close() throws IOException {
+			inputStream.close();
+		}
+	}
+}
@@ -16,14 +16,24 @@
  */
 package org.wicketstuff.rest.utils.reflection;
 
+import java.io.File;
+import java.io.InputStream;
 import java.lang.annotation.Annotation;
+import java.nio.channels.ReadableByteChannel;
 
+import org.wicketstuff.rest.annotations.parameters.RequestBody;
 import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.utils.convert.ITextConverter;
+import org.wicketstuff.rest.utils.convert.TextConverters;
 
 // TODO: Auto-generated Javadoc
 /**
  * The class contains the informations of a method parameter, like its type or
- * its index in the array of method parameters.
+ * its index in the array of method parameters. Instances are created once
+ * when the mapped method is loaded and they contain everything is needed to
+ * bind the parameter value at request time (its source, its name, if it's
+ * required and its default value), so that no annotation must be read while
+ * serving a request.
  * 
  * @author andrea del bene
  */
@@ -38,12 +48,36 @@ public class MethodParameter {
 	/** The param index. */
 	final private int paramIndex;
 
+	/** The annotation used to specify the parameter source, if any. */
+	final private Annotation annotation;
+
+	/** The source of the parameter value. */
+	final private ParameterSource source;
+
+	/**
+	 * The name used to read the value from its source (path parameter, request
+	 * parameter, header, cookie or matrix parameter).
+	 */
+	final private String name;
+
+	/** The index of the segment containing the matrix parameter. */
+	final private int segmentIndex;
+
 	/** Indicates if the parameter is required or not. */
 	final private boolean required;
 	
 	/** Default value of the method parameter. */
 	final private String deaultValue;
 
+	/** Built-in converter for the parameter type, if any. */
+	final private ITextConverter converter;
+
+	/** Default value already converted with the built-in converter, if any. */
+	final private Object convertedDefaultValue;
+
+	/** Maximum size of the request body, negative for no limit. */
+	final private long maxSize;
+
 	/**
 	 * Instantiates a new method parameter.
 	 * 
@@ -54,34 +88,58 @@ public class MethodParameter {
 	 * @param paramIndex
 	 *            the index of the parameter in the array of method's
 	 *            parameters.
+	 * @param annotation
+	 *            the annotation used to specify the parameter source (see
+	 *            {@link ReflectionUtils#getAnnotationParam(int, java.lang.reflect.Method)}
+	 *            ), or null if the parameter is not annotated.
+	 * @param pathParameterName
+	 *            the name of the path parameter used if the parameter is not
+	 *            annotated, or null if there is no such a path parameter.
+	 */
+	public MethodParameter(Class<?> type, MethodMappingInfo ownerMethod, int paramIndex,
+			Annotation annotation, String pathParameterName) {
+		this(type, ownerMethod, paramIndex, annotation, annotation == null ? ParameterDeclaration
+				.forPathParameter(pathParameterName) : ParameterDeclaration
+				.forAnnotation(annotation));
+	}
+
+	/**
+	 * Instantiates a new method parameter with the values already declared for
+	 * it, without reading its annotation.
+	 * 
+	 * @param type
+	 *            the type of the parameter.
+	 * @param ownerMethod
+	 *            the owner method for the parameter.
+	 * @param paramIndex
+	 *            the index of the parameter in the array of method's
+	 *            parameters.
+	 * @param declaration
+	 *            the values declared for the parameter.
 	 */
-	public MethodParameter(Class<?> type, MethodMappingInfo ownerMethod, int paramIndex) {
+	public MethodParameter(Class<?> type, MethodMappingInfo ownerMethod, int paramIndex,
+			ParameterDeclaration declaration) {
+		this(type, ownerMethod, paramIndex, null, declaration);
+	}
+
+	private MethodParameter(Class<?> type, MethodMappingInfo ownerMethod, int paramIndex,
+			Annotation annotation, ParameterDeclaration declaration) {
 		this.parameterClass = type;
 		this.ownerMethod = ownerMethod;
 		this.paramIndex = paramIndex;
-		
-		this.required = loadParamAnnotationField("required", true);
-		this.deaultValue = loadParamAnnotationField("defaultValue", "");
-	}
+		this.annotation = annotation;
 
-	/**
-	 * Load param annotation field.
-	 *
-	 * @param <T> the generic type
-	 * @param fieldName the field name
-	 * @param defaultValue the default value
-	 * @return the t
-	 */
-	private <T> T loadParamAnnotationField(String fieldName, T defaultValue) {
-		Annotation annotation = ReflectionUtils.getAnnotationParam(paramIndex, ownerMethod.getMethod());
-		T methodResult = null;
-				
-		if(annotation != null)
-			methodResult = ReflectionUtils.invokeMethod(annotation, fieldName);
-		
-		return methodResult != null ? methodResult : defaultValue;
+		this.source = declaration.getSource();
+		this.name = declaration.getName();
+		this.segmentIndex = declaration.getSegmentIndex();
+		this.required = declaration.isRequired();
+		this.maxSize = declaration.getMaxSize();
+		this.deaultValue = declaration.getDefaultValue();
+		this.converter = TextConverters.forType(type);
+		this.convertedDefaultValue = converter != null && !deaultValue.isEmpty() ? converter
+				.convert(deaultValue, null) : null;
 	}
-	
+
 	/**
 	 * Gets the type of the method parameter.
 	 * 
@@ -91,6 +149,28 @@ public class MethodParameter {
 		return parameterClass;
 	}
 
+	/**
+	 * Gets the maximum size of the request body (see {@link RequestBody#maxSize()}).
+	 * 
+	 * @return the maximum size in bytes, or a negative value for no limit
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Checks if the parameter receives the raw request body, i.e. if it's a
+	 * request body of type {@link InputStream}, {@link ReadableByteChannel} or
+	 * {@link File}.
+	 * 
+	 * @return true if the parameter receives the raw request body
+	 */
+	public boolean isRawRequestBody() {
+		return source == ParameterSource.REQUEST_BODY
+				&& (parameterClass == InputStream.class
+						|| parameterClass == ReadableByteChannel.class || parameterClass == File.class);
+	}
+
 	/**
 	 * Gets the owner method.
 	 * 
@@ -109,6 +189,43 @@ public class MethodParameter {
 		return paramIndex;
 	}
 
+	/**
+	 * Gets the annotation used to specify the parameter source.
+	 * 
+	 * @return the annotation, or null if the parameter is not annotated or it
+	 *         was built from a {@link ParameterDeclaration}
+	 */
+	public Annotation getAnnotation() {
+		return annotation;
+	}
+
+	/**
+	 * Gets the source of the parameter value.
+	 * 
+	 * @return the parameter source
+	 */
+	public ParameterSource getSource() {
+		return source;
+	}
+
+	/**
+	 * Gets the name used to read the value from its source.
+	 * 
+	 * @return the name, or null if the source doesn't use names
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the index of the segment containing the matrix parameter.
+	 * 
+	 * @return the segment index, or -1 if the source is not a matrix parameter
+	 */
+	public int getSegmentIndex() {
+		return segmentIndex;
+	}
+
 	/**
 	 * Checks if the parameter required.
 	 *
@@ -127,4 +244,25 @@ public class MethodParameter {
 		return deaultValue;
 	}
 
+	/**
+	 * Gets the built-in converter for the parameter type (see
+	 * {@link TextConverters}).
+	 * 
+	 * @return the converter, or null if there is no built-in converter for
+	 *         the parameter type
+	 */
+	public ITextConverter getConverter() {
+		return converter;
+	}
+
+	/**
+	 * Gets the default value converted once with the built-in converter.
+	 * 
+	 * @return the converted default value, or null if there is no default
+	 *         value or it can't be converted by the built-in converter
+	 */
+	public Object getConvertedDefaultValue() {
+		return convertedDefaultValue;
+	}
+
 }
@@ -0,0 +1,223 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.reflection;
+
+import java.lang.annotation.Annotation;
+
+import org.wicketstuff.rest.annotations.parameters.CookieParam;
+import org.wicketstuff.rest.annotations.parameters.HeaderParam;
+import org.wicketstuff.rest.annotations.parameters.MatrixParam;
+import org.wicketstuff.rest.annotations.parameters.PathParam;
+import org.wicketstuff.rest.annotations.parameters.RequestBody;
+import org.wicketstuff.rest.annotations.parameters.RequestParam;
+import org.wicketstuff.rest.resource.IRestMappings;
+
+/**
+ * The values declared for a method parameter with its annotation: the source
+ * of the parameter value, its name, if it's required, its default value and
+ * so on. Declarations are read from the annotation with reflection (see
+ * {@link #forAnnotation(Annotation)}) or they are written directly in the
+ * tables generated at build time (see {@link IRestMappings}).
+ * 
+ * @author andrea del bene
+ */
+public class ParameterDeclaration {
+
+	/** The source of the parameter value. */
+	private final ParameterSource source;
+
+	/** The name used to read the value from its source. */
+	private final String name;
+
+	/** The index of the segment containing the matrix parameter. */
+	private final int segmentIndex;
+
+	/** Indicates if the parameter is required or not. */
+	private final boolean required;
+
+	/** Default value of the method parameter. */
+	private final String defaultValue;
+
+	/** Maximum size of the request body, negative for no limit. */
+	private final long maxSize;
+
+	/**
+	 * Class constructor.
+	 * 
+	 * @param source
+	 *            the source of the parameter value.
+	 * @param name
+	 *            the name used to read the value from its source, or null if
+	 *            the source doesn't use names.
+	 * @param segmentIndex
+	 *            the index of the segment containing the matrix parameter, or
+	 *            -1 if the source is not a matrix parameter.
+	 * @param required
+	 *            if the parameter is required or not.
+	 * @param defaultValue
+	 *            the default value of the parameter, empty for no default
+	 *            value.
+	 * @param maxSize
+	 *            the maximum size of the request body, negative for no limit.
+	 */
+	public ParameterDeclaration(ParameterSource source, String name, int segmentIndex,
+			boolean required, String defaultValue, long maxSize) {
+		this.source = source;
+		this.name = name;
+		this.segmentIndex = segmentIndex;
+		this.required = required;
+		this.defaultValue = defaultValue;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Builds the declaration of a parameter which is not annotated and takes
+	 * its value from a path parameter.
+	 * 
+	 * @param pathParameterName
+	 *            the name of the path parameter, or null if there is no such a
+	 *            path parameter.
+	 * @return the parameter declaration.
+	 */
+	public static ParameterDeclaration forPathParameter(String pathParameterName) {
+		return new ParameterDeclaration(ParameterSource.PATH, pathParameterName, -1, true, "",
+				-1L);
+	}
+
+	/**
+	 * Reads the declaration of a parameter from its annotation (see
+	 * {@link ReflectionUtils#getAnnotationParam(int, java.lang.reflect.Method)}).
+	 * 
+	 * @param annotation
+	 *            the parameter annotation.
+	 * @return the parameter declaration.
+	 */
+	public static ParameterDeclaration forAnnotation(Annotation annotation) {
+		boolean required = loadAnnotationField(annotation, "required", true);
+		long maxSize = loadAnnotationField(annotation, "maxSize", -1L);
+		String defaultValue = loadAnnotationField(annotation, "defaultValue", "");
+
+		if (annotation instanceof MatrixParam) {
+			MatrixParam matrixParam = (MatrixParam) annotation;
+
+			return new ParameterDeclaration(ParameterSource.MATRIX, matrixParam.parameterName(),
+					matrixParam.segmentIndex(), required, defaultValue, maxSize);
+		}
+
+		ParameterSource source = loadSource(annotation);
+		String name = source == ParameterSource.REQUEST_BODY || source == ParameterSource.UNKNOWN ? null
+				: ReflectionUtils.<String> invokeMethod(annotation, "value");
+
+		return new ParameterDeclaration(source, name, -1, required, defaultValue, maxSize);
+	}
+
+	/**
+	 * Load the source of the parameter value from its annotation.
+	 * 
+	 * @param annotation
+	 *            the parameter annotation.
+	 * @return the parameter source.
+	 */
+	private static ParameterSource loadSource(Annotation annotation) {
+		if (annotation instanceof RequestBody)
+			return ParameterSource.REQUEST_BODY;
+		if (annotation instanceof PathParam)
+			return ParameterSource.PATH;
+		if (annotation instanceof RequestParam)
+			return ParameterSource.REQUEST_PARAM;
+		if (annotation instanceof HeaderParam)
+			return ParameterSource.HEADER;
+		if (annotation instanceof CookieParam)
+			return ParameterSource.COOKIE;
+
+		return ParameterSource.UNKNOWN;
+	}
+
+	/**
+	 * Load a field of the parameter annotation.
+	 * 
+	 * @param <T>
+	 *            the generic type
+	 * @param annotation
+	 *            the parameter annotation.
+	 * @param fieldName
+	 *            the field name
+	 * @param defaultValue
+	 *            the value returned if the annotation doesn't have the field
+	 * @return the field value
+	 */
+	private static <T> T loadAnnotationField(Annotation annotation, String fieldName,
+			T defaultValue) {
+		T methodResult = ReflectionUtils.invokeMethod(annotation, fieldName);
+
+		return methodResult != null ? methodResult : defaultValue;
+	}
+
+	/**
+	 * Gets the source of the parameter value.
+	 * 
+	 * @return the parameter source
+	 */
+	public ParameterSource getSource() {
+		return source;
+	}
+
+	/**
+	 * Gets the name used to read the value from its source.
+	 * 
+	 * @return the name, or null if the source doesn't use names
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the index of the segment containing the matrix parameter.
+	 * 
+	 * @return the segment index, or -1 if the source is not a matrix parameter
+	 */
+	public int getSegmentIndex() {
+		return segmentIndex;
+	}
+
+	/**
+	 * Checks if the parameter is required.
+	 * 
+	 * @return true, if is required
+	 */
+	public boolean isRequired() {
+		return required;
+	}
+
+	/**
+	 * Gets the default value of the parameter.
+	 * 
+	 * @return the default value, empty for no default value
+	 */
+	public String getDefaultValue() {
+		return defaultValue;
+	}
+
+	/**
+	 * Gets the maximum size of the request body.
+	 * 
+	 * @return the maximum size in bytes, or a negative value for no limit
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+}
@@ -0,0 +1,48 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.reflection;
+
+import org.wicketstuff.rest.annotations.parameters.CookieParam;
+import org.wicketstuff.rest.annotations.parameters.HeaderParam;
+import org.wicketstuff.rest.annotations.parameters.MatrixParam;
+import org.wicketstuff.rest.annotations.parameters.PathParam;
+import org.wicketstuff.rest.annotations.parameters.RequestBody;
+import org.wicketstuff.rest.annotations.parameters.RequestParam;
+
+/**
+ * Enum class that represents the possible sources for the value of a method
+ * parameter.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public enum ParameterSource {
+	/** Path parameter, either annotated with {@link PathParam} or not annotated at all. */
+	PATH,
+	/** Request body (see {@link RequestBody}). */
+	REQUEST_BODY,
+	/** Request parameter (see {@link RequestParam}). */
+	REQUEST_PARAM,
+	/** Header parameter (see {@link HeaderParam}). */
+	HEADER,
+	/** Cookie (see {@link CookieParam}). */
+	COOKIE,
+	/** Matrix parameter (see {@link MatrixParam}). */
+	MATRIX,
+	/** Annotation unknown to the resource, the parameter value is always null. */
+	UNKNOWN
+}
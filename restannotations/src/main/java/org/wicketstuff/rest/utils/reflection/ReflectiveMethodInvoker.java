@@ -0,0 +1,59 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.reflection;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * Default {@link IMethodInvoker} based on {@link Method#invoke(Object, Object...)}.
+ * The access check is done once, when the invoker is built: public methods of
+ * public classes are made accessible so that every call skips the check,
+ * while the other methods are left to {@link Method#invoke(Object, Object...)}
+ * and still fail with {@link IllegalAccessException}.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class ReflectiveMethodInvoker implements IMethodInvoker {
+	/** The invoked method. */
+	private final Method method;
+
+	/**
+	 * Instantiates a new invoker for the given method.
+	 * 
+	 * @param method
+	 *            the invoked method.
+	 */
+	public ReflectiveMethodInvoker(Method method) {
+		this.method = method;
+
+		if (Modifier.isPublic(method.getModifiers())
+				&& Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+			try {
+				method.setAccessible(true);
+			} catch (SecurityException e) {
+				// the access is checked on every call
+			}
+		}
+	}
+
+	@Override
+	public Object invoke(Object target, Object[] arguments) throws Exception {
+		return method.invoke(target, arguments);
+	}
+}
@@ -17,23 +17,28 @@
 package org.wicketstuff.rest.utils.test;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringReader;
 
 import javax.servlet.ServletContext;
+import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpSession;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.protocol.http.mock.MockHttpServletRequest;
 
 /**
- * Mock request that allows to use a custom BufferedReader as request body.
+ * Mock request that allows to use a custom BufferedReader or an array of
+ * bytes as request body.
  * 
  * @author andrea del bene
  *
  */
 public class BufferedMockRequest extends MockHttpServletRequest {
 	BufferedReader reader;
+	byte[] binaryBody;
+	int declaredContentLength = -1;
 	
 	public BufferedMockRequest(Application application, HttpSession session, ServletContext context, String httpMethod) {
 		super(application, session, context);
@@ -55,4 +60,54 @@ public class BufferedMockRequest extends MockHttpServletRequest {
 	public void setTextAsRequestBody(String requestBody) {
 		this.reader = new BufferedReader(new StringReader(requestBody));
 	}
+
+	@Override
+	public ServletInputStream getInputStream() throws IOException {
+		if (binaryBody == null)
+			return super.getInputStream();
+
+		final ByteArrayInputStream inputStream = new ByteArrayInputStream(binaryBody);
+
+		return new ServletInputStream() {
+			@Override
+			public int read() throws IOException {
+				return inputStream.read();
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return inputStream.read(b, off, len);
+			}
+		};
+	}
+
+	@Override
+	public int getContentLength() {
+		if (binaryBody == null)
+			return super.getContentLength();
+
+		return declaredContentLength;
+	}
+
+	@Override
+	public String getHeader(String name) {
+		if (binaryBody == null || !"Content-Length".equalsIgnoreCase(name))
+			return super.getHeader(name);
+
+		return declaredContentLength >= 0 ? String.valueOf(declaredContentLength) : null;
+	}
+
+	/**
+	 * Uses the given bytes as request body.
+	 * 
+	 * @param requestBody
+	 *            the request body.
+	 * @param declareContentLength
+	 *            if false the request doesn't declare the length of its body,
+	 *            like a chunked request.
+	 */
+	public void setBinaryRequestBody(byte[] requestBody, boolean declareContentLength) {
+		this.binaryBody = requestBody;
+		this.declaredContentLength = declareContentLength ? requestBody.length : -1;
+	}
 }
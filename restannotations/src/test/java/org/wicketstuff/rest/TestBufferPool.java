@@ -0,0 +1,88 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest;
+
+import org.apache.wicket.protocol.http.servlet.ServletWebRequest;
+import org.apache.wicket.protocol.http.servlet.ServletWebResponse;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.wicketstuff.rest.utils.http.BufferPool;
+import org.wicketstuff.rest.utils.http.PooledResponseWriter;
+
+public class TestBufferPool extends Assert {
+	private WicketTester tester;
+
+	@Before
+	public void setUp() {
+		tester = new WicketTester();
+	}
+
+	@After
+	public void tearDown() {
+		tester.destroy();
+	}
+
+	@Test
+	public void testHitsMissesAndDiscards() {
+		BufferPool pool = new BufferPool(1, 1, 16, 32);
+
+		char[] chars = pool.acquireCharBuffer();
+		assertEquals(1, pool.getMissCount());
+
+		pool.releaseCharBuffer(chars);
+		assertSame(chars, pool.acquireCharBuffer());
+		assertEquals(1, pool.getHitCount());
+
+		// oversized buffers and buffers exceeding the pool capacity
+		pool.releaseByteBuffer(new byte[64]);
+		pool.releaseCharBuffer(chars);
+		pool.releaseCharBuffer(new char[16]);
+		assertEquals(2, pool.getDiscardCount());
+		assertEquals(32, pool.acquireByteBuffer().length);
+	}
+
+	@Test
+	public void testWriterEncodesIntoPooledBuffers() throws Exception {
+		BufferPool pool = new BufferPool(1, 2, 3, 4);
+		StringBuilder expected = new StringBuilder();
+
+		// multi-byte characters and surrogate pairs split across buffers
+		for (int i = 0; i < 20000; i++) {
+			expected.append("a\u00e8\u20ac\ud83d\ude00");
+		}
+
+		ServletWebResponse response = new ServletWebResponse(new ServletWebRequest(
+				tester.getRequest(), ""), tester.getResponse());
+		PooledResponseWriter writer = new PooledResponseWriter(response, "UTF-8", pool);
+
+		writer.write(expected.toString());
+		writer.close();
+
+		byte[] content = tester.getResponse().getBinaryContent();
+
+		assertEquals(expected.toString(), new String(content, "UTF-8"));
+		// full buffers are written to the response, so they never grow and
+		// they are all given back to the pool
+		assertEquals(0, pool.getDiscardCount());
+		assertEquals(3, pool.acquireCharBuffer().length);
+		assertEquals(4, pool.acquireByteBuffer().length);
+		assertEquals(2, pool.getHitCount());
+	}
+}
@@ -0,0 +1,59 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.utils.http.ContentNegotiator;
+
+public class TestContentNegotiator extends Assert {
+
+	@Test
+	public void testNormalize() {
+		String mimeType = RestMimeTypes.APPLICATION_JSON;
+
+		assertSame(mimeType, ContentNegotiator.normalize(mimeType));
+		assertEquals(mimeType, ContentNegotiator.normalize("application/json; charset=utf-8"));
+		assertEquals(mimeType, ContentNegotiator.normalize(" Application/JSON "));
+		assertNull(ContentNegotiator.normalize(null));
+	}
+
+	@Test
+	public void testNegotiate() {
+		ContentNegotiator negotiator = new ContentNegotiator(RestMimeTypes.APPLICATION_JSON,
+				"text/plain; charset=UTF-8");
+
+		assertEquals(RestMimeTypes.APPLICATION_JSON, negotiator.negotiate(null));
+		// the declared type is returned, with its parameters
+		assertEquals("text/plain; charset=UTF-8", negotiator.negotiate("text/*"));
+		assertEquals("text/plain; charset=UTF-8",
+				negotiator.negotiate("*/*;q=0.5, text/plain;level=1;q=0.8"));
+		assertEquals(RestMimeTypes.APPLICATION_JSON, negotiator.negotiate("*"));
+		// malformed ranges are ignored
+		assertEquals("text/plain; charset=UTF-8",
+				negotiator.negotiate("text/plain, json, */*;q=x"));
+		assertNull(negotiator.negotiate("image/png"));
+		assertNull(negotiator.negotiate("image/png"));
+
+		// headers always different don't fill the cache
+		for (int i = 0; i < ContentNegotiator.MAX_CACHED_OUTCOMES * 2; i++) {
+			assertEquals(RestMimeTypes.APPLICATION_JSON,
+					negotiator.negotiate("application/json;q=0.9, x/y" + i));
+		}
+	}
+}
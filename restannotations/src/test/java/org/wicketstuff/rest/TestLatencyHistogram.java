@@ -0,0 +1,49 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wicketstuff.rest.resource.metrics.LatencyHistogram;
+
+public class TestLatencyHistogram extends Assert {
+
+	@Test
+	public void testPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		assertEquals(0, histogram.getValueAtPercentile(0.5));
+
+		for (long value = 1; value <= 1000; value++) {
+			histogram.record(value * 1000);
+		}
+
+		assertEquals(1000, histogram.getCount());
+		assertEquals(500500000L, histogram.getTotalNanos());
+		assertWithinBucket(500000, histogram.getValueAtPercentile(0.5));
+		assertWithinBucket(990000, histogram.getValueAtPercentile(0.99));
+		assertWithinBucket(1000000, histogram.getValueAtPercentile(1));
+
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(1));
+	}
+
+	private void assertWithinBucket(long expected, long actual) {
+		assertTrue(actual >= expected);
+		assertTrue(actual <= expected * 1.125);
+	}
+}
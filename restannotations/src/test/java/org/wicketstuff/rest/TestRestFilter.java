@@ -0,0 +1,155 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Enumeration;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.apache.wicket.authroles.authorization.strategies.role.Roles;
+import org.apache.wicket.protocol.http.mock.MockHttpServletRequest;
+import org.apache.wicket.protocol.http.mock.MockHttpServletResponse;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.wicketstuff.rest.resource.RestFilter;
+
+public class TestRestFilter {
+	private WicketTester tester;
+	private RestFilter filter;
+	private CountingFilterChain chain;
+
+	@Before
+	public void setUp() throws ServletException {
+		Roles roles = new Roles();
+		roles.add("ROLE_ADMIN");
+
+		tester = new WicketTester(new WicketApplication(roles));
+		chain = new CountingFilterChain();
+		filter = new RestFilter();
+		filter.init(new TestFilterConfig(tester.getApplication().getName(), "servlet"));
+	}
+
+	@After
+	public void tearDown() {
+		filter.destroy();
+		tester.destroy();
+	}
+
+	@Test
+	public void testServedByFilter() throws Exception {
+		MockHttpServletResponse response = doFilter("GET", "rest/stateless/12345");
+
+		Assert.assertEquals(0, chain.count);
+		Assert.assertEquals(200, response.getStatus());
+		Assert.assertEquals("12345", response.getDocument());
+
+		response = doFilter("GET", "rest/stateless/products/112?price=12.34");
+		Assert.assertEquals(0, chain.count);
+		Assert.assertEquals("testMethodGetParameter", response.getDocument());
+
+		response = doFilter("GET", "rest/stateless/price/12.5");
+		Assert.assertEquals(0, chain.count);
+		Assert.assertEquals("12.5", response.getDocument());
+	}
+
+	@Test
+	public void testPassedToWicket() throws Exception {
+		// methods with role checks
+		doFilter("GET", "rest/stateless/admin");
+		Assert.assertEquals(1, chain.count);
+
+		// resources that are not stateless
+		doFilter("GET", "rest/full/12345");
+		Assert.assertEquals(2, chain.count);
+
+		// no method mapped
+		doFilter("GET", "rest/stateless/no/method/mapped");
+		Assert.assertEquals(3, chain.count);
+
+		// not a REST resource
+		doFilter("GET", "api/12345");
+		Assert.assertEquals(4, chain.count);
+	}
+
+	private MockHttpServletResponse doFilter(String httpMethod, String url) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest(tester.getApplication(),
+				tester.getHttpSession(), tester.getServletContext());
+		MockHttpServletResponse response = new MockHttpServletResponse(request);
+
+		request.setMethod(httpMethod);
+		request.setURL(url);
+		filter.doFilter(request, response, chain);
+
+		return response;
+	}
+
+	private static class CountingFilterChain implements FilterChain {
+		private int count;
+
+		@Override
+		public void doFilter(ServletRequest request, ServletResponse response)
+				throws IOException, ServletException {
+			count++;
+		}
+	}
+
+	private class TestFilterConfig implements FilterConfig {
+		private final String applicationName;
+		private final String filterPath;
+
+		TestFilterConfig(String applicationName, String filterPath) {
+			this.applicationName = applicationName;
+			this.filterPath = filterPath;
+		}
+
+		@Override
+		public String getFilterName() {
+			return "rest";
+		}
+
+		@Override
+		public ServletContext getServletContext() {
+			return tester.getServletContext();
+		}
+
+		@Override
+		public String getInitParameter(String name) {
+			if (RestFilter.APP_NAME_PARAM.equals(name))
+				return applicationName;
+
+			if (RestFilter.FILTER_PATH_PARAM.equals(name))
+				return filterPath;
+
+			return null;
+		}
+
+		@Override
+		public Enumeration<String> getInitParameterNames() {
+			return Collections.enumeration(Collections.<String> emptyList());
+		}
+	}
+}
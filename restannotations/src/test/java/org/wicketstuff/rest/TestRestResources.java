@@ -19,18 +19,35 @@ package org.wicketstuff.rest;
 import static org.junit.Assert.assertEquals;
 
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.servlet.ServletOutputStream;
 import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
 import javax.xml.bind.JAXB;
 import javax.xml.transform.stream.StreamResult;
 
 import junit.framework.Assert;
 
+import org.apache.wicket.ISessionListener;
 import org.apache.wicket.Session;
+import org.apache.wicket.ThreadContext;
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.authroles.authorization.strategies.role.Roles;
+import org.apache.wicket.protocol.http.servlet.ServletWebRequest;
+import org.apache.wicket.protocol.http.servlet.ServletWebResponse;
+import org.apache.wicket.request.Response;
+import org.apache.wicket.request.cycle.AbstractRequestCycleListener;
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.resource.IResource;
+import org.apache.wicket.request.resource.ResourceReference;
 import org.apache.wicket.util.tester.WicketTester;
 import org.junit.After;
 import org.junit.Before;
@@ -40,7 +57,11 @@ import org.junit.rules.ExpectedException;
 import org.wicketstuff.rest.annotations.parameters.RequestBody;
 import org.wicketstuff.rest.contenthandling.RestMimeTypes;
 import org.wicketstuff.rest.contenthandling.serialdeserial.TestJsonDesSer;
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.resource.RegExpRestResource;
+import org.wicketstuff.rest.resource.RestRequestContext;
 import org.wicketstuff.rest.resource.RestResourceFullAnnotated;
+import org.wicketstuff.rest.resource.metrics.IPhaseTimingSink;
 import org.wicketstuff.rest.utils.test.BufferedMockRequest;
 
 /**
@@ -116,6 +137,33 @@ public class TestRestResources {
 		testIfResponseStringIsEqual("testRequiredDefault");
 	}
 
+	@Test
+	public void testConversionErrorWithOptionalParameter() {
+		tester.destroy();
+		// servlet containers don't let a response use both its writer and its
+		// output stream
+		tester = new WicketTester(new WicketApplication(roles)) {
+			@Override
+			protected Response newServletWebResponse(ServletWebRequest servletWebRequest) {
+				return new ServletWebResponse(servletWebRequest, new SingleOutputResponse(
+						getResponse()));
+			}
+		};
+
+		// the method is not invoked after the conversion error
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setParameter("size", "big");
+		tester.executeUrl("./api/optional");
+
+		Assert.assertEquals(400, tester.getLastResponse().getStatus());
+		testIfResponseStringIsEqual("Could not find a suitable constructor for value 'big' of type '"
+				+ Integer.class + "'");
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./api/optional");
+		testIfResponseStringIsEqual("testOptionalConversion:null");
+	}
+
 	@Test
 	public void testJsonDeserializedParamRequest() {
 		// test @RequestBody annotation 
@@ -136,6 +184,121 @@ public class TestRestResources {
 		Assert.assertEquals(TestJsonDesSer.getJSON(), tester.getLastResponseAsString());
 	}
 
+	@Test
+	public void testStreamedResponses() {
+		String json = TestJsonDesSer.getJSON();
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./api/stream/array");
+		Assert.assertEquals("[" + json + "," + json + "," + json + "]",
+				tester.getLastResponseAsString());
+
+		// other iterables are left to the serializer
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./api/stream/iterable");
+		Assert.assertEquals(json, tester.getLastResponseAsString());
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./api/stream/ndjson");
+		Assert.assertEquals(json + "\n" + json + "\n" + json + "\n",
+				tester.getLastResponseAsString());
+		Assert.assertTrue(tester.getLastResponse().getContentType()
+				.startsWith(RestMimeTypes.APPLICATION_NDJSON));
+	}
+
+	@Test
+	public void testBinaryResponses() {
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./api/binary/bytes");
+		Assert.assertEquals(RestResourceFullAnnotated.BINARY_CONTENT,
+				tester.getLastResponseAsString());
+		Assert.assertEquals(RestMimeTypes.OCTET_STREAM, tester.getLastResponse().getContentType());
+
+		// binary values are still serialized on JSON routes
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./api/binary/json");
+		Assert.assertEquals(TestJsonDesSer.getJSON(), tester.getLastResponseAsString());
+		Assert.assertTrue(tester.getLastResponse().getContentType()
+				.startsWith(RestMimeTypes.APPLICATION_JSON));
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./api/binary/file");
+		Assert.assertEquals(200, tester.getLastResponse().getStatus());
+		Assert.assertEquals(RestResourceFullAnnotated.BINARY_CONTENT,
+				tester.getLastResponseAsString());
+		Assert.assertEquals("bytes", tester.getLastResponse().getHeader("Accept-Ranges"));
+
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setHeader("Range", "bytes=2-5");
+		tester.executeUrl("./api/binary/file");
+		Assert.assertEquals(206, tester.getLastResponse().getStatus());
+		Assert.assertEquals("2345", tester.getLastResponseAsString());
+		Assert.assertEquals("bytes 2-5/10", tester.getLastResponse().getHeader("Content-Range"));
+
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setHeader("Range", "bytes=-3");
+		tester.executeUrl("./api/binary/bytes");
+		Assert.assertEquals(206, tester.getLastResponse().getStatus());
+		Assert.assertEquals("789", tester.getLastResponseAsString());
+
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setHeader("Range", "bytes=20-");
+		tester.executeUrl("./api/binary/file");
+		Assert.assertEquals(416, tester.getLastResponse().getStatus());
+		Assert.assertEquals("bytes */10", tester.getLastResponse().getHeader("Content-Range"));
+
+		// the file has changed, so the whole content is sent
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setHeader("Range", "bytes=2-5");
+		tester.getRequest().setHeader("If-Range", "\"outdated\"");
+		tester.executeUrl("./api/binary/file");
+		Assert.assertEquals(200, tester.getLastResponse().getStatus());
+		Assert.assertEquals(RestResourceFullAnnotated.BINARY_CONTENT,
+				tester.getLastResponseAsString());
+	}
+
+	@Test
+	public void testRawRequestBodies() {
+		byte[] body = new byte[10000];
+
+		tester.setRequest(newBinaryRequest(body, true));
+		tester.executeUrl("./api/upload/file");
+		testIfResponseStringIsEqual("10000");
+		// spooled bodies are deleted once the request has been served
+		Assert.assertFalse(RestResourceFullAnnotated.lastUploadedFile.exists());
+
+		tester.setRequest(newBinaryRequest(new byte[12], true));
+		tester.executeUrl("./api/upload/stream");
+		testIfResponseStringIsEqual("12");
+
+		// declared length bigger than the maximum size
+		tester.setRequest(newBinaryRequest(body, true));
+		tester.executeUrl("./api/upload/stream");
+		Assert.assertEquals(413, tester.getLastResponse().getStatus());
+
+		// length not declared, the maximum size is exceeded while reading
+		tester.setRequest(newBinaryRequest(body, false));
+		tester.executeUrl("./api/upload/stream");
+		Assert.assertEquals(413, tester.getLastResponse().getStatus());
+
+		// deserialized bodies are limited while they are read too
+		tester.setRequest(newBinaryRequest(new byte[12], false));
+		tester.executeUrl("./api/upload/object");
+		testIfResponseStringIsEqual("Mary");
+
+		tester.setRequest(newBinaryRequest(body, false));
+		tester.executeUrl("./api/upload/object");
+		Assert.assertEquals(413, tester.getLastResponse().getStatus());
+	}
+
+	private BufferedMockRequest newBinaryRequest(byte[] body, boolean declareContentLength) {
+		BufferedMockRequest request = new BufferedMockRequest(tester.getApplication(),
+				tester.getHttpSession(), tester.getServletContext(), "POST");
+
+		request.setBinaryRequestBody(body, declareContentLength);
+		return request;
+	}
+
 	@Test
 	public void rolesAuthorizationMethod() {
 		roles.add("ROLE_ADMIN");
@@ -179,7 +342,50 @@ public class TestRestResources {
 		tester.getRequest().setCookies(new Cookie[] { new Cookie("credential", "bob") });
 		tester.executeUrl("./api2/recordlog/message/34xxxxx");
 		
-		Assert.assertEquals(400, tester.getLastResponse().getStatus());
+		// no mapped method matches the URL
+		Assert.assertEquals(404, tester.getLastResponse().getStatus());
+
+		// parameters that can't be matched without regular expressions
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./api2/recordlog/file/txt-12");
+		testIfResponseStringIsEqual("txt12");
+	}
+
+	@Test
+	public void testCapturesSharedBySegments() throws Exception {
+		final List<RestRequestContext> contexts = new ArrayList<RestRequestContext>();
+		final RegExpRestResource resource = new RegExpRestResource(new TestJsonDesSer(),
+				(WicketApplication) tester.getApplication());
+
+		resource.setPhaseTimingSink(new IPhaseTimingSink() {
+			@Override
+			public void onRequestServed(RestRequestContext context) {
+				contexts.add(context);
+			}
+		});
+		tester.getApplication().mountResource("/captures", new ResourceReference("captures") {
+			@Override
+			public IResource getResource() {
+				return resource;
+			}
+		});
+
+		// both methods share the multi-param segment, matched only once
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./captures/recordlog/range/a-z/first");
+		testIfResponseStringIsEqual("first:az");
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./captures/recordlog/range/b-y/last");
+		testIfResponseStringIsEqual("last:by");
+
+		assertEquals(2, contexts.size());
+
+		for (RestRequestContext context : contexts) {
+			MethodMappingInfo mappedMethod = context.getMappedMethod();
+
+			Assert.assertNotNull(context.getCapturedValues(2, mappedMethod.getSegments().get(2)));
+		}
 	}
 
 	@Test
@@ -196,7 +402,217 @@ public class TestRestResources {
 		
 		assertEquals(writer.toString(), tester.getLastResponseAsString());
 	}
+
+	@Test
+	public void testContentNegotiation() throws Exception {
+		// the default header of the mock request is the one of a browser,
+		// preferring XML to '*/*'
+		assertNegotiatedType(null, RestMimeTypes.APPLICATION_XML);
+		Assert.assertEquals("Accept", tester.getLastResponse().getHeader("Vary"));
+
+		assertNegotiatedType("application/xml", RestMimeTypes.APPLICATION_XML);
+		assertNegotiatedType("application/json;q=0.5, application/xml",
+				RestMimeTypes.APPLICATION_XML);
+		// same quality, the order of the produced types wins
+		assertNegotiatedType("text/*, application/*;q=0.2", RestMimeTypes.APPLICATION_JSON);
+		// the most specific range decides the quality
+		assertNegotiatedType("*/*;q=0.1, application/json;q=0", RestMimeTypes.APPLICATION_XML);
+		assertNegotiatedType("Application/XML; charset=UTF-8", RestMimeTypes.APPLICATION_XML);
+		// cached outcome
+		assertNegotiatedType("application/xml", RestMimeTypes.APPLICATION_XML);
+
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setHeader("Accept", "text/html, application/json;q=0");
+		tester.executeUrl("./api3/negotiated/person");
+
+		Assert.assertEquals(406, tester.getLastResponse().getStatus());
+
+		// methods producing a single type ignore the header
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setHeader("Accept", "text/html");
+		tester.executeUrl("./api3/person");
+
+		Assert.assertEquals(RestMimeTypes.APPLICATION_XML, tester.getLastResponse().getContentType());
+
+		// declared parameters are kept in the response type
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setHeader("Accept", "application/json");
+		tester.executeUrl("./api3/versioned/person");
+
+		Assert.assertEquals(200, tester.getLastResponse().getStatus());
+		Assert.assertTrue(tester.getLastResponse().getContentType(), tester.getLastResponse()
+				.getContentType().startsWith("application/json; version=2"));
+		testIfResponseStringIsEqual(TestJsonDesSer.getJSON());
+	}
+
+	private void assertNegotiatedType(String acceptHeader, String expectedType) {
+		tester.getRequest().setMethod("GET");
+
+		if (acceptHeader != null)
+			tester.getRequest().setHeader("Accept", acceptHeader);
+
+		tester.executeUrl("./api3/negotiated/person");
+
+		Assert.assertEquals(200, tester.getLastResponse().getStatus());
+		Assert.assertTrue(tester.getLastResponse().getContentType().startsWith(expectedType));
+	}
+
+	@Test
+	public void testStatelessLocaleConversion() throws Exception {
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./api/price/12.5");
+		testIfResponseStringIsEqual("12.5");
+		
+		// stateless resources read the locale from header 'Accept-Language'
+		// and they never create a session: the session of the tester is
+		// hidden while the request is served, so any access would create a
+		// new one
+		final AtomicInteger createdSessions = new AtomicInteger();
+
+		tester.getApplication().getSessionListeners().add(new ISessionListener() {
+			@Override
+			public void onCreated(Session session) {
+				createdSessions.incrementAndGet();
+			}
+		});
+		tester.getApplication().getRequestCycleListeners().add(new AbstractRequestCycleListener() {
+			private Session session;
+
+			@Override
+			public void onBeginRequest(RequestCycle cycle) {
+				session = ThreadContext.getSession();
+				ThreadContext.setSession(null);
+			}
+
+			@Override
+			public void onDetach(RequestCycle cycle) {
+				ThreadContext.setSession(session);
+			}
+		});
+
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setHeader("Accept-Language", "it-IT");
+		tester.executeUrl("./api4/price/12,5");
+		Assert.assertEquals(0, createdSessions.get());
+		testIfResponseStringIsEqual("12.5");
+	}
+
+	@Test
+	public void testRestRequestMapper() throws Exception {
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./rest/full");
+		testIfResponseStringIsEqual("testMethodNoArgs");
+		
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./rest/full/12345");
+		testIfResponseStringIsEqual("12345");
+		
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./rest/full/hjjzj");
+		Assert.assertEquals(400, tester.getLastResponse().getStatus());
+		
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setParameter("price", "" + 12.34);
+		tester.executeUrl("./rest/full/products/112");
+		testIfResponseStringIsEqual("testMethodGetParameter");
+		
+		tester.getRequest().setMethod("POST");
+		tester.getRequest().setCookies(new Cookie[] { new Cookie("name", "bob") });
+		tester.executeUrl("./rest/full/person/113;height=170");
+		testIfResponseStringIsEqual("testMethodCookieParameter:113bob");
+		
+		// resource mounted on a shorter path
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setCookies(new Cookie[] { new Cookie("credential", "bob") });
+		tester.executeUrl("./rest/recordlog/message/07-23-2007_success");
+		Assert.assertEquals(200, tester.getLastResponse().getStatus());
+	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./api4/price/12.5");
+		
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./api4/price/12.5/unmapped");
+		Assert.assertEquals(404, tester.getLastResponse().getStatus());
+		
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./metrics");
+		
+		String metrics = tester.getLastResponseAsString();
+		String labels = "{resource=\"" + RestResourceFullAnnotated.class.getName()
+				+ "\",method=\"testLocalizedConversion\",http_method=\"GET\",route=\"/price/{price}\"}";
+		
+		Assert.assertTrue(metrics.contains("wicket_rest_requests_total" + labels + " 1\n"));
+		Assert.assertTrue(metrics.contains("wicket_rest_response_bytes_total" + labels + " 4\n"));
+		Assert.assertTrue(metrics.contains("wicket_rest_request_duration_seconds_count" + labels + " 1\n"));
+		Assert.assertTrue(metrics.contains("wicket_rest_unmatched_requests_total 1\n"));
+		
+		String phaseLabels = labels.substring(0, labels.length() - 1) + ",phase=\"invocation\"}";
+		Assert.assertTrue(metrics.contains("wicket_rest_phase_duration_seconds_count" + phaseLabels + " 1\n"));
+	}
+
+	@Test
+	public void testRejectedRequests() throws Exception {
+		// no mapped method uses DELETE
+		tester.getRequest().setMethod("DELETE");
+		tester.executeUrl("./api4/price/12.5");
+		Assert.assertEquals(405, tester.getLastResponse().getStatus());
+		Assert.assertEquals("GET, POST", tester.getLastResponse().getHeader("Allow"));
+		
+		// no mapped method has six segments
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./api4/a/b/c/d/e/f");
+		Assert.assertEquals(404, tester.getLastResponse().getStatus());
+		
+		// the same through RestRequestMapper
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./rest/stateless/a/b/c/d/e/f");
+		Assert.assertEquals(404, tester.getLastResponse().getStatus());
+		
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./metrics");
+		
+		String metrics = tester.getLastResponseAsString();
+		
+		Assert.assertTrue(metrics.contains("wicket_rest_unmatched_requests_total 2\n"));
+		Assert.assertTrue(metrics.contains("wicket_rest_rejected_requests_total{status=\"404\"} 1\n"));
+		Assert.assertTrue(metrics.contains("wicket_rest_rejected_requests_total{status=\"405\"} 1\n"));
+	}
+
 	protected void testIfResponseStringIsEqual(String value) {
 		Assert.assertEquals(value, tester.getLastResponseAsString());
 	}
+
+	/**
+	 * Servlet response that, like the ones of the servlet containers, fails if
+	 * both its writer and its output stream are used.
+	 */
+	private static class SingleOutputResponse extends HttpServletResponseWrapper {
+		private boolean writerUsed;
+		private boolean outputStreamUsed;
+
+		SingleOutputResponse(HttpServletResponse response) {
+			super(response);
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			if (outputStreamUsed)
+				throw new IllegalStateException("getOutputStream() has already been called");
+
+			writerUsed = true;
+			return super.getWriter();
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			if (writerUsed)
+				throw new IllegalStateException("getWriter() has already been called");
+
+			outputStreamUsed = true;
+			return super.getOutputStream();
+		}
+	}
 }
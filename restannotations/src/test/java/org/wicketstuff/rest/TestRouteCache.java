@@ -0,0 +1,142 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.wicket.authroles.authorization.strategies.role.Roles;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wicketstuff.rest.annotations.MethodMapping;
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.resource.routing.RouteCache;
+import org.wicketstuff.rest.resource.routing.RouteCache.ResolvedRoute;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+
+public class TestRouteCache extends Assert {
+
+	@Test
+	public void testHitsAndMisses() throws Exception {
+		RouteCache cache = new RouteCache(4);
+		MethodMappingInfo mappedMethod = loadMappedMethod();
+		Map<String, String> pathParameters = Collections.singletonMap("id", "12");
+
+		assertNull(cache.get(HttpMethod.GET, new String[] { "item", "12" }));
+		cache.put(HttpMethod.GET, new String[] { "item", "12" }, mappedMethod, pathParameters);
+
+		ResolvedRoute route = cache.get(HttpMethod.GET, new String[] { "item", "12" });
+
+		assertSame(mappedMethod, route.getMappedMethod());
+		assertEquals("12", route.getPathParameters().get("id"));
+		// the HTTP method is part of the key
+		assertNull(cache.get(HttpMethod.POST, new String[] { "item", "12" }));
+
+		assertEquals(1, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+		assertEquals(1, cache.size());
+
+		cache.putUnmatched(HttpMethod.GET, new String[] { "unmatched" });
+		assertTrue(cache.get(HttpMethod.GET, new String[] { "unmatched" }).isUnmatched());
+		assertFalse(route.isUnmatched());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHitCount());
+	}
+
+	@Test
+	public void testScanDoesNotFlushHotRoutes() throws Exception {
+		RouteCache cache = new RouteCache(16);
+		MethodMappingInfo mappedMethod = loadMappedMethod();
+
+		for (int i = 0; i < 16; i++) {
+			String[] segments = new String[] { "hot", String.valueOf(i) };
+
+			for (int j = 0; j < 5; j++) {
+				resolve(cache, segments, mappedMethod);
+			}
+		}
+
+		// a scan of unique URLs requested once, while hot URLs are still
+		// requested
+		for (int i = 0; i < 1000; i++) {
+			resolve(cache, new String[] { "item", String.valueOf(i) }, mappedMethod);
+			resolve(cache, new String[] { "hot", String.valueOf(i % 16) }, mappedMethod);
+		}
+
+		assertEquals(16, cache.size());
+
+		for (int i = 0; i < 16; i++) {
+			assertNotNull(cache.get(HttpMethod.GET, new String[] { "hot", String.valueOf(i) }));
+		}
+	}
+
+	@Test
+	public void testCachedRouteIsServed() {
+		Roles roles = new Roles();
+		roles.add("ROLE_ADMIN");
+
+		WicketApplication application = new WicketApplication(roles);
+		WicketTester tester = new WicketTester(application);
+		RouteCache cache = application.getRouteCache();
+
+		try {
+			for (int i = 0; i < 3; i++) {
+				tester.getRequest().setMethod("GET");
+				tester.executeUrl("./rest/stateless/12345");
+				assertEquals("12345", tester.getLastResponseAsString());
+			}
+
+			assertEquals(1, cache.getMissCount());
+			assertEquals(2, cache.getHitCount());
+
+			// unmatched URLs are cached too
+			for (int i = 0; i < 2; i++) {
+				tester.getRequest().setMethod("GET");
+				tester.executeUrl("./rest/stateless/no/method/mapped");
+				assertEquals(404, tester.getLastResponse().getStatus());
+			}
+
+			assertEquals(2, cache.getMissCount());
+			assertEquals(3, cache.getHitCount());
+		} finally {
+			tester.destroy();
+		}
+	}
+
+	private void resolve(RouteCache cache, String[] segments, MethodMappingInfo mappedMethod) {
+		if (cache.get(HttpMethod.GET, segments) == null) {
+			Map<String, String> pathParameters = Collections.emptyMap();
+			cache.put(HttpMethod.GET, segments, mappedMethod, pathParameters);
+		}
+	}
+
+	private MethodMappingInfo loadMappedMethod() throws Exception {
+		Method method = MappedMethods.class.getDeclaredMethod("item", String.class);
+
+		return new MethodMappingInfo(method.getAnnotation(MethodMapping.class), method);
+	}
+
+	static class MappedMethods {
+		@MethodMapping("/item/{id}")
+		public void item(String id) {
+		}
+	}
+}
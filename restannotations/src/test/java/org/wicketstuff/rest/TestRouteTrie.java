@@ -0,0 +1,207 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.wicketstuff.rest.annotations.MethodMapping;
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.resource.MethodMappingTable;
+import org.wicketstuff.rest.resource.RestResourceFullAnnotated;
+import org.wicketstuff.rest.resource.routing.RouteOverlapAnalyzer;
+import org.wicketstuff.rest.resource.routing.RouteOverlapAnalyzer.Ambiguity;
+import org.wicketstuff.rest.resource.routing.RouteTrie;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+
+public class TestRouteTrie extends Assert {
+
+	@Test
+	public void testFixedSegmentsWin() {
+		RouteTrie trie = new RouteTrie(loadMappedMethods());
+
+		assertEquals("fixedTail", selectName(trie, HttpMethod.GET, "a", "b", "c"));
+		assertEquals("fixedHead", selectName(trie, HttpMethod.GET, "a", "x", "y"));
+		assertEquals("allParams", selectName(trie, HttpMethod.GET, "x", "y", "z"));
+		assertEquals("digits", selectName(trie, HttpMethod.GET, "item", "12"));
+		assertEquals("root", selectName(trie, HttpMethod.GET));
+		assertEquals("postItem", selectName(trie, HttpMethod.POST, "item", "abc"));
+	}
+
+	@Test
+	public void testNoMatch() {
+		RouteTrie trie = new RouteTrie(loadMappedMethods());
+
+		assertNull(trie.selectMappedMethod(HttpMethod.GET, new String[] { "item" }));
+		assertNull(trie.selectMappedMethod(HttpMethod.DELETE, new String[] { "a" }));
+		assertNull(trie.selectMappedMethod(HttpMethod.POST, new String[] { "a", "b" }));
+	}
+
+	@Test
+	public void testPriorityOrder() {
+		RouteTrie trie = new RouteTrie(loadMappedMethods());
+
+		// the fixed segment comes first in '/ambiguous/{p1}'
+		assertEquals("ambiguous1",
+				trie.selectMappedMethod(HttpMethod.PUT, new String[] { "ambiguous", "ambiguous" })
+						.getMethod().getName());
+		assertEquals("fixedTail",
+				trie.selectMappedMethod(HttpMethod.GET, new String[] { "a", "b", "c" })
+						.getMethod().getName());
+		assertEquals("digits", trie.selectMappedMethod(HttpMethod.GET, new String[] { "item", "12" })
+				.getMethod().getName());
+		assertNull(trie.selectMappedMethod(HttpMethod.GET, new String[] { "item" }));
+		assertNull(trie.selectMappedMethod(HttpMethod.DELETE, new String[] { "a" }));
+	}
+
+	@Test(expected = WicketRuntimeException.class)
+	public void testAmbiguousMethodsRejected() {
+		MethodMappingTable.forClass(AmbiguousMappedMethods.class);
+	}
+
+	@Test
+	public void testParameterNamesIgnoredByOverlapAnalysis() {
+		RouteOverlapAnalyzer<String> analyzer = new RouteOverlapAnalyzer<String>();
+
+		analyzer.addRoute(HttpMethod.GET, "/item/{id:\\d+}", "id");
+		analyzer.addRoute(HttpMethod.GET, "/item/{code:\\d+}", "code");
+		analyzer.addRoute(HttpMethod.GET, "/range/{id}-{x}", "idRange");
+		analyzer.addRoute(HttpMethod.GET, "/range/{a}-{b}", "abRange");
+		// different regular expressions are not compared
+		analyzer.addRoute(HttpMethod.GET, "/code/{id:\\d+}", "digitsCode");
+		analyzer.addRoute(HttpMethod.GET, "/code/{id:[0-9a-f]+}", "hexCode");
+
+		List<Ambiguity<String>> ambiguities = analyzer.findAmbiguities();
+
+		assertEquals(2, ambiguities.size());
+		assertEquals("id", ambiguities.get(0).getFirst());
+		assertEquals("code", ambiguities.get(0).getSecond());
+		assertEquals("idRange", ambiguities.get(1).getFirst());
+		assertEquals("abRange", ambiguities.get(1).getSecond());
+	}
+
+	@Test
+	public void testUndecidableRoutesFollowDeclarationOrder() throws Exception {
+		MethodMappingInfo digits = loadMappedMethod(UndecidableMappedMethods.class, "digits");
+		MethodMappingInfo hex = loadMappedMethod(UndecidableMappedMethods.class, "hex");
+		String[] segments = { "code", "12" };
+
+		// 'hex' has the parameter name coming first in alphabetical order
+		assertSame(digits,
+				new RouteTrie(Arrays.asList(digits, hex)).selectMappedMethod(HttpMethod.GET,
+						segments));
+		assertSame(hex,
+				new RouteTrie(Arrays.asList(hex, digits)).selectMappedMethod(HttpMethod.GET,
+						segments));
+	}
+
+	@Test
+	public void testTableSurvivesGarbageCollection() {
+		WeakReference<MethodMappingTable> firstTable = new WeakReference<MethodMappingTable>(
+				MethodMappingTable.forClass(RestResourceFullAnnotated.class));
+
+		System.gc();
+
+		assertSame(firstTable.get(), MethodMappingTable.forClass(RestResourceFullAnnotated.class));
+	}
+
+	private String selectName(RouteTrie trie, HttpMethod httpMethod, String... segments) {
+		MethodMappingInfo mappedMethod = trie.selectMappedMethod(httpMethod, segments);
+
+		assertNotNull(mappedMethod);
+		return mappedMethod.getMethod().getName();
+	}
+
+	private MethodMappingInfo loadMappedMethod(Class<?> clazz, String name) throws Exception {
+		Method method = clazz.getDeclaredMethod(name);
+
+		return new MethodMappingInfo(method.getAnnotation(MethodMapping.class), method);
+	}
+
+	private List<MethodMappingInfo> loadMappedMethods() {
+		List<MethodMappingInfo> mappedMethods = new ArrayList<MethodMappingInfo>();
+
+		for (Method method : MappedMethods.class.getDeclaredMethods()) {
+			MethodMapping methodMapping = method.getAnnotation(MethodMapping.class);
+
+			if (methodMapping != null)
+				mappedMethods.add(new MethodMappingInfo(methodMapping, method));
+		}
+
+		return mappedMethods;
+	}
+
+	static class MappedMethods {
+		@MethodMapping("/")
+		public void root() {
+		}
+
+		@MethodMapping("/{x}/{y}/{z}")
+		public void allParams() {
+		}
+
+		@MethodMapping("/a/{y}/{z}")
+		public void fixedHead() {
+		}
+
+		@MethodMapping("/{x}/b/c")
+		public void fixedTail() {
+		}
+
+		@MethodMapping("/item/{id:\\d+}")
+		public void digits() {
+		}
+
+		@MethodMapping(value = "/item/{id}", httpMethod = HttpMethod.POST)
+		public void postItem() {
+		}
+
+		@MethodMapping(value = "/ambiguous/{p1}", httpMethod = HttpMethod.PUT)
+		public void ambiguous1() {
+		}
+
+		@MethodMapping(value = "/{p2}/ambiguous", httpMethod = HttpMethod.PUT)
+		public void ambiguous2() {
+		}
+	}
+
+	static class AmbiguousMappedMethods {
+		@MethodMapping("/items/{id}")
+		public void item() {
+		}
+
+		@MethodMapping("/items/{name}")
+		public void namedItem() {
+		}
+	}
+
+	static class UndecidableMappedMethods {
+		@MethodMapping("/code/{zcode:\\d+}")
+		public void digits() {
+		}
+
+		@MethodMapping("/code/{acode:[0-9a-f]+}")
+		public void hex() {
+		}
+	}
+}
@@ -27,6 +27,7 @@ import org.junit.Test;
 import org.wicketstuff.rest.resource.urlsegments.AbstractURLSegment;
 import org.wicketstuff.rest.resource.urlsegments.MultiParamSegment;
 import org.wicketstuff.rest.resource.urlsegments.ParamSegment;
+import org.wicketstuff.rest.resource.urlsegments.SegmentScanner;
 
 public class TestSegmentClasses extends Assert {
 
@@ -92,6 +93,12 @@ public class TestSegmentClasses extends Assert {
 		assertEquals(2, matrixParams.size());
 		assertEquals("value", matrixParams.get("param"));
 		assertEquals("'hello world'", matrixParams.get("param1"));
+
+		matrixParams = AbstractURLSegment.getSegmentMatrixParameters(segment + ";flag;param = value");
+
+		assertEquals(2, matrixParams.size());
+		assertTrue(matrixParams.containsKey("flag"));
+		assertEquals("value", matrixParams.get("param"));
 	}
 
 	@Test
@@ -146,4 +153,83 @@ public class TestSegmentClasses extends Assert {
 		assertEquals(".zip", map.get("extension"));
 		
 	}
+
+	@Test
+	public void testSegmentScanner() throws Exception {
+		String[] compiledSegments = { "{id}", "{year:\\d{4}}", "{id:\\d+}", "{id:[0-9]{2,4}}",
+				"{hex:[0-9a-fA-F]+}", "{id:[0-9]*:abba}",
+				"{uuid:[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}}",
+				"{day:\\d{2}}-{month:\\d{2}}-{year:\\d{4}}_{message}",
+				"filename-{symbolicName:[a-z]+}-{version:\\d\\.\\d\\.\\d}{extension:\\.[a-z]+}" };
+		String[] inputs = { "", "1", "12", "123", "1234", "12345", "abba", "1:abba", ":abba",
+				"0123abCD", "07-23-2007_success", "07-23-2007_", "7-23-2007_success",
+				"123e4567-e89b-12d3-a456-426614174000", "123e4567-e89b-12d3-a456-42661417400",
+				"filename-gsaon-1.2.3.zip", "filename-gsaon-1.2.3.", "filename--1.2.3.zip" };
+
+		for (String segmentText : compiledSegments) {
+			AbstractURLSegment segment = AbstractURLSegment.newSegment(segmentText);
+			SegmentScanner scanner = SegmentScanner.compile(segment);
+
+			assertNotNull(segmentText, scanner);
+
+			for (String input : inputs) {
+				Matcher matcher = segment.getMetaPattern().matcher(input);
+
+				assertEquals(segmentText + " / " + input, matcher.matches(), scanner.matches(input));
+			}
+		}
+
+		// shapes that are matched with regular expressions
+		String[] regExpSegments = { "{id:^\\d+$}", "{id:(a|b)}", "{id:.+}-{name}", "{id:\\d+?}",
+				"{id:[^0-9]+}", "{id:\\d+}{name:\\w+}", "{segment0}asegment{segment1}" };
+
+		for (String segmentText : regExpSegments) {
+			assertNull(segmentText,
+					SegmentScanner.compile(AbstractURLSegment.newSegment(segmentText)));
+		}
+
+		HashMap<String, String> map = new HashMap<String, String>();
+		AbstractURLSegment segment = AbstractURLSegment
+				.newSegment("{day:\\d{2}}-{month:\\d{2}}-{year:\\d{4}}_{message}");
+
+		assertEquals(1, segment.calculateScore("07-23-2007_success"));
+		segment.populatePathVariables(map, "07-23-2007_success");
+
+		assertEquals("07", map.get("day"));
+		assertEquals("23", map.get("month"));
+		assertEquals("2007", map.get("year"));
+		assertEquals("success", map.get("message"));
+	}
+
+	@Test
+	public void testMultiParamCaptureGroups() throws Exception {
+		// regular expressions with groups are not compiled into a scanner
+		AbstractURLSegment segment = AbstractURLSegment
+				.newSegment("{name:(x|y)+}-{id:\\d+}.{ext:(zip|tar)}");
+		HashMap<String, String> map = new HashMap<String, String>();
+
+		assertNull(SegmentScanner.compile(segment));
+
+		String value = "xyx-123.zip";
+
+		assertEquals(1, segment.calculateScore(value));
+		segment.populatePathVariables(map, value);
+
+		assertEquals("xyx", map.get("name"));
+		assertEquals("123", map.get("id"));
+		assertEquals("zip", map.get("ext"));
+
+		assertEquals(0, segment.calculateScore("xyz-123.zip"));
+
+		map.clear();
+		segment.populatePathVariables(map, "xyz-123.zip");
+		assertTrue(map.isEmpty());
+		
+		// greedy parameters followed by the same separator
+		segment = AbstractURLSegment.newSegment("{first}-{second:(.+)}");
+		segment.populatePathVariables(map, "a-b-c");
+		
+		assertEquals("a-b", map.get("first"));
+		assertEquals("c", map.get("second"));
+	}
 }
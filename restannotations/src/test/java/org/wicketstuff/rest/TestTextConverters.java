@@ -0,0 +1,73 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.wicketstuff.rest.utils.convert.TextConverters;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+
+public class TestTextConverters extends Assert {
+
+	@Test
+	public void testIntegralTypes() {
+		assertEquals(Integer.valueOf(-42), convert(int.class, "-42"));
+		assertEquals(Integer.valueOf(Integer.MIN_VALUE), convert(Integer.class, "-2147483648"));
+		assertEquals(Long.valueOf(Long.MAX_VALUE), convert(long.class, "9223372036854775807"));
+		assertEquals(Byte.valueOf((byte) 127), convert(byte.class, "127"));
+		// values that can't be converted are left to the application converters
+		assertNull(convert(int.class, "2147483648"));
+		assertNull(convert(byte.class, "128"));
+		assertNull(convert(int.class, "12a"));
+		assertNull(convert(int.class, ""));
+	}
+
+	@Test
+	public void testDecimalAndOtherTypes() {
+		assertEquals(Double.valueOf(12.5), convert(double.class, "12.5"));
+		assertEquals(Float.valueOf(12.5f),
+				TextConverters.forType(float.class).convert("12.5", Locale.US));
+		assertNull(TextConverters.forType(float.class).convert("12,5", Locale.ITALY));
+		assertEquals(Boolean.TRUE, convert(boolean.class, "true"));
+		assertEquals(HttpMethod.PUT, convert(HttpMethod.class, "PUT"));
+		assertNull(convert(HttpMethod.class, "put"));
+
+		UUID uuid = UUID.randomUUID();
+		assertEquals(uuid, convert(UUID.class, uuid.toString()));
+		assertNull(TextConverters.forType(Object.class));
+	}
+
+	@Test
+	public void testIsoDate() {
+		Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+		calendar.clear();
+		calendar.set(2012, Calendar.FEBRUARY, 29, 10, 30, 15);
+
+		assertEquals(calendar.getTime(), convert(Date.class, "2012-02-29T10:30:15Z"));
+		assertNull(convert(Date.class, "2013-02-29T10:30:15Z"));
+	}
+
+	private Object convert(Class<?> type, String value) {
+		return TextConverters.forType(type).convert(value, null);
+	}
+}
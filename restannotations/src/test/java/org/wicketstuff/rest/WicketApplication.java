@@ -33,7 +33,12 @@ import org.wicketstuff.rest.contenthandling.serialdeserial.TestJsonDesSer;
 import org.wicketstuff.rest.contenthandling.serialdeserial.XmlSerialDeser;
 import org.wicketstuff.rest.resource.MultiFormatRestResource;
 import org.wicketstuff.rest.resource.RegExpRestResource;
+import org.wicketstuff.rest.resource.RestRequestMapper;
 import org.wicketstuff.rest.resource.RestResourceFullAnnotated;
+import org.wicketstuff.rest.resource.metrics.PhaseTimingAggregator;
+import org.wicketstuff.rest.resource.metrics.PrometheusMetricsResource;
+import org.wicketstuff.rest.resource.metrics.RestMetricsRegistry;
+import org.wicketstuff.rest.resource.routing.RouteCache;
 
 
 
@@ -46,6 +51,12 @@ public class WicketApplication extends WebApplication implements IRoleCheckingSt
 {    	
 	private final Roles roles;
 	
+	private final RestMetricsRegistry metricsRegistry = new RestMetricsRegistry();
+	
+	private final PhaseTimingAggregator phaseTimings = new PhaseTimingAggregator();
+	
+	private final RouteCache routeCache = new RouteCache(64);
+	
 	public WicketApplication(Roles roles) {
 		this.roles = roles;
 	}
@@ -86,6 +97,42 @@ public class WicketApplication extends WebApplication implements IRoleCheckingSt
 			
 		});
 		
+		mountResource("/api4", new ResourceReference("statelessRestResource"){
+
+			@Override
+			public IResource getResource() {
+				RestResourceFullAnnotated resource = new RestResourceFullAnnotated(new TestJsonDesSer(), WicketApplication.this);
+				
+				resource.setStateless(true);
+				resource.setMetricsRegistry(metricsRegistry);
+				resource.setPhaseTimingSink(phaseTimings);
+				return resource;
+			}
+			
+		});
+		
+		RestRequestMapper restMapper = new RestRequestMapper();
+		
+		restMapper.mount("/rest", new RegExpRestResource(new TestJsonDesSer(), this));
+		restMapper.mount("/rest/full", new RestResourceFullAnnotated(new TestJsonDesSer(), this));
+		
+		RestResourceFullAnnotated statelessResource = new RestResourceFullAnnotated(new TestJsonDesSer(), this);
+		
+		statelessResource.setStateless(true);
+		statelessResource.setLocale(Locale.ENGLISH);
+		statelessResource.setRouteCache(routeCache);
+		restMapper.mount("/rest/stateless", statelessResource);
+		mount(restMapper);
+		
+		mountResource("/metrics", new ResourceReference("metricsResource"){
+
+			@Override
+			public IResource getResource() {
+				return new PrometheusMetricsResource(metricsRegistry, phaseTimings);
+			}
+			
+		});
+		
 		mountResource("/api3", new ResourceReference("multiFormatRestResource"){
 
 			@Override
@@ -101,6 +148,10 @@ public class WicketApplication extends WebApplication implements IRoleCheckingSt
 		});
 	}
 	
+	public RouteCache getRouteCache() {
+		return routeCache;
+	}
+	
 	@Override
 	public Session newSession(Request request, Response response) {
 		Session session = super.newSession(request, response);
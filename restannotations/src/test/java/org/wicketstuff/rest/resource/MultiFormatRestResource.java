@@ -39,4 +39,16 @@ public class MultiFormatRestResource extends AbstractRestResource<MultiFormatSer
 	public Person returnMarshaledObject(){
 		return RestResourceFullAnnotated.createTestPerson();
 	}
+
+	@MethodMapping(value = "/negotiated/person", produces = { RestMimeTypes.APPLICATION_JSON,
+			RestMimeTypes.APPLICATION_XML })
+	public Person returnNegotiatedObject(){
+		return RestResourceFullAnnotated.createTestPerson();
+	}
+
+	@MethodMapping(value = "/versioned/person", produces = { "application/json; version=2",
+			RestMimeTypes.APPLICATION_XML })
+	public Person returnVersionedObject(){
+		return RestResourceFullAnnotated.createTestPerson();
+	}
 }
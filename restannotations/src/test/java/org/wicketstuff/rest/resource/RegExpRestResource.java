@@ -20,6 +20,7 @@ import org.apache.wicket.authroles.authorization.strategies.role.IRoleCheckingSt
 import org.apache.wicket.util.lang.Args;
 import org.wicketstuff.rest.annotations.MethodMapping;
 import org.wicketstuff.rest.annotations.parameters.CookieParam;
+import org.wicketstuff.rest.contenthandling.RestMimeTypes;
 import org.wicketstuff.rest.contenthandling.serialdeserial.TestJsonDesSer;
 
 public class RegExpRestResource extends RestResourceFullAnnotated{
@@ -40,4 +41,19 @@ public class RegExpRestResource extends RestResourceFullAnnotated{
 		Args.notNull(year, "year");
 		Args.notNull(message, "message");
 	}
+
+	@MethodMapping(value = "recordlog/file/{kind:(log|txt)}-{version:\\d+}", produces = RestMimeTypes.TEXT_PLAIN)
+	public String testLogFile(String kind, int version){
+		return kind + version;
+	}
+
+	@MethodMapping(value = "recordlog/range/{from:(a|b)}-{to}/first", produces = RestMimeTypes.TEXT_PLAIN)
+	public String testRangeFirst(String from, String to){
+		return "first:" + from + to;
+	}
+
+	@MethodMapping(value = "recordlog/range/{start:(a|b)}-{end}/last", produces = RestMimeTypes.TEXT_PLAIN)
+	public String testRangeLast(String start, String end){
+		return "last:" + start + end;
+	}
 }
@@ -16,10 +16,16 @@
  */
 package org.wicketstuff.rest.resource;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.Arrays;
+import java.util.Iterator;
 
 import junit.framework.Assert;
 
@@ -34,11 +40,17 @@ import org.wicketstuff.rest.annotations.parameters.MatrixParam;
 import org.wicketstuff.rest.annotations.parameters.PathParam;
 import org.wicketstuff.rest.annotations.parameters.RequestBody;
 import org.wicketstuff.rest.annotations.parameters.RequestParam;
+import org.wicketstuff.rest.contenthandling.IElementProducer;
+import org.wicketstuff.rest.contenthandling.IElementSink;
 import org.wicketstuff.rest.contenthandling.RestMimeTypes;
 import org.wicketstuff.rest.contenthandling.serialdeserial.TestJsonDesSer;
 import org.wicketstuff.rest.utils.http.HttpMethod;
 
 public class RestResourceFullAnnotated extends AbstractRestResource<TestJsonDesSer> {
+	public static final String BINARY_CONTENT = "0123456789";
+
+	public static File lastUploadedFile;
+
 	public RestResourceFullAnnotated(TestJsonDesSer jsonSerialDeserial,
 			IRoleCheckingStrategy roleCheckingStrategy) {
 		super(jsonSerialDeserial, roleCheckingStrategy);
@@ -168,6 +180,95 @@ public class RestResourceFullAnnotated extends AbstractRestResource<TestJsonDesS
 		return "testRequiredDefault";
 	}
 	
+	@MethodMapping(value = "/price/{price}", produces = RestMimeTypes.TEXT_PLAIN)
+	public String testLocalizedConversion(float price) {
+		return String.valueOf(price);
+	}
+
+	@MethodMapping(value = "/optional", produces = RestMimeTypes.TEXT_PLAIN)
+	public String testOptionalConversion(
+			@RequestParam(value = "size", required = false) Integer size) {
+		return "testOptionalConversion:" + size;
+	}
+
+	@MethodMapping("/stream/array")
+	public Iterator<Person> testStreamedArray() {
+		return Arrays.asList(createTestPerson(), createTestPerson(), createTestPerson())
+				.iterator();
+	}
+
+	@MethodMapping("/stream/iterable")
+	public Iterable<Person> testIterableObject() {
+		// a domain object which is not streamed
+		return new Iterable<Person>() {
+			@Override
+			public Iterator<Person> iterator() {
+				return Arrays.asList(createTestPerson()).iterator();
+			}
+		};
+	}
+
+	@MethodMapping(value = "/stream/ndjson", produces = RestMimeTypes.APPLICATION_NDJSON)
+	public IElementProducer<Person> testStreamedNdjson() {
+		return new IElementProducer<Person>() {
+			@Override
+			public void produce(IElementSink<? super Person> sink) throws Exception {
+				for (int i = 0; i < 3; i++) {
+					sink.accept(createTestPerson());
+				}
+			}
+		};
+	}
+
+	@MethodMapping(value = "/binary/bytes", produces = RestMimeTypes.OCTET_STREAM)
+	public byte[] testBinaryBytes() {
+		return BINARY_CONTENT.getBytes();
+	}
+
+	@MethodMapping("/binary/json")
+	public byte[] testSerializedBytes() {
+		return BINARY_CONTENT.getBytes();
+	}
+
+	@MethodMapping(value = "/binary/file", produces = RestMimeTypes.OCTET_STREAM)
+	public File testBinaryFile() throws IOException {
+		File file = File.createTempFile("binary", ".bin");
+		FileOutputStream outputStream = new FileOutputStream(file);
+
+		file.deleteOnExit();
+
+		try {
+			outputStream.write(BINARY_CONTENT.getBytes());
+		} finally {
+			outputStream.close();
+		}
+
+		return file;
+	}
+
+	@MethodMapping(value = "/upload/stream", httpMethod = HttpMethod.POST, consumes = RestMimeTypes.OCTET_STREAM, produces = RestMimeTypes.TEXT_PLAIN)
+	public String testUploadStream(@RequestBody(maxSize = 16) InputStream inputStream)
+			throws IOException {
+		int count = 0;
+
+		while (inputStream.read() != -1) {
+			count++;
+		}
+
+		return String.valueOf(count);
+	}
+
+	@MethodMapping(value = "/upload/object", httpMethod = HttpMethod.POST, produces = RestMimeTypes.TEXT_PLAIN)
+	public String testUploadObject(@RequestBody(maxSize = 16) Person person) {
+		return person.getName();
+	}
+
+	@MethodMapping(value = "/upload/file", httpMethod = HttpMethod.POST, consumes = RestMimeTypes.OCTET_STREAM, produces = RestMimeTypes.TEXT_PLAIN)
+	public String testUploadFile(@RequestBody File file) {
+		lastUploadedFile = file;
+		return String.valueOf(file.length());
+	}
+
 	public static Person createTestPerson() {
 		return new Person("Mary", "Smith", "m.smith@gmail.com");
 	}